@@ -0,0 +1,262 @@
+/*
+ * Population
+ * Copyright (C) 2016 Yuriy Budiyev [yuriy.budiyev@yandex.ru]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see http://www.gnu.org/licenses/.
+ */
+package com.budiyev.population.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.budiyev.population.component.Calculator;
+import com.budiyev.population.component.StepSink;
+import com.budiyev.population.model.State;
+import com.budiyev.population.model.Task;
+import com.budiyev.population.model.Transition;
+import com.budiyev.population.model.TransitionMode;
+import com.budiyev.population.model.TransitionType;
+import com.budiyev.population.util.ModelGenerator;
+import com.budiyev.population.util.PopulationThreadFactory;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Производительность вычислителя в последовательном, параллельном режимах и в режиме повышенной точности.
+ * Кроме количества вызовов, отчёт содержит счётчики steps и transitions (шагов и переходов в секунду);
+ * скорость выделения памяти выводится профилировщиком GC ({@code -prof gc}, включён в {@link #main}).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+public class CalculatorBenchmark {
+    /**
+     * Ограничение количества шагов в режиме повышенной точности,
+     * чтобы одна итерация укладывалась в разумное время
+     */
+    private static final int HIGHER_ACCURACY_MAX_STEPS = 50;
+    private static final long SEED = 0x5EEDL;
+
+    @Param({"16", "256"})
+    public int statesCount;
+
+    @Param({"64", "1024"})
+    public int transitionsCount;
+
+    @Param({"1000"})
+    public int stepsCount;
+
+    @Param({"0", "8"})
+    public int maxDelay;
+
+    /**
+     * LINEAR, SOLUTE, BLEND или MIXED (равномерно все типы)
+     */
+    @Param({"LINEAR", "SOLUTE", "BLEND", "MIXED"})
+    public String typeMix;
+
+    /**
+     * SIMPLE или MIXED (равномерно все режимы)
+     */
+    @Param({"SIMPLE", "MIXED"})
+    public String modeMix;
+
+    private Task mSequentialTask;
+    private Task mSequentialScalarTask;
+    private Task mParallelTask;
+    private Task mHigherAccuracyTask;
+    private ThreadFactory mThreadFactory;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ModelGenerator generator = new ModelGenerator();
+        generator.setSeed(SEED);
+        generator.setStatesCount(statesCount);
+        generator.setTransitionsCount(transitionsCount);
+        generator.setMaxDelay(maxDelay);
+        generator.setMaxCoefficient(2);
+        setTypeWeights(generator);
+        setModeWeights(generator);
+        Task model = generator.generate();
+        List<State> states = model.getStates();
+        List<Transition> transitions = model.getTransitions();
+        mSequentialTask = buildTask(states, transitions, stepsCount, false, false);
+        mSequentialScalarTask = buildTask(states, transitions, stepsCount, false, false);
+        mSequentialScalarTask.setLinearBatching(false);
+        mParallelTask = buildTask(states, transitions, stepsCount, true, false);
+        mHigherAccuracyTask =
+                buildTask(states, transitions, Math.min(stepsCount, HIGHER_ACCURACY_MAX_STEPS), false, true);
+        mThreadFactory = new PopulationThreadFactory((thread, throwable) -> throwable.printStackTrace());
+    }
+
+    @Benchmark
+    public void sequential(Counters counters, Blackhole blackhole) {
+        calculate(mSequentialTask, counters, blackhole);
+    }
+
+    /**
+     * Последовательный режим без пакетного вычисления линейных переходов, для сравнения с {@link #sequential}
+     */
+    @Benchmark
+    public void sequentialScalar(Counters counters, Blackhole blackhole) {
+        calculate(mSequentialScalarTask, counters, blackhole);
+    }
+
+    @Benchmark
+    public void parallel(Counters counters, Blackhole blackhole) {
+        calculate(mParallelTask, counters, blackhole);
+    }
+
+    @Benchmark
+    public void higherAccuracy(Counters counters, Blackhole blackhole) {
+        calculate(mHigherAccuracyTask, counters, blackhole);
+    }
+
+    private void calculate(Task task, Counters counters, Blackhole blackhole) {
+        Calculator.calculateSync(task, new BlackholeStepSink(blackhole), mThreadFactory);
+        int steps = task.getStepsCount() - 1;
+        counters.steps += steps;
+        counters.transitions += (long) steps * task.getTransitions().size();
+    }
+
+    private void setTypeWeights(ModelGenerator generator) {
+        switch (typeMix) {
+            case "LINEAR": {
+                setSingleWeight(TransitionType.TYPES.size(), TransitionType.LINEAR, generator::setTypeWeight);
+                break;
+            }
+            case "SOLUTE": {
+                setSingleWeight(TransitionType.TYPES.size(), TransitionType.SOLUTE, generator::setTypeWeight);
+                break;
+            }
+            case "BLEND": {
+                setSingleWeight(TransitionType.TYPES.size(), TransitionType.BLEND, generator::setTypeWeight);
+                break;
+            }
+            case "MIXED": {
+                break;
+            }
+            default: {
+                throw new IllegalArgumentException("Unknown type mix: " + typeMix);
+            }
+        }
+    }
+
+    private void setModeWeights(ModelGenerator generator) {
+        switch (modeMix) {
+            case "SIMPLE": {
+                break;
+            }
+            case "MIXED": {
+                for (int mode = 0; mode < TransitionMode.MODES.size(); mode++) {
+                    generator.setModeWeight(mode, 1);
+                }
+                break;
+            }
+            default: {
+                throw new IllegalArgumentException("Unknown mode mix: " + modeMix);
+            }
+        }
+    }
+
+    private static void setSingleWeight(int count, int selected, WeightSetter setter) {
+        for (int i = 0; i < count; i++) {
+            setter.setWeight(i, i == selected ? 1 : 0);
+        }
+    }
+
+    private static Task buildTask(List<State> states, List<Transition> transitions, int stepsCount,
+            boolean parallel, boolean higherAccuracy) {
+        Task task = new Task();
+        task.setStates(states);
+        task.setTransitions(transitions);
+        task.setStartPoint(0);
+        task.setStepsCount(stepsCount);
+        task.setParallel(parallel);
+        task.setHigherAccuracy(higherAccuracy);
+        task.setAllowNegative(false);
+        return task;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options =
+                new OptionsBuilder().include(CalculatorBenchmark.class.getSimpleName()).addProfiler(GCProfiler.class)
+                        .build();
+        new Runner(options).run();
+    }
+
+    /**
+     * Счётчики вычисленных шагов и переходов, выводятся в отчёте как операции в секунду
+     */
+    @org.openjdk.jmh.annotations.State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long steps;
+        public long transitions;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            steps = 0;
+            transitions = 0;
+        }
+    }
+
+    private interface WeightSetter {
+        void setWeight(int index, double weight);
+    }
+
+    /**
+     * Получатель шагов, не сохраняющий результат
+     */
+    private static final class BlackholeStepSink implements StepSink {
+        private final Blackhole mBlackhole;
+
+        private BlackholeStepSink(Blackhole blackhole) {
+            mBlackhole = blackhole;
+        }
+
+        @Override
+        public void onStart(Task task) {
+        }
+
+        @Override
+        public void onStep(int step, double[] states) {
+            mBlackhole.consume(states);
+        }
+
+        @Override
+        public void onFinish() {
+        }
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Population
+ * Copyright (C) 2016 Yuriy Budiyev [yuriy.budiyev@yandex.ru]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see http://www.gnu.org/licenses/.
+ */
+package com.budiyev.population.benchmark;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+import com.budiyev.population.component.Calculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Производительность трансцендентных функций BigDecimal вычислителя в сравнении
+ * с прежними реализациями (ряд Тейлора без редукции аргумента, метод Ньютона для логарифма и корня),
+ * сохранёнными в {@link Legacy} только для сравнения
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DecimalMathBenchmark {
+    private static final double EXPONENT = 2.5;
+    private static final long ROOT_INDEX = 3;
+
+    @Param({"50", "100", "384"})
+    public int scale;
+
+    /**
+     * Аргумент функций; показатель степени - дробный, как у коэффициентов переходов SOLUTE и BLEND
+     */
+    @Param({"0.75", "123.456"})
+    public String argument;
+
+    private BigDecimal mArgument;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mArgument = new BigDecimal(argument);
+    }
+
+    @Benchmark
+    public BigDecimal exponent() {
+        return Calculator.exponent(mArgument, scale);
+    }
+
+    @Benchmark
+    public BigDecimal naturalLogarithm() {
+        return Calculator.naturalLogarithm(mArgument, scale);
+    }
+
+    @Benchmark
+    public BigDecimal power() {
+        return Calculator.power(mArgument, EXPONENT, scale);
+    }
+
+    @Benchmark
+    public BigDecimal root() {
+        return Calculator.root(mArgument, ROOT_INDEX, scale);
+    }
+
+    @Benchmark
+    public BigDecimal legacyExponent() {
+        return Legacy.exponent(mArgument, scale);
+    }
+
+    @Benchmark
+    public BigDecimal legacyNaturalLogarithm() {
+        return Legacy.naturalLogarithm(mArgument, scale);
+    }
+
+    @Benchmark
+    public BigDecimal legacyPower() {
+        return Legacy.power(mArgument, EXPONENT, scale);
+    }
+
+    @Benchmark
+    public BigDecimal legacyRoot() {
+        return Legacy.root(mArgument, ROOT_INDEX, scale);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder().include(DecimalMathBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+
+    /**
+     * Прежние реализации функций с фиксированным количеством знаков в дробной части
+     */
+    private static final class Legacy {
+        private Legacy() {
+        }
+
+        private static BigDecimal exponent0(BigDecimal u, int scale) {
+            BigDecimal a = BigDecimal.ONE;
+            BigDecimal b = u;
+            BigDecimal c = u.add(BigDecimal.ONE);
+            BigDecimal d;
+            for (int i = 2; ; i++) {
+                b = multiply(b, u, scale);
+                a = a.multiply(BigDecimal.valueOf(i));
+                BigDecimal e = divide(b, a, scale);
+                d = c;
+                c = c.add(e);
+                if (c.compareTo(d) == 0) {
+                    break;
+                }
+            }
+            return c;
+        }
+
+        private static BigDecimal naturalLogarithm0(BigDecimal u, int scale) {
+            int s = scale + 1;
+            BigDecimal a = u;
+            BigDecimal b;
+            BigDecimal c = new BigDecimal(5).movePointLeft(s);
+            for (; ; ) {
+                BigDecimal d = exponent(u, s);
+                b = d.subtract(a).divide(d, s, RoundingMode.DOWN);
+                u = u.subtract(b);
+                if (b.compareTo(c) <= 0) {
+                    break;
+                }
+            }
+            return u.setScale(scale, RoundingMode.HALF_EVEN);
+        }
+
+        private static BigDecimal divide(BigDecimal u, BigDecimal v, int scale) {
+            return u.divide(v, scale, RoundingMode.HALF_EVEN);
+        }
+
+        private static BigDecimal multiply(BigDecimal u, BigDecimal v, int scale) {
+            return u.multiply(v).setScale(scale, RoundingMode.HALF_EVEN);
+        }
+
+        private static BigDecimal power(BigDecimal u, long exponent, int scale) {
+            if (u.signum() == 0) {
+                return BigDecimal.ZERO;
+            }
+            if (exponent < 0) {
+                return BigDecimal.ONE.divide(power(u, -exponent, scale), scale, RoundingMode.HALF_EVEN);
+            }
+            BigDecimal p = BigDecimal.ONE;
+            for (; exponent > 0; exponent >>= 1) {
+                if ((exponent & 1) == 1) {
+                    p = p.multiply(u).setScale(scale, RoundingMode.HALF_EVEN);
+                }
+                u = u.multiply(u).setScale(scale, RoundingMode.HALF_EVEN);
+            }
+            return p;
+        }
+
+        private static BigDecimal power(BigDecimal u, double exponent, int scale) {
+            if (u.signum() == 0) {
+                return BigDecimal.ZERO;
+            }
+            if (exponent % 1 == 0 && exponent <= Long.MAX_VALUE) {
+                return power(u, (long) exponent, scale);
+            }
+            return exponent(new BigDecimal(exponent).multiply(naturalLogarithm(u, scale)), scale);
+        }
+
+        private static BigDecimal root(BigDecimal u, long index, int scale) {
+            if (u.signum() == 0) {
+                return BigDecimal.ZERO;
+            }
+            int s = scale + 1;
+            BigDecimal a = u;
+            BigDecimal b = new BigDecimal(index);
+            BigDecimal c = new BigDecimal(index - 1);
+            BigDecimal d = new BigDecimal(5).movePointLeft(s);
+            BigDecimal e;
+            u = divide(u, b, scale);
+            for (; ; ) {
+                BigDecimal f = power(u, index - 1, s);
+                BigDecimal g = multiply(u, f, s);
+                BigDecimal h = a.add(c.multiply(g)).setScale(s, RoundingMode.HALF_EVEN);
+                BigDecimal l = multiply(b, f, s);
+                e = u;
+                u = h.divide(l, s, RoundingMode.DOWN);
+                if (u.subtract(e).abs().compareTo(d) <= 0) {
+                    break;
+                }
+            }
+            return u;
+        }
+
+        private static BigDecimal exponent(BigDecimal u, int scale) {
+            if (u.signum() == 0) {
+                return BigDecimal.ONE;
+            } else if (u.signum() == -1) {
+                return divide(BigDecimal.ONE, exponent(u.negate(), scale), scale);
+            }
+            BigDecimal a = u.setScale(0, RoundingMode.DOWN);
+            if (a.signum() == 0) {
+                return exponent0(u, scale);
+            }
+            BigDecimal b = u.subtract(a);
+            BigDecimal c = BigDecimal.ONE.add(divide(b, a, scale));
+            BigDecimal d = exponent0(c, scale);
+            BigDecimal e = new BigDecimal(Long.MAX_VALUE);
+            BigDecimal f = BigDecimal.ONE;
+            for (; a.compareTo(e) >= 0; ) {
+                f = multiply(f, power(d, Long.MAX_VALUE, scale), scale);
+                a = a.subtract(e);
+            }
+            return multiply(f, power(d, a.longValue(), scale), scale);
+        }
+
+        private static BigDecimal naturalLogarithm(BigDecimal u, int scale) {
+            if (u.signum() <= 0) {
+                throw new IllegalArgumentException("Natural logarithm is defined only on positive values.");
+            }
+            int a = u.toString().length() - u.scale() - 1;
+            if (a < 3) {
+                return naturalLogarithm0(u, scale);
+            } else {
+                BigDecimal b = root(u, a, scale);
+                BigDecimal c = naturalLogarithm0(b, scale);
+                return multiply(new BigDecimal(a), c, scale);
+            }
+        }
+    }
+}
@@ -31,9 +31,19 @@ import java.util.concurrent.Future;
 import java.util.concurrent.ThreadFactory;
 
 import com.budiyev.population.component.Calculator;
-import com.budiyev.population.model.Result;
+import com.budiyev.population.component.CsvStepSink;
+import com.budiyev.population.component.EnsembleCalculator;
+import com.budiyev.population.component.EquilibriumSolver;
+import com.budiyev.population.component.StepSink;
+import com.budiyev.population.model.CalculatorStats;
+import com.budiyev.population.model.Equilibrium;
+import com.budiyev.population.model.ErrorEstimate;
+import com.budiyev.population.model.State;
 import com.budiyev.population.model.Task;
 import com.budiyev.population.model.Transition;
+import com.budiyev.population.model.TransitionMode;
+import com.budiyev.population.model.TransitionType;
+import com.budiyev.population.util.ModelGenerator;
 import com.budiyev.population.util.PopulationThreadFactory;
 import com.budiyev.population.util.TaskParser;
 import com.budiyev.population.util.Utils;
@@ -44,6 +54,24 @@ public final class Console {
     private static final String KEY_TASKS = "-tasks";
     private static final String KEY_INTERVAL = "-interval";
     private static final String KEY_PARALLEL = "-parallel";
+    private static final String KEY_GENERATE = "-generate";
+    private static final String KEY_EQUILIBRIUM = "-equilibrium";
+    private static final String KEY_PROFILE = "-profile";
+    private static final String KEY_ESTIMATE = "-estimate";
+    private static final String KEY_COMPILE = "-compile";
+    private static final String KEY_VERIFY = "-verify";
+    private static final String PARAMETER_SEED = "seed";
+    private static final String PARAMETER_STATES = "states";
+    private static final String PARAMETER_TRANSITIONS = "transitions";
+    private static final String PARAMETER_STEPS = "steps";
+    private static final String PARAMETER_DELAY = "delay";
+    private static final String PARAMETER_EXTERNAL = "external";
+    private static final String PARAMETER_PROBABILITY = "probability";
+    private static final String PARAMETER_COEFFICIENT = "coefficient";
+    private static final String PARAMETER_TYPES = "types";
+    private static final String PARAMETER_MODES = "modes";
+    private static final char PARAMETER_SEPARATOR = '=';
+    private static final String WEIGHTS_SEPARATOR = ",";
 
     public static final Thread.UncaughtExceptionHandler UNCAUGHT_EXCEPTION_HANDLER = (thread, throwable) -> {
         System.out.println("Error");
@@ -77,24 +105,57 @@ public final class Console {
     }
 
     private static void calculateTask(File inputFile, File resultFile, ResourceBundle resources) throws IOException {
+        calculateTask(inputFile, resultFile, resources, false, false, false);
+    }
+
+    private static void calculateTask(File inputFile, File resultFile, ResourceBundle resources, boolean profile,
+            boolean estimate, boolean compile) throws IOException {
         System.out.println("Calculating: " + inputFile.getName());
         Task task = TaskParser.parse(inputFile);
         if (task == null) {
             System.out.println("Can't load: " + inputFile.getName());
             return;
         }
-        Result result = Calculator.calculateSync(task, true, false, THREAD_FACTORY);
-        Utils.exportResults(resultFile, result, task.getColumnSeparator(), task.getDecimalSeparator(),
-                task.getLineSeparator(), task.getEncoding(), resources);
+        task.setProfiling(profile);
+        task.setStepCompilation(compile);
+        if (estimate) {
+            task.setErrorEstimationInterval(Task.DEFAULT_ERROR_ESTIMATION_INTERVAL);
+        }
+        Calculator.calculateSync(task, new CsvStepSink(resultFile, task.getColumnSeparator(),
+                task.getDecimalSeparator(), task.getLineSeparator(), task.getEncoding(), resources) {
+            @Override
+            public void onStats(CalculatorStats stats) {
+                System.out.println("Profile: " + inputFile.getName());
+                System.out.print(stats.buildReport());
+            }
+
+            @Override
+            public void onErrorEstimate(ErrorEstimate errorEstimate) {
+                System.out.println("Error estimate: " + inputFile.getName());
+                System.out.print(errorEstimate.buildReport());
+            }
+
+            @Override
+            public boolean onSteadyState(int step, double[] states, boolean fill) {
+                System.out.println("Steady state: " + inputFile.getName() + ", step " + (task.getStartPoint() + step));
+                return super.onSteadyState(step, states, fill);
+            }
+
+            @Override
+            public void onInexactStep(int step) {
+                System.out.println("Fixed point: " + inputFile.getName() + ", rounded from step " +
+                        (task.getStartPoint() + step));
+            }
+        }, THREAD_FACTORY);
         System.out.println("Done: " + resultFile.getName());
     }
 
     private static void calculateTask(Task task, ResourceBundle resources) throws IOException {
         int taskId = task.getId();
         System.out.println("Calculating: " + taskId);
-        Result result = Calculator.calculateSync(task, true, false, THREAD_FACTORY);
-        Utils.exportResults(buildResultFile(task.getName(), taskId), result, task.getColumnSeparator(),
-                task.getDecimalSeparator(), task.getLineSeparator(), task.getEncoding(), resources);
+        Calculator.calculateSync(task, new CsvStepSink(buildResultFile(task.getName(), taskId),
+                task.getColumnSeparator(), task.getDecimalSeparator(), task.getLineSeparator(), task.getEncoding(),
+                resources), THREAD_FACTORY);
         System.out.println("Done: " + taskId);
     }
 
@@ -148,8 +209,17 @@ public final class Console {
         result.setStartPoint(start.getStartPoint());
         result.setStepsCount(start.getStepsCount());
         result.setParallel(start.isParallel());
-        result.setHigherAccuracy(start.isHigherAccuracy());
+        result.setAccuracy(start.getAccuracy());
+        result.setPrecision(start.getPrecision());
+        result.setCompensatedSummation(start.isCompensatedSummation());
         result.setAllowNegative(start.isAllowNegative());
+        result.setSteadyStateEpsilon(start.getSteadyStateEpsilon());
+        result.setSteadyStateWindow(start.getSteadyStateWindow());
+        result.setSteadyStateFill(start.isSteadyStateFill());
+        result.setProfiling(start.isProfiling());
+        result.setErrorEstimationInterval(start.getErrorEstimationInterval());
+        result.setLinearBatching(start.isLinearBatching());
+        result.setStepCompilation(start.isStepCompilation());
         result.setColumnSeparator(start.getColumnSeparator());
         result.setDecimalSeparator(start.getDecimalSeparator());
         result.setLineSeparator(start.getLineSeparator());
@@ -157,6 +227,71 @@ public final class Console {
         return result;
     }
 
+    private static void calculateEnsemble(Task start, Task end, List<Double> shifts, int from, int to, int size,
+            ResourceBundle resources) {
+        int variantsCount = to - from;
+        double[][] probabilities = new double[variantsCount][];
+        StepSink[] sinks = new StepSink[variantsCount];
+        for (int i = 0; i < variantsCount; i++) {
+            Task task = buildTask(start, end, shifts, from + i, size);
+            List<Transition> transitions = task.getTransitions();
+            probabilities[i] = new double[transitions.size()];
+            for (int j = 0; j < transitions.size(); j++) {
+                probabilities[i][j] = transitions.get(j).getProbability();
+            }
+            sinks[i] = new CsvStepSink(buildResultFile(task.getName(), task.getId()), task.getColumnSeparator(),
+                    task.getDecimalSeparator(), task.getLineSeparator(), task.getEncoding(), resources);
+        }
+        System.out.println("Calculating: " + (from + 1) + " - " + to);
+        new EnsembleCalculator(start, probabilities, sinks).calculateSync();
+        System.out.println("Done: " + (from + 1) + " - " + to);
+    }
+
+    /**
+     * Задачи отличаются только вероятностями переходов и могут быть вычислены одним ансамблем
+     */
+    private static boolean isSameStructure(Task start, Task end) {
+        if (!EnsembleCalculator.isSupported(start) || !EnsembleCalculator.isSupported(end) ||
+                start.getStepsCount() != end.getStepsCount() || start.getStartPoint() != end.getStartPoint() ||
+                start.isAllowNegative() != end.isAllowNegative()) {
+            return false;
+        }
+        List<State> startStates = start.getStates();
+        List<State> endStates = end.getStates();
+        if (startStates.size() != endStates.size()) {
+            return false;
+        }
+        for (int i = 0; i < startStates.size(); i++) {
+            State startState = startStates.get(i);
+            State endState = endStates.get(i);
+            if (startState.getId() != endState.getId() || startState.getCount() != endState.getCount()) {
+                return false;
+            }
+        }
+        List<Transition> startTransitions = start.getTransitions();
+        List<Transition> endTransitions = end.getTransitions();
+        if (startTransitions.size() != endTransitions.size()) {
+            return false;
+        }
+        for (int i = 0; i < startTransitions.size(); i++) {
+            Transition startTransition = startTransitions.get(i);
+            Transition endTransition = endTransitions.get(i);
+            if (startTransition.getSourceState() != endTransition.getSourceState() ||
+                    startTransition.getSourceCoefficient() != endTransition.getSourceCoefficient() ||
+                    startTransition.getSourceDelay() != endTransition.getSourceDelay() ||
+                    startTransition.getOperandState() != endTransition.getOperandState() ||
+                    startTransition.getOperandCoefficient() != endTransition.getOperandCoefficient() ||
+                    startTransition.getOperandDelay() != endTransition.getOperandDelay() ||
+                    startTransition.getResultState() != endTransition.getResultState() ||
+                    startTransition.getResultCoefficient() != endTransition.getResultCoefficient() ||
+                    startTransition.getType() != endTransition.getType() ||
+                    startTransition.getMode() != endTransition.getMode()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static List<Double> calculateShifts(Task start, Task end, int size) {
         List<Double> result = new ArrayList<>(start.getTransitions().size());
         List<Transition> startTransitions = start.getTransitions();
@@ -180,7 +315,22 @@ public final class Console {
         endTask.setId(size);
         endTask.setName(startTask.getName());
         List<Double> shifts = calculateShifts(startTask, endTask, size);
-        if (parallel) {
+        if (isSameStructure(startTask, endTask)) {
+            int ensemblesCount = parallel ? Math.min(size, Runtime.getRuntime().availableProcessors()) : 1;
+            if (ensemblesCount > 1) {
+                ExecutorService executor = Utils.newExecutor(THREAD_FACTORY);
+                List<Future<?>> futures = new ArrayList<>(ensemblesCount);
+                for (int i = 0; i < ensemblesCount; i++) {
+                    futures.add(executor.submit(new CalculateEnsembleAction(size * i / ensemblesCount,
+                            size * (i + 1) / ensemblesCount, size, startTask, endTask, shifts, resources)));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } else {
+                calculateEnsemble(startTask, endTask, shifts, 0, size, size, resources);
+            }
+        } else if (parallel) {
             ExecutorService executor = Utils.newExecutor(THREAD_FACTORY);
             List<Future<?>> futures = new ArrayList<>(size);
             for (int i = 0; i < size; i++) {
@@ -197,6 +347,92 @@ public final class Console {
         System.out.println("Done all.");
     }
 
+    private static void setWeights(String weights, int count, WeightSetter setter) {
+        String[] values = weights.split(WEIGHTS_SEPARATOR);
+        if (values.length != count) {
+            throw new IllegalArgumentException("Expected " + count + " weights: " + weights);
+        }
+        for (int i = 0; i < count; i++) {
+            setter.setWeight(i, Double.parseDouble(values[i]));
+        }
+    }
+
+    private static void generateTask(File outputFile, String[] parameters, int offset) {
+        ModelGenerator generator = new ModelGenerator();
+        for (int i = offset; i < parameters.length; i++) {
+            String parameter = parameters[i];
+            int separator = parameter.indexOf(PARAMETER_SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid parameter: " + parameter);
+            }
+            String name = parameter.substring(0, separator);
+            String value = parameter.substring(separator + 1);
+            if (PARAMETER_SEED.equalsIgnoreCase(name)) {
+                generator.setSeed(Long.parseLong(value));
+            } else if (PARAMETER_STATES.equalsIgnoreCase(name)) {
+                generator.setStatesCount(Integer.parseInt(value));
+            } else if (PARAMETER_TRANSITIONS.equalsIgnoreCase(name)) {
+                generator.setTransitionsCount(Integer.parseInt(value));
+            } else if (PARAMETER_STEPS.equalsIgnoreCase(name)) {
+                generator.setStepsCount(Integer.parseInt(value));
+            } else if (PARAMETER_DELAY.equalsIgnoreCase(name)) {
+                generator.setMaxDelay(Integer.parseInt(value));
+            } else if (PARAMETER_EXTERNAL.equalsIgnoreCase(name)) {
+                generator.setExternalFraction(Double.parseDouble(value));
+            } else if (PARAMETER_PROBABILITY.equalsIgnoreCase(name)) {
+                generator.setMaxProbability(Double.parseDouble(value));
+            } else if (PARAMETER_COEFFICIENT.equalsIgnoreCase(name)) {
+                generator.setMaxCoefficient(Integer.parseInt(value));
+            } else if (PARAMETER_TYPES.equalsIgnoreCase(name)) {
+                setWeights(value, TransitionType.TYPES.size(), generator::setTypeWeight);
+            } else if (PARAMETER_MODES.equalsIgnoreCase(name)) {
+                setWeights(value, TransitionMode.MODES.size(), generator::setModeWeight);
+            } else {
+                throw new IllegalArgumentException("Unknown parameter: " + name);
+            }
+        }
+        Task task = generator.generate(outputFile);
+        System.out.println("Generated: " + outputFile.getName() + " (" + task.getStates().size() + " states, " +
+                task.getTransitions().size() + " transitions)");
+    }
+
+    private static void solveEquilibrium(File inputFile, boolean verify) {
+        System.out.println("Solving: " + inputFile.getName());
+        Task task = TaskParser.parse(inputFile);
+        if (task == null) {
+            System.out.println("Can't load: " + inputFile.getName());
+            return;
+        }
+        Equilibrium equilibrium = EquilibriumSolver.solve(task);
+        System.out.println("Equilibrium: " + inputFile.getName());
+        System.out.print(equilibrium.buildReport());
+        if (verify) {
+            verifyEquilibrium(task, equilibrium);
+        }
+    }
+
+    /**
+     * Сравнение установившегося состояния с последним шагом вычислений по шагам
+     * (количество шагов и остановка по достижении установившегося состояния берутся из задачи)
+     */
+    private static void verifyEquilibrium(Task task, Equilibrium equilibrium) {
+        System.out.println("Calculating: " + task.getStepsCount() + " steps");
+        LastStepSink sink = new LastStepSink();
+        Calculator.calculateSync(task, sink, THREAD_FACTORY);
+        double[] states = sink.getStates();
+        double difference = 0;
+        double scale = 0;
+        for (int state = 0; state < states.length; state++) {
+            difference = Math.max(difference, Math.abs(equilibrium.getState(state) - states[state]));
+            scale = Math.max(scale, Math.abs(states[state]));
+        }
+        System.out.println("Step " + sink.getStep() + ": difference " + String.format(Locale.ROOT, "%.3e",
+                difference) + ", relative " + String.format(Locale.ROOT, "%.3e", difference / (scale > 0 ? scale : 1)));
+        for (int state = 0; state < states.length; state++) {
+            System.out.println("  #" + (state + 1) + ": " + states[state]);
+        }
+    }
+
     public static void main(String[] args) {
         try {
             System.out.println("Population [version " + Launcher.VERSION + "].");
@@ -212,9 +448,15 @@ public final class Console {
             if (KEY_HELP.equalsIgnoreCase(args[0])) {
                 printInitialization(0, processors, false);
                 System.out.println("Usage:");
-                System.out.println("-task task_file [result_file]");
+                System.out.println("-task [-profile] [-estimate] [-compile] task_file [result_file]");
                 System.out.println("-tasks [-parallel] task_file1 ... task_fileN");
                 System.out.println("-interval [-parallel] start_task end_task interval_count");
+                System.out.println("-equilibrium [-verify] task_file");
+                System.out.println("-generate task_file [parameter=value ...]");
+                System.out.println("  parameters: seed, states, transitions, steps, delay (maximum),");
+                System.out.println("  external (fraction 0 - 1), probability (maximum), coefficient (maximum),");
+                System.out.println("  types (weights: linear,solute,blend), modes (weights: simple,retaining,");
+                System.out.println("  removing,residual,inhibitor)");
                 System.out.println("License info:");
                 System.out.println("This program is free software: you can redistribute it and/or modify");
                 System.out.println("it under the terms of the GNU General Public License as published by");
@@ -227,15 +469,30 @@ public final class Console {
                 System.out.println("You should have received a copy of the GNU General Public License");
                 System.out.println("along with this program. If not, see http://www.gnu.org/licenses/.");
             } else if (KEY_TASK.equalsIgnoreCase(args[0])) {
-                File inputFile = new File(args[1]);
+                boolean profile = false;
+                boolean estimate = false;
+                boolean compile = false;
+                int shift = 1;
+                for (; shift < args.length - 1; shift++) {
+                    if (Objects.equals(args[shift], KEY_PROFILE)) {
+                        profile = true;
+                    } else if (Objects.equals(args[shift], KEY_ESTIMATE)) {
+                        estimate = true;
+                    } else if (Objects.equals(args[shift], KEY_COMPILE)) {
+                        compile = true;
+                    } else {
+                        break;
+                    }
+                }
+                File inputFile = new File(args[shift]);
                 File resultFile;
-                if (args.length < 3) {
+                if (args.length < shift + 2) {
                     resultFile = buildResultFile(inputFile);
                 } else {
-                    resultFile = new File(args[2]);
+                    resultFile = new File(args[shift + 1]);
                 }
                 printInitialization(1, processors, false);
-                calculateTask(inputFile, resultFile, resources);
+                calculateTask(inputFile, resultFile, resources, profile, estimate, compile);
             } else if (KEY_TASKS.equalsIgnoreCase(args[0])) {
                 String secondArgument = args[1];
                 boolean parallel = Objects.equals(secondArgument, KEY_PARALLEL);
@@ -253,6 +510,12 @@ public final class Console {
                 File endFile = new File(args[shift + 1]);
                 int size = Integer.parseInt(args[shift + 2]);
                 calculateTasks(startFile, endFile, size, resources, parallel);
+            } else if (KEY_EQUILIBRIUM.equalsIgnoreCase(args[0])) {
+                boolean verify = Objects.equals(args[1], KEY_VERIFY);
+                printInitialization(1, processors, false);
+                solveEquilibrium(new File(args[verify ? 2 : 1]), verify);
+            } else if (KEY_GENERATE.equalsIgnoreCase(args[0])) {
+                generateTask(new File(args[1]), args, 2);
             } else {
                 System.out.println("Invalid arguments.");
             }
@@ -264,6 +527,42 @@ public final class Console {
         }
     }
 
+    /**
+     * Получатель шагов, сохраняющий только последний шаг
+     */
+    private static class LastStepSink implements StepSink {
+        private double[] mStates;
+        private int mStep;
+
+        @Override
+        public void onStart(Task task) {
+            mStates = new double[task.getStates().size()];
+        }
+
+        @Override
+        public void onStep(int step, double[] states) {
+            System.arraycopy(states, 0, mStates, 0, mStates.length);
+            mStep = step;
+        }
+
+        @Override
+        public boolean onSteadyState(int step, double[] states, boolean fill) {
+            return true;
+        }
+
+        @Override
+        public void onFinish() {
+        }
+
+        public double[] getStates() {
+            return mStates;
+        }
+
+        public int getStep() {
+            return mStep;
+        }
+    }
+
     private static class CalculateFileAction implements Callable<Void> {
         private final File mInputFile;
         private final ResourceBundle mResources;
@@ -304,4 +603,35 @@ public final class Console {
             return null;
         }
     }
+
+    private static class CalculateEnsembleAction implements Callable<Void> {
+        private final int mFrom;
+        private final int mTo;
+        private final int mSize;
+        private final Task mStartTask;
+        private final Task mEndTask;
+        private final List<Double> mShifts;
+        private final ResourceBundle mResources;
+
+        private CalculateEnsembleAction(int from, int to, int size, Task startTask, Task endTask, List<Double> shifts,
+                ResourceBundle resources) {
+            mFrom = from;
+            mTo = to;
+            mSize = size;
+            mStartTask = startTask;
+            mEndTask = endTask;
+            mShifts = shifts;
+            mResources = resources;
+        }
+
+        @Override
+        public Void call() throws Exception {
+            calculateEnsemble(mStartTask, mEndTask, mShifts, mFrom, mTo, mSize, mResources);
+            return null;
+        }
+    }
+
+    private interface WeightSetter {
+        void setWeight(int index, double weight);
+    }
 }
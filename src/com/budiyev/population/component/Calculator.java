@@ -18,224 +18,563 @@
 package com.budiyev.population.component;
 
 import java.math.BigDecimal;
+import java.math.MathContext;
 import java.math.RoundingMode;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.CancellationException;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
 import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
+import com.budiyev.population.model.Accuracy;
+import com.budiyev.population.model.CalculatorStats;
+import com.budiyev.population.model.ErrorEstimate;
 import com.budiyev.population.model.Result;
 import com.budiyev.population.model.State;
 import com.budiyev.population.model.Task;
-import com.budiyev.population.model.Transition;
 import com.budiyev.population.model.TransitionMode;
-import com.budiyev.population.model.TransitionType;
-import com.budiyev.population.util.Utils;
 
 public class Calculator {
     /**
-     * Количество десяничных знаков после разделителя в вещественных числах
-     * в режиме повышенной точности
+     * Минимальное количество защитных цифр, добавляемых к точности задачи в режиме повышенной точности
      */
-    private static final int HIGHER_ACCURACY_SCALE = 384;
+    private static final int GUARD_DIGITS = 4;
+    private static final int MAX_DOUBLE_FACTORIAL = 170; // Наибольший аргумент с конечным факториалом в double
     private final Task mTask; // Задача
-    private final double[][] mStates; // Состояния
+    private final MathContext mMathContext; // Точность вычислений в режиме повышенной точности
+    private final double[][] mStates; // Кольцевой буфер состояний последних шагов
+    private final double[][] mDelayedStates; // Состояния на прошлом шаге с учётом каждой из задержек
+    private final double[] mOutputStates; // Состояния шага, передаваемые получателю
+    private final double[] mSteadyStates; // Состояния прошлого шага для обнаружения установившегося состояния
+    private int mSteadySteps; // Количество последних шагов подряд без существенных изменений состояний
+    private final double[][] mCompensations; // Компенсации погрешностей округления состояний (Ноймайер)
+    private final double[][] mStatesLow; // Младшие части состояний для режима расширенной точности
+    private final double[][] mDelayedStatesLow; // Младшие части состояний с учётом каждой из задержек
     private final BigDecimal[][] mStatesBig; // Состояния для режима повышенной точности
-    private final Lock mStatesLock = new ReentrantLock();
-    private final int[] mStateIds; // Идентификаторы состояний
+    private final HigherAccuracyConstants mConstants; // Константы переходов для режима повышенной точности
+    private final BigDecimal[][] mDeltasBig; // Точные суммы изменений состояний исполнителей (повышенная точность)
+    private final FixedPointEngine mFixedPoint; // Вычисления с фиксированной точкой (только линейные переходы)
+    private final TransitionPlan mPlan; // План вычисления переходов
+    private final double[] mTerms; // Общие слагаемые шага, вычисляемые один раз для всех переходов
+    private final BigDecimal[] mTermsBig; // Общие слагаемые шага в режиме повышенной точности
+    private final CompiledStep mCompiledStep; // Шаг, скомпилированный для плана переходов
+    private final LinearBatch[] mLinearBatches; // Пакеты линейных переходов исполнителей
+    private final double[] mLinearValues; // Значения линейных переходов, вычисленные пакетами
     private final int mStatesCount; // Количество состояний
-    private final ExecutorService mExecutor; // Исполнитель (для параллельного режима)
+    private final int mWorkersCount; // Количество исполнителей (для параллельного режима)
+    private final double[][] mDeltas; // Изменения состояний, накопленные исполнителями (для параллельного режима)
+    private final double[][] mDeltasLow; // Младшие части изменений состояний (для режима расширенной точности)
+    private final double[][] mDeltaCompensations; // Компенсации изменений состояний, накопленных исполнителями
+    private final DoubleDouble[] mValueRegisters; // Регистры значений переходов исполнителей
+    private final DoubleDouble[] mWorkRegisters; // Рабочие регистры исполнителей
+    private final DoubleDouble mTotalCountExtended; // Общее количество автоматов в режиме расширенной точности
+    private final StepSink mSink; // Получатель завершённых шагов
+    private final CalculatorStats mStats; // Статистика профилирования (если профилирование включено)
+    private final ErrorEstimate mErrorEstimate; // Оценка погрешности (если оценка включена)
+    private final double[][] mShadowStates; // Старшие части состояний проверочной траектории
+    private final double[][] mShadowStatesLow; // Младшие части состояний проверочной траектории
+    private final double[][] mShadowDelayedStates; // Старшие части состояний проверочной траектории по задержкам
+    private final double[][] mShadowDelayedStatesLow; // Младшие части состояний проверочной траектории по задержкам
+    private final DoubleDouble mShadowTotalCount; // Общее количество автоматов проверочной траектории
+    private final DoubleDouble mShadowValue; // Регистр значения перехода проверочного шага
+    private final DoubleDouble mShadowRegister; // Рабочий регистр проверочного шага
     private final ResultCallback mResultCallback; // Обратный вызов результата
     private final ProgressCallback mProgressCallback; // Обратный вызов прогресса вычислений
     private final ThreadFactory mThreadFactory; // Фабрика потоков
-    private final boolean mPrepareResultsTableData; // Подготовить результат в табличном виде
-    private final boolean mPrepareResultsChartData; // Подготовить результат в графическом виде
     private volatile double mProgress; // Прогресс вычислений
 
     /**
      * Вычислитель
      *
-     * @param task                    задача
-     * @param prepareResultsTableData подготовить результат в табличном виде
-     * @param prepareResultsChartData подготовить результат в графическом виде
-     * @param resultCallback          обратный вызов результата
-     * @param progressCallback        обратный вызов прогресса вычислений
-     * @param threadFactory           Фабрика потоков для асинхронных и параллельных вычислений
+     * @param task             задача
+     * @param sink             получатель завершённых шагов
+     * @param resultCallback   обратный вызов результата
+     * @param progressCallback обратный вызов прогресса вычислений
+     * @param threadFactory    Фабрика потоков для асинхронных и параллельных вычислений
      */
-    private Calculator(Task task, boolean prepareResultsTableData, boolean prepareResultsChartData,
-            ResultCallback resultCallback, ProgressCallback progressCallback, ThreadFactory threadFactory) {
+    private Calculator(Task task, StepSink sink, ResultCallback resultCallback, ProgressCallback progressCallback,
+            ThreadFactory threadFactory) {
         mTask = task;
-        mPrepareResultsTableData = prepareResultsTableData;
-        mPrepareResultsChartData = prepareResultsChartData;
+        mSink = sink;
         mResultCallback = resultCallback;
         mProgressCallback = progressCallback;
         mThreadFactory = threadFactory;
+        mStats = task.isProfiling() ? new CalculatorStats(task.getTransitions().size()) : null;
         List<State> statesList = task.getStates();
         int statesCount = statesList.size();
         mStatesCount = statesCount;
-        double[][] states = new double[task.getStepsCount()][statesCount];
-        int[] stateIds = new int[statesCount];
+        mPlan = TransitionPlan.compile(task);
+        double[][] states = new double[mPlan.getMaxDelay() + 2][statesCount];
         for (int i = 0; i < statesCount; i++) {
-            State state = statesList.get(i);
-            states[0][i] = state.getCount();
-            stateIds[i] = state.getId();
+            states[0][i] = statesList.get(i).getCount();
         }
         mStates = states;
-        mStateIds = stateIds;
-        if (task.isHigherAccuracy()) {
-            int maxDelay = 0;
-            for (Transition transition : task.getTransitions()) {
-                maxDelay = Math.max(maxDelay, transition.getSourceDelay());
-                maxDelay = Math.max(maxDelay, transition.getOperandDelay());
-            }
-            BigDecimal[][] statesBig = new BigDecimal[maxDelay + 2][statesCount];
+        mDelayedStates = new double[mPlan.getMaxDelay() + 1][];
+        mOutputStates = new double[statesCount];
+        mSteadyStates = task.getSteadyStateEpsilon() > 0 ? new double[statesCount] : null;
+        boolean fixedPoint = task.getAccuracy() == Accuracy.FIXED_POINT && mPlan.isLinear();
+        boolean higherAccuracy = task.isHigherAccuracy() || task.getAccuracy() == Accuracy.FIXED_POINT && !fixedPoint;
+        if (higherAccuracy || fixedPoint) {
+            mMathContext = new MathContext(task.getPrecision() +
+                    guardDigits(task.getStepsCount(), task.getTransitions().size()), RoundingMode.HALF_EVEN);
+        } else {
+            mMathContext = null;
+        }
+        mFixedPoint = fixedPoint ? new FixedPointEngine(mPlan, statesList, mMathContext) : null;
+        mTerms = new double[mPlan.getTermsCount()];
+        mTermsBig = higherAccuracy ? new BigDecimal[mPlan.getTermsCount()] : null;
+        if (higherAccuracy) {
+            BigDecimal[][] statesBig = new BigDecimal[mPlan.getMaxDelay() + 2][statesCount];
             for (int i = 0; i < statesCount; i++) {
                 BigDecimal value = decimalValue(statesList.get(i).getCount());
                 statesBig[0][i] = value;
                 statesBig[1][i] = value;
             }
             mStatesBig = statesBig;
+            mConstants = new HigherAccuracyConstants(mPlan, mMathContext);
         } else {
             mStatesBig = null;
+            mConstants = null;
         }
         if (task.isParallel()) {
-            mExecutor = Utils.newExecutor(threadFactory);
+            mWorkersCount = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), mPlan.getSize()));
+            mDeltas = new double[mWorkersCount][statesCount];
+        } else {
+            mWorkersCount = 1;
+            mDeltas = null;
+        }
+        mDeltasBig = higherAccuracy ? new BigDecimal[mWorkersCount][statesCount] : null;
+        if (task.getAccuracy() == Accuracy.NORMAL && task.isStepCompilation() && !task.isParallel() &&
+                !task.isCompensatedSummation() && !task.isProfiling()) {
+            mCompiledStep = StepCompiler.compile(mPlan);
+        } else {
+            mCompiledStep = null;
+        }
+        if (task.getAccuracy() == Accuracy.NORMAL && task.isLinearBatching() && !task.isProfiling() &&
+                mCompiledStep == null) {
+            mLinearBatches = buildLinearBatches(mPlan, mWorkersCount);
+            mLinearValues = mLinearBatches != null ? new double[mPlan.getSize()] : null;
+        } else {
+            mLinearBatches = null;
+            mLinearValues = null;
+        }
+        if (task.getAccuracy() == Accuracy.NORMAL && task.isCompensatedSummation()) {
+            mCompensations = new double[mStates.length][statesCount];
+            mDeltaCompensations = task.isParallel() ? new double[mWorkersCount][statesCount] : null;
+        } else {
+            mCompensations = null;
+            mDeltaCompensations = null;
+        }
+        if (task.getAccuracy() == Accuracy.NORMAL && task.getErrorEstimationInterval() > 0) {
+            mErrorEstimate = new ErrorEstimate(statesCount, task.getErrorEstimationInterval());
+            mShadowStates = new double[mStates.length][statesCount];
+            System.arraycopy(mStates[0], 0, mShadowStates[0], 0, statesCount);
+            mShadowStatesLow = new double[mStates.length][statesCount];
+            mShadowDelayedStates = new double[mDelayedStates.length][];
+            mShadowDelayedStatesLow = new double[mDelayedStates.length][];
+            mShadowTotalCount = new DoubleDouble();
+            mShadowValue = new DoubleDouble();
+            mShadowRegister = new DoubleDouble();
+        } else {
+            mErrorEstimate = null;
+            mShadowStates = null;
+            mShadowStatesLow = null;
+            mShadowDelayedStates = null;
+            mShadowDelayedStatesLow = null;
+            mShadowTotalCount = null;
+            mShadowValue = null;
+            mShadowRegister = null;
+        }
+        if (task.getAccuracy() == Accuracy.EXTENDED) {
+            mStatesLow = new double[mStates.length][statesCount];
+            mDelayedStatesLow = new double[mDelayedStates.length][];
+            mDeltasLow = task.isParallel() ? new double[mWorkersCount][statesCount] : null;
+            mValueRegisters = new DoubleDouble[mWorkersCount];
+            mWorkRegisters = new DoubleDouble[mWorkersCount];
+            for (int worker = 0; worker < mWorkersCount; worker++) {
+                mValueRegisters[worker] = new DoubleDouble();
+                mWorkRegisters[worker] = new DoubleDouble();
+            }
+            mTotalCountExtended = new DoubleDouble();
         } else {
-            mExecutor = null;
+            mStatesLow = null;
+            mDelayedStatesLow = null;
+            mDeltasLow = null;
+            mValueRegisters = null;
+            mWorkRegisters = null;
+            mTotalCountExtended = null;
         }
     }
 
+    /**
+     * Состояния на заданном шаге; доступны только шаги в пределах максимальной задержки от текущего
+     *
+     * @param step номер шага
+     * @return состояния
+     */
+    private double[] getStates(int step) {
+        return mStates[step % mStates.length];
+    }
+
     private double getTotalCount(int step) {
+        double[] states = getStates(step);
+        if (mCompensations != null) {
+            return getTotalCountCompensated(states, getCompensations(step));
+        }
         double totalCount = 0;
         for (int state = 0; state < mStatesCount; state++) {
-            totalCount += mStates[step][state];
+            totalCount += states[state];
         }
         return totalCount;
     }
 
+    /**
+     * Общее количество автоматов, просуммированное по алгоритму Ноймайера с учётом компенсаций состояний
+     *
+     * @param states        состояния
+     * @param compensations компенсации погрешностей округления состояний
+     * @return общее количество автоматов
+     */
+    private double getTotalCountCompensated(double[] states, double[] compensations) {
+        double totalCount = 0;
+        double compensation = 0;
+        for (int state = 0; state < mStatesCount; state++) {
+            double value = states[state];
+            double sum = totalCount + value;
+            if (Math.abs(totalCount) >= Math.abs(value)) {
+                compensation += (totalCount - sum) + value;
+            } else {
+                compensation += (value - sum) + totalCount;
+            }
+            totalCount = sum;
+            compensation += compensations[state];
+        }
+        return totalCount + compensation;
+    }
+
     private void copyPreviousStep(int step) {
-        System.arraycopy(mStates[step - 1], 0, mStates[step], 0, mStatesCount);
+        System.arraycopy(getStates(step - 1), 0, getStates(step), 0, mStatesCount);
+        if (mCompensations != null) {
+            System.arraycopy(getCompensations(step - 1), 0, getCompensations(step), 0, mStatesCount);
+        }
     }
 
-    private BigDecimal getTotalCountBig(int step, int currentStep) {
-        BigDecimal totalCount = BigDecimal.ZERO;
+    /**
+     * Компенсации погрешностей округления состояний на заданном шаге
+     *
+     * @param step номер шага
+     * @return компенсации
+     */
+    private double[] getCompensations(int step) {
+        return mCompensations[step % mCompensations.length];
+    }
+
+    /**
+     * Перенос накопленных компенсаций в состояния; в компенсациях остаются только погрешности
+     * округления полученных сумм, которые переходят на следующий шаг
+     *
+     * @param step номер шага
+     */
+    private void applyCompensations(int step) {
+        double[] states = getStates(step);
+        double[] compensations = getCompensations(step);
         for (int state = 0; state < mStatesCount; state++) {
-            totalCount = totalCount.add(mStatesBig[currentStep - step][state]);
+            double value = states[state];
+            double compensation = compensations[state];
+            double sum = value + compensation;
+            states[state] = sum;
+            compensations[state] = compensation - (sum - value);
         }
-        return totalCount;
     }
 
-    private void copyPreviousStepBig(int step, int currentStep) {
-        int index = currentStep - step;
-        if (index == 0) {
-            for (int i = mStatesBig.length - 1; i >= 1; i--) {
-                System.arraycopy(mStatesBig[i - 1], 0, mStatesBig[i], 0, mStatesBig[i].length);
-            }
+    /**
+     * Подготовка состояний с задержками для вычисления переходов шага
+     *
+     * @param step номер шага
+     */
+    private void prepareDelayedStates(int step) {
+        for (int delay = 0; delay < mDelayedStates.length; delay++) {
+            mDelayedStates[delay] = getStates(delay(step - 1, delay));
         }
-        for (int state = 0; state < mStatesCount; state++) {
-            BigDecimal value = mStatesBig[index + 1][state];
-            mStatesBig[index][state] = value;
-            mStates[step][state] = doubleValue(value);
+        if (mDelayedStatesLow != null) {
+            for (int delay = 0; delay < mDelayedStatesLow.length; delay++) {
+                mDelayedStatesLow[delay] = mStatesLow[delay(step - 1, delay) % mStatesLow.length];
+            }
         }
     }
 
     /**
-     * Значение состояния в шаге
+     * Передача завершённого шага получателю; отрицательные значения заменяются нулями,
+     * если они не разрешены в задаче
      *
-     * @param step  номер шага
-     * @param state идентификатор состояния
-     * @return значение состояния
+     * @param step номер шага
      */
-    private double getState(int step, int state) {
-        mStatesLock.lock();
-        try {
-            return mStates[step][state];
-        } finally {
-            mStatesLock.unlock();
+    private void publishStep(int step) {
+        double[] states = getStates(step);
+        double[] output = mOutputStates;
+        if (mTask.isAllowNegative()) {
+            System.arraycopy(states, 0, output, 0, mStatesCount);
+        } else {
+            for (int state = 0; state < mStatesCount; state++) {
+                double value = states[state];
+                output[state] = value < 0 ? 0 : value;
+            }
+        }
+        mSink.onStep(step, output);
+        if (mSteadyStates != null) {
+            trackSteadyState(step);
         }
     }
 
-    private BigDecimal getStateBig(int step, int currentStep, int state) {
-        mStatesLock.lock();
-        try {
-            return mStatesBig[currentStep - step][state];
-        } finally {
-            mStatesLock.unlock();
+    /**
+     * Сравнение переданных состояний шага с состояниями прошлого шага: шаг считается установившимся,
+     * если относительное изменение каждого из состояний не превышает заданного в задаче; изменение
+     * относится к наибольшему из значений состояния на двух шагах и из наибольшего состояния шага
+     *
+     * @param step номер шага
+     */
+    private void trackSteadyState(int step) {
+        double[] output = mOutputStates;
+        double[] previous = mSteadyStates;
+        if (step > 0) {
+            double epsilon = mTask.getSteadyStateEpsilon();
+            double scale = 0;
+            for (int state = 0; state < mStatesCount; state++) {
+                scale = Math.max(scale, Math.abs(output[state]));
+            }
+            boolean steady = true;
+            for (int state = 0; state < mStatesCount; state++) {
+                double value = output[state];
+                double previousValue = previous[state];
+                if (!(Math.abs(value - previousValue) <=
+                        epsilon * Math.max(scale, Math.max(Math.abs(value), Math.abs(previousValue))))) {
+                    steady = false;
+                    break;
+                }
+            }
+            mSteadySteps = steady ? mSteadySteps + 1 : 0;
         }
+        System.arraycopy(output, 0, previous, 0, mStatesCount);
+    }
+
+    /**
+     * @return установившееся состояние достигнуто: заданное в задаче количество шагов подряд
+     * состояния не изменялись существенно
+     */
+    private boolean isSteadyState() {
+        return mSteadyStates != null && mSteadySteps >= mTask.getSteadyStateWindow();
     }
 
     /**
-     * Увеличение значения заданного состояния на заданном шаге на заданное значение
+     * Завершение вычислений по достижении установившегося состояния: получатель уведомляется о шаге остановки,
+     * оставшиеся шаги, если их нужно заполнить и получатель не делает этого сам,
+     * передаются с установившимися состояниями
      *
-     * @param step  номер шага
-     * @param state идентификатор состояния
-     * @param value значение
+     * @param step номер шага остановки
      */
-    private void incrementState(int step, int state, double value) {
-        mStatesLock.lock();
-        try {
-            mStates[step][state] += value;
-        } finally {
-            mStatesLock.unlock();
+    private void completeSteadyState(int step) {
+        int stepsCount = mTask.getStepsCount();
+        boolean fill = mTask.isSteadyStateFill();
+        if (!mSink.onSteadyState(step, mOutputStates, fill) && fill) {
+            for (int remaining = step + 1; remaining < stepsCount; remaining++) {
+                mSink.onStep(remaining, mOutputStates);
+            }
         }
+        callbackProgress(stepsCount - 1);
     }
 
-    private void incrementStateBig(int step, int currentStep, int state, BigDecimal value) {
-        mStatesLock.lock();
-        try {
-            int index = currentStep - step;
-            BigDecimal result = mStatesBig[index][state].add(value);
-            mStatesBig[index][state] = result;
-            mStates[step][state] = doubleValue(result);
-        } finally {
-            mStatesLock.unlock();
+    /**
+     * Сложение изменений состояний, накопленных исполнителями, в порядке исполнителей
+     *
+     * @param step номер шага
+     */
+    private void reduceDeltas(int step) {
+        double[] states = getStates(step);
+        if (mCompensations != null) {
+            double[] compensations = getCompensations(step);
+            for (int worker = 0; worker < mWorkersCount; worker++) {
+                double[] delta = mDeltas[worker];
+                double[] deltaCompensations = mDeltaCompensations[worker];
+                for (int state = 0; state < mStatesCount; state++) {
+                    TransitionPlan.addCompensated(state, delta[state], states, compensations);
+                    compensations[state] += deltaCompensations[state];
+                }
+            }
+            return;
+        }
+        for (double[] delta : mDeltas) {
+            for (int state = 0; state < mStatesCount; state++) {
+                states[state] += delta[state];
+            }
         }
     }
 
     /**
-     * Уменьшение значения заданного состояния на заданном шаге на заданное значение
+     * Младшие части состояний на заданном шаге (для режима расширенной точности)
      *
-     * @param step  номер шага
-     * @param state идентификатор состояния
-     * @param value значение
+     * @param step номер шага
+     * @return младшие части состояний
      */
-    private void decrementState(int step, int state, double value) {
-        incrementState(step, state, -value);
+    private double[] getStatesLow(int step) {
+        return mStatesLow[step % mStatesLow.length];
+    }
+
+    private void copyPreviousStepExtended(int step) {
+        copyPreviousStep(step);
+        System.arraycopy(getStatesLow(step - 1), 0, getStatesLow(step), 0, mStatesCount);
+    }
+
+    private DoubleDouble getTotalCountExtended(int step) {
+        double[] high = getStates(step);
+        double[] low = getStatesLow(step);
+        DoubleDouble totalCount = mTotalCountExtended.set(0, 0);
+        for (int state = 0; state < mStatesCount; state++) {
+            totalCount.add(high[state], low[state]);
+        }
+        return totalCount;
     }
 
-    private void decrementStateBig(int step, int currentStep, int state, BigDecimal value) {
-        mStatesLock.lock();
-        try {
-            int index = currentStep - step;
-            BigDecimal result = mStatesBig[index][state].subtract(value);
-            mStatesBig[index][state] = result;
-            mStates[step][state] = doubleValue(result);
-        } finally {
-            mStatesLock.unlock();
+    /**
+     * Сложение изменений состояний, накопленных исполнителями, в порядке исполнителей
+     * (режим расширенной точности)
+     *
+     * @param step номер шага
+     */
+    private void reduceDeltasExtended(int step) {
+        double[] high = getStates(step);
+        double[] low = getStatesLow(step);
+        DoubleDouble register = mWorkRegisters[0];
+        for (int worker = 0; worker < mWorkersCount; worker++) {
+            double[] deltaHigh = mDeltas[worker];
+            double[] deltaLow = mDeltasLow[worker];
+            for (int state = 0; state < mStatesCount; state++) {
+                register.set(high[state], low[state]).add(deltaHigh[state], deltaLow[state]);
+                high[state] = register.getHigh();
+                low[state] = register.getLow();
+            }
         }
     }
 
     /**
-     * Поиск позиции состояния по идентификатору
+     * Шаг проверочной траектории: с расширенной точностью вычисляется тот же шаг по состояниям
+     * проверочной траектории (а не по состояниям, вычисленным с обычной точностью), поэтому
+     * расхождение траекторий накапливается так же, как при вычислении всей задачи с расширенной точностью.
+     * На проверяемых шагах расхождение учитывается в оценке погрешности; после переполнения
+     * одной из траекторий проверка прекращается
      *
-     * @param id идентификатор состояния
-     * @return позиция состояния
+     * @param step номер шага
      */
-    private int findState(int id) {
-        if (id == State.EXTERNAL) {
-            return State.EXTERNAL;
+    private void estimateError(int step) {
+        ErrorEstimate errorEstimate = mErrorEstimate;
+        if (errorEstimate.isOverflow()) {
+            return;
+        }
+        double[][] shadowStates = mShadowStates;
+        double[][] shadowStatesLow = mShadowStatesLow;
+        double[] high = shadowStates[step % shadowStates.length];
+        double[] low = shadowStatesLow[step % shadowStatesLow.length];
+        System.arraycopy(shadowStates[(step - 1) % shadowStates.length], 0, high, 0, mStatesCount);
+        System.arraycopy(shadowStatesLow[(step - 1) % shadowStatesLow.length], 0, low, 0, mStatesCount);
+        for (int delay = 0; delay < mShadowDelayedStates.length; delay++) {
+            int delayed = delay(step - 1, delay) % shadowStates.length;
+            mShadowDelayedStates[delay] = shadowStates[delayed];
+            mShadowDelayedStatesLow[delay] = shadowStatesLow[delayed];
+        }
+        DoubleDouble totalCount = mShadowTotalCount.set(0, 0);
+        for (int state = 0; state < mStatesCount; state++) {
+            totalCount.add(high[state], low[state]);
+        }
+        DoubleDouble value = mShadowValue;
+        DoubleDouble register = mShadowRegister;
+        TransitionPlan plan = mPlan;
+        for (int transition = 0; transition < plan.getSize(); transition++) {
+            int sourceDelay = plan.mSourceDelays[transition];
+            int operandDelay = plan.mOperandDelays[transition];
+            plan.evaluateExtended(transition, mShadowDelayedStates[sourceDelay], mShadowDelayedStatesLow[sourceDelay],
+                    mShadowDelayedStates[operandDelay], mShadowDelayedStatesLow[operandDelay], totalCount, value,
+                    register);
+            plan.applyExtended(transition, value, high, low, register);
+        }
+        double[] states = getStates(step);
+        for (int state = 0; state < mStatesCount; state++) {
+            if (!Double.isFinite(states[state]) || !Double.isFinite(high[state] + low[state])) {
+                errorEstimate.setOverflow(step, state);
+                return;
+            }
+        }
+        if (step % errorEstimate.getInterval() == 0) {
+            errorEstimate.addSample(states, high, low);
+        }
+    }
+
+    private BigDecimal getTotalCountBig(int step, int currentStep) {
+        BigDecimal totalCount = BigDecimal.ZERO;
+        for (int state = 0; state < mStatesCount; state++) {
+            totalCount = totalCount.add(mStatesBig[currentStep - step][state]);
+        }
+        return totalCount;
+    }
+
+    private void copyPreviousStepBig(int step, int currentStep) {
+        int index = currentStep - step;
+        double[] states = getStates(step);
+        if (index == 0) {
+            for (int i = mStatesBig.length - 1; i >= 1; i--) {
+                System.arraycopy(mStatesBig[i - 1], 0, mStatesBig[i], 0, mStatesBig[i].length);
+            }
+        }
+        for (int state = 0; state < mStatesCount; state++) {
+            BigDecimal value = mStatesBig[index + 1][state];
+            mStatesBig[index][state] = value;
+            states[state] = doubleValue(value);
         }
-        for (int i = 0; i < mStateIds.length; i++) {
-            if (mStateIds[i] == id) {
-                return i;
+    }
+
+    /**
+     * Состояние прошлого шага; состояния прошлых шагов не изменяются во время вычисления шага,
+     * поэтому читаются исполнителями без синхронизации
+     */
+    private BigDecimal getStateBig(int step, int currentStep, int state) {
+        return mStatesBig[currentStep - step][state];
+    }
+
+    /**
+     * Точное (без округления) прибавление изменения состояния к сумме изменений исполнителя
+     *
+     * @param delta суммы изменений состояний исполнителя
+     * @param state позиция состояния
+     * @param value изменение
+     */
+    private static void addDeltaBig(BigDecimal[] delta, int state, BigDecimal value) {
+        BigDecimal sum = delta[state];
+        delta[state] = sum == null ? value : sum.add(value);
+    }
+
+    /**
+     * Сложение изменений состояний, накопленных исполнителями, в порядке исполнителей.
+     * Суммы изменений точные, поэтому результат не зависит от распределения переходов между
+     * исполнителями; каждое состояние округляется один раз за шаг, тогда же обновляется его значение в double
+     *
+     * @param step номер шага
+     */
+    private void reduceDeltasBig(int step) {
+        BigDecimal[] statesBig = mStatesBig[0];
+        double[] states = getStates(step);
+        for (int state = 0; state < mStatesCount; state++) {
+            BigDecimal sum = statesBig[state];
+            boolean changed = false;
+            for (BigDecimal[] delta : mDeltasBig) {
+                BigDecimal value = delta[state];
+                if (value != null) {
+                    sum = sum.add(value);
+                    delta[state] = null;
+                    changed = true;
+                }
+            }
+            if (changed) {
+                sum = sum.round(mMathContext);
+                statesBig[state] = sum;
+                states[state] = doubleValue(sum);
             }
         }
-        return -1;
     }
 
     private void clearBigStates() {
@@ -287,204 +626,370 @@ public class Calculator {
         }
     }
 
+    /**
+     * @return время начала шага, если профилирование включено, иначе 0
+     */
+    private long startProfiling() {
+        return mStats == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Учёт времени фазы шага, если профилирование включено
+     *
+     * @param phase фаза, {@link CalculatorStats}
+     * @param start время начала фазы
+     * @return время окончания фазы
+     */
+    private long profilePhase(int phase, long start) {
+        CalculatorStats stats = mStats;
+        return stats == null ? 0 : stats.addPhaseTime(phase, start);
+    }
+
+    /**
+     * Учёт длительности шага, если профилирование включено
+     *
+     * @param start время начала шага
+     * @param end   время окончания шага
+     */
+    private void profileStep(long start, long end) {
+        CalculatorStats stats = mStats;
+        if (stats != null) {
+            stats.addStepTime(end - start);
+        }
+    }
+
+    /**
+     * Вычисление переходов с обычной точностью
+     *
+     * @param from          позиция первого перехода в плане
+     * @param to            позиция, следующая за последним переходом
+     * @param totalCount    общее количество автоматов на прошлом шаге
+     * @param target        изменяемые состояния
+     * @param compensations компенсации изменяемых состояний или {@code null},
+     *                      если компенсированное суммирование не используется
+     * @param worker        номер исполнителя
+     */
+    private void applyTransitions(int from, int to, double totalCount, double[] target, double[] compensations,
+            int worker) {
+        TransitionPlan plan = mPlan;
+        CalculatorStats stats = mStats;
+        LinearBatch batch = mLinearBatches != null ? mLinearBatches[worker] : null;
+        if (batch != null) {
+            batch.evaluate(mDelayedStates, mLinearValues);
+        }
+        if (compensations != null) {
+            for (int transition = from; transition < to; transition++) {
+                long start = stats == null ? 0 : System.nanoTime();
+                plan.applyCompensated(transition, evaluateTransition(totalCount, transition, batch), target,
+                        compensations);
+                if (stats != null) {
+                    stats.addTransitionTime(plan.mTransitionIndexes[transition], System.nanoTime() - start);
+                }
+            }
+        } else if (stats == null) {
+            for (int transition = from; transition < to; transition++) {
+                plan.apply(transition, evaluateTransition(totalCount, transition, batch), target);
+            }
+        } else {
+            for (int transition = from; transition < to; transition++) {
+                long start = System.nanoTime();
+                plan.apply(transition, evaluateTransition(totalCount, transition), target);
+                stats.addTransitionTime(plan.mTransitionIndexes[transition], System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Вычисление переходов с расширенной точностью
+     *
+     * @param from       позиция первого перехода в плане
+     * @param to         позиция, следующая за последним переходом
+     * @param totalCount общее количество автоматов на прошлом шаге
+     * @param high       старшие части изменяемых состояний
+     * @param low        младшие части изменяемых состояний
+     * @param worker     номер исполнителя
+     */
+    private void applyTransitionsExtended(int from, int to, DoubleDouble totalCount, double[] high, double[] low,
+            int worker) {
+        TransitionPlan plan = mPlan;
+        CalculatorStats stats = mStats;
+        DoubleDouble value = mValueRegisters[worker];
+        DoubleDouble register = mWorkRegisters[worker];
+        for (int transition = from; transition < to; transition++) {
+            long start = stats == null ? 0 : System.nanoTime();
+            int sourceDelay = plan.mSourceDelays[transition];
+            int operandDelay = plan.mOperandDelays[transition];
+            plan.evaluateExtended(transition, mDelayedStates[sourceDelay], mDelayedStatesLow[sourceDelay],
+                    mDelayedStates[operandDelay], mDelayedStatesLow[operandDelay], totalCount, value, register);
+            plan.applyExtended(transition, value, high, low, register);
+            if (stats != null) {
+                stats.addTransitionTime(plan.mTransitionIndexes[transition], System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Вычисление переходов с повышенной точностью
+     *
+     * @param step       номер шага
+     * @param totalCount общее количество автоматов на прошлом шаге
+     * @param from       позиция первого перехода в плане
+     * @param to         позиция, следующая за последним переходом
+     * @param worker     номер исполнителя
+     */
+    private void transitionsHigherAccuracy(int step, BigDecimal totalCount, int from, int to, int worker) {
+        CalculatorStats stats = mStats;
+        BigDecimal[] delta = mDeltasBig[worker];
+        if (stats == null) {
+            for (int transition = from; transition < to; transition++) {
+                transitionHigherAccuracy(step, totalCount, transition, delta);
+            }
+        } else {
+            for (int transition = from; transition < to; transition++) {
+                long start = System.nanoTime();
+                transitionHigherAccuracy(step, totalCount, transition, delta);
+                stats.addTransitionTime(mPlan.mTransitionIndexes[transition], System.nanoTime() - start);
+            }
+        }
+    }
+
     /**
      * Вычисление с обычной точностью
      */
-    private Result calculateNormalAccuracy() {
+    private void calculateNormalAccuracy() {
         callbackProgress(0);
-        List<Transition> transitions = mTask.getTransitions();
+        publishStep(0);
+        int transitionsCount = mPlan.getSize();
         int stepsCount = mTask.getStepsCount();
         if (mTask.isParallel()) {
-            List<Future<?>> futures = new ArrayList<>(transitions.size());
-            for (int step = 1; step < stepsCount; step++) {
-                copyPreviousStep(step);
-                double totalCount = getTotalCount(step);
-                for (Transition transition : transitions) {
-                    futures.add(mExecutor.submit(new TransitionActionNormalAccuracy(step, totalCount, transition)));
-                }
-                for (Future<?> future : futures) {
-                    await(future);
+            WorkerTeam team = new WorkerTeam(mWorkersCount, mThreadFactory);
+            try {
+                for (int step = 1; step < stepsCount; step++) {
+                    long stepStart = startProfiling();
+                    copyPreviousStep(step);
+                    prepareDelayedStates(step);
+                    long time = profilePhase(CalculatorStats.PHASE_COPY, stepStart);
+                    double totalCount = getTotalCount(step);
+                    time = profilePhase(CalculatorStats.PHASE_TOTAL_COUNT, time);
+                    mPlan.prepareTerms(mDelayedStates, totalCount, mTerms);
+                    team.execute(new TransitionActionNormalAccuracy(totalCount));
+                    time = profilePhase(CalculatorStats.PHASE_TRANSITIONS, time);
+                    reduceDeltas(step);
+                    if (mCompensations != null) {
+                        applyCompensations(step);
+                    }
+                    if (mErrorEstimate != null) {
+                        estimateError(step);
+                    }
+                    time = profilePhase(CalculatorStats.PHASE_REDUCE, time);
+                    publishStep(step);
+                    time = profilePhase(CalculatorStats.PHASE_PUBLISH, time);
+                    callbackProgress(step);
+                    profileStep(stepStart, profilePhase(CalculatorStats.PHASE_PROGRESS, time));
+                    if (isSteadyState()) {
+                        completeSteadyState(step);
+                        break;
+                    }
                 }
-                futures.clear();
-                callbackProgress(step);
+            } finally {
+                team.shutdown();
             }
         } else {
             for (int step = 1; step < stepsCount; step++) {
+                long stepStart = startProfiling();
                 copyPreviousStep(step);
+                prepareDelayedStates(step);
+                long time = profilePhase(CalculatorStats.PHASE_COPY, stepStart);
                 double totalCount = getTotalCount(step);
-                for (Transition transition : transitions) {
-                    transitionNormalAccuracy(step, totalCount, transition);
+                time = profilePhase(CalculatorStats.PHASE_TOTAL_COUNT, time);
+                mPlan.prepareTerms(mDelayedStates, totalCount, mTerms);
+                if (mCompensations != null) {
+                    applyTransitions(0, transitionsCount, totalCount, getStates(step), getCompensations(step), 0);
+                    applyCompensations(step);
+                } else if (mCompiledStep != null) {
+                    mCompiledStep.step(mDelayedStates, getStates(step), totalCount, mTerms);
+                } else {
+                    applyTransitions(0, transitionsCount, totalCount, getStates(step), null, 0);
+                }
+                if (mErrorEstimate != null) {
+                    estimateError(step);
                 }
+                time = profilePhase(CalculatorStats.PHASE_TRANSITIONS, time);
+                publishStep(step);
+                time = profilePhase(CalculatorStats.PHASE_PUBLISH, time);
                 callbackProgress(step);
+                profileStep(stepStart, profilePhase(CalculatorStats.PHASE_PROGRESS, time));
+                if (isSteadyState()) {
+                    completeSteadyState(step);
+                    break;
+                }
             }
         }
-        return new Result(mTask.getStartPoint(), mStates, mTask.getStates(), mPrepareResultsTableData,
-                mPrepareResultsChartData, !mTask.isAllowNegative());
     }
 
     /**
-     * Вычисление с повышенной точностью
+     * Вычисление с расширенной точностью
      */
-    private Result calculateHigherAccuracy() {
+    private void calculateExtendedAccuracy() {
         callbackProgress(0);
-        List<Transition> transitions = mTask.getTransitions();
+        publishStep(0);
+        int transitionsCount = mPlan.getSize();
         int stepsCount = mTask.getStepsCount();
         if (mTask.isParallel()) {
-            List<Future<?>> futures = new ArrayList<>(transitions.size());
-            for (int step = 1; step < stepsCount; step++) {
-                copyPreviousStepBig(step, step);
-                BigDecimal totalCount = getTotalCountBig(step, step);
-                for (Transition transition : transitions) {
-                    futures.add(mExecutor.submit(new TransitionActionHigherAccuracy(step, totalCount, transition)));
-                }
-                for (Future<?> future : futures) {
-                    await(future);
+            WorkerTeam team = new WorkerTeam(mWorkersCount, mThreadFactory);
+            try {
+                for (int step = 1; step < stepsCount; step++) {
+                    long stepStart = startProfiling();
+                    copyPreviousStepExtended(step);
+                    prepareDelayedStates(step);
+                    long time = profilePhase(CalculatorStats.PHASE_COPY, stepStart);
+                    DoubleDouble totalCount = getTotalCountExtended(step);
+                    time = profilePhase(CalculatorStats.PHASE_TOTAL_COUNT, time);
+                    team.execute(new TransitionActionExtendedAccuracy(totalCount));
+                    time = profilePhase(CalculatorStats.PHASE_TRANSITIONS, time);
+                    reduceDeltasExtended(step);
+                    time = profilePhase(CalculatorStats.PHASE_REDUCE, time);
+                    publishStep(step);
+                    time = profilePhase(CalculatorStats.PHASE_PUBLISH, time);
+                    callbackProgress(step);
+                    profileStep(stepStart, profilePhase(CalculatorStats.PHASE_PROGRESS, time));
+                    if (isSteadyState()) {
+                        completeSteadyState(step);
+                        break;
+                    }
                 }
-                futures.clear();
-                callbackProgress(step);
+            } finally {
+                team.shutdown();
             }
         } else {
             for (int step = 1; step < stepsCount; step++) {
-                copyPreviousStepBig(step, step);
-                BigDecimal totalCount = getTotalCountBig(step, step);
-                for (Transition transition : transitions) {
-                    transitionHigherAccuracy(step, totalCount, transition);
-                }
+                long stepStart = startProfiling();
+                copyPreviousStepExtended(step);
+                prepareDelayedStates(step);
+                long time = profilePhase(CalculatorStats.PHASE_COPY, stepStart);
+                DoubleDouble totalCount = getTotalCountExtended(step);
+                time = profilePhase(CalculatorStats.PHASE_TOTAL_COUNT, time);
+                applyTransitionsExtended(0, transitionsCount, totalCount, getStates(step), getStatesLow(step), 0);
+                time = profilePhase(CalculatorStats.PHASE_TRANSITIONS, time);
+                publishStep(step);
+                time = profilePhase(CalculatorStats.PHASE_PUBLISH, time);
                 callbackProgress(step);
+                profileStep(stepStart, profilePhase(CalculatorStats.PHASE_PROGRESS, time));
+                if (isSteadyState()) {
+                    completeSteadyState(step);
+                    break;
+                }
             }
         }
-        clearBigStates();
-        return new Result(mTask.getStartPoint(), mStates, mTask.getStates(), mPrepareResultsTableData,
-                mPrepareResultsChartData, !mTask.isAllowNegative());
     }
 
     /**
-     * Вычисление перехода с обычной точностью
-     *
-     * @param step       номер шага
-     * @param totalCount общее количество автоматов на прошлом шаге
-     * @param transition переход
-     */
-    private void transitionNormalAccuracy(int step, double totalCount, Transition transition) {
-        int sourceState = findState(transition.getSourceState());
-        int operandState = findState(transition.getOperandState());
-        int resultState = findState(transition.getResultState());
-        boolean sourceExternal = isStateExternal(sourceState);
-        boolean operandExternal = isStateExternal(operandState);
-        boolean resultExternal = isStateExternal(resultState);
-        if (sourceExternal && operandExternal) {
-            return;
-        }
-        int sourceIndex = delay(step - 1, transition.getSourceDelay());
-        int operandIndex = delay(step - 1, transition.getOperandDelay());
-        int transitionType = transition.getType();
-        int transitionMode = transition.getMode();
-        double sourceCoefficient = transition.getSourceCoefficient();
-        double operandCoefficient = transition.getOperandCoefficient();
-        double probability = transition.getProbability();
-        double value = 0;
-        if (transitionType == TransitionType.LINEAR) {
-            if (sourceExternal) {
-                double operandDensity =
-                        applyCoefficientLinear(getState(operandIndex, operandState), operandCoefficient);
-                value = operandDensity * probability;
-                if (transitionMode == TransitionMode.RESIDUAL) {
-                    value = operandDensity - value * operandCoefficient;
-                }
-            } else if (operandExternal) {
-                value = applyCoefficientLinear(getState(sourceIndex, sourceState), sourceCoefficient) * probability;
-            } else if (sourceState == operandState) {
-                double density = applyCoefficientLinear(getState(sourceIndex, sourceState),
-                        sourceCoefficient + operandCoefficient - 1);
-                value = applyTransitionCommon(density, density, transition);
-            } else {
-                double sourceDensity = applyCoefficientLinear(getState(sourceIndex, sourceState), sourceCoefficient);
-                double operandDensity =
-                        applyCoefficientLinear(getState(operandIndex, operandState), operandCoefficient);
-                value = applyTransitionCommon(Math.min(sourceDensity, operandDensity), operandDensity, transition);
-            }
-        } else if (transitionType == TransitionType.SOLUTE) {
-            if (totalCount > 0) {
-                if (sourceExternal) {
-                    double operandDensity =
-                            applyCoefficientPower(getState(operandIndex, operandState), operandCoefficient);
-                    value = operandDensity;
-                    if (operandCoefficient > 1) {
-                        value /= Math.pow(totalCount, operandCoefficient - 1);
-                    }
-                    value = applyTransitionCommon(value, operandDensity, transition);
-                } else if (operandExternal) {
-                    value = applyCoefficientPower(getState(sourceIndex, sourceState), sourceCoefficient);
-                    if (sourceCoefficient > 1) {
-                        value /= Math.pow(totalCount, sourceCoefficient - 1);
+     * Вычисление с повышенной точностью
+     */
+    private void calculateHigherAccuracy() {
+        callbackProgress(0);
+        publishStep(0);
+        int transitionsCount = mPlan.getSize();
+        int stepsCount = mTask.getStepsCount();
+        if (mTask.isParallel()) {
+            WorkerTeam team = new WorkerTeam(mWorkersCount, mThreadFactory);
+            try {
+                for (int step = 1; step < stepsCount; step++) {
+                    long stepStart = startProfiling();
+                    copyPreviousStepBig(step, step);
+                    long time = profilePhase(CalculatorStats.PHASE_COPY, stepStart);
+                    BigDecimal totalCount = getTotalCountBig(step, step);
+                    time = profilePhase(CalculatorStats.PHASE_TOTAL_COUNT, time);
+                    prepareTermsBig(step, totalCount);
+                    team.execute(new TransitionActionHigherAccuracy(step, totalCount));
+                    time = profilePhase(CalculatorStats.PHASE_TRANSITIONS, time);
+                    reduceDeltasBig(step);
+                    time = profilePhase(CalculatorStats.PHASE_REDUCE, time);
+                    publishStep(step);
+                    time = profilePhase(CalculatorStats.PHASE_PUBLISH, time);
+                    callbackProgress(step);
+                    profileStep(stepStart, profilePhase(CalculatorStats.PHASE_PROGRESS, time));
+                    if (isSteadyState()) {
+                        completeSteadyState(step);
+                        break;
                     }
-                    value *= probability;
-                } else if (sourceState == operandState) {
-                    double density = applyCoefficientPower(getState(sourceIndex, sourceState),
-                            sourceCoefficient + operandCoefficient);
-                    value = density / Math.pow(totalCount, sourceCoefficient + operandCoefficient - 1);
-                    value = applyTransitionCommon(value, density, transition);
-                } else {
-                    double sourceDensity = applyCoefficientPower(getState(sourceIndex, sourceState), sourceCoefficient);
-                    double operandDensity =
-                            applyCoefficientPower(getState(operandIndex, operandState), operandCoefficient);
-                    value = sourceDensity * operandDensity /
-                            Math.pow(totalCount, sourceCoefficient + operandCoefficient - 1);
-                    value = applyTransitionCommon(value, operandDensity, transition);
                 }
+            } finally {
+                team.shutdown();
             }
-        } else if (transitionType == TransitionType.BLEND) {
-            if (sourceExternal) {
-                double operandCount = getState(operandIndex, operandState);
-                if (operandCount > 0) {
-                    double operandDensity = applyCoefficientPower(operandCount, operandCoefficient);
-                    value = operandDensity;
-                    if (operandCoefficient > 1) {
-                        value /= Math.pow(operandCount, operandCoefficient - 1);
-                    }
-                    value = applyTransitionCommon(value, operandDensity, transition);
-                }
-            } else if (operandExternal) {
-                double sourceCount = getState(sourceIndex, sourceState);
-                if (sourceCount > 0) {
-                    value = applyCoefficientPower(sourceCount, sourceCoefficient);
-                    if (sourceCoefficient > 1) {
-                        value /= Math.pow(sourceCount, sourceCoefficient - 1);
-                    }
-                    value *= probability;
-                }
-            } else if (sourceState == operandState) {
-                double count = getState(sourceIndex, sourceState);
-                if (count > 0) {
-                    double density = applyCoefficientPower(count, sourceCoefficient + operandCoefficient);
-                    value = density / Math.pow(count, sourceCoefficient + operandCoefficient - 1);
-                    value = applyTransitionCommon(value, density, transition);
-                }
-            } else {
-                double sourceCount = getState(sourceIndex, sourceState);
-                double operandCount = getState(operandIndex, operandState);
-                double sum = sourceCount + operandCount;
-                if (sum > 0) {
-                    double sourceDensity = applyCoefficientPower(sourceCount, sourceCoefficient);
-                    double operandDensity = applyCoefficientPower(operandCount, operandCoefficient);
-                    value = sourceDensity * operandDensity / Math.pow(sum, sourceCoefficient + operandCoefficient - 1);
-                    value = applyTransitionCommon(value, operandDensity, transition);
+        } else {
+            for (int step = 1; step < stepsCount; step++) {
+                long stepStart = startProfiling();
+                copyPreviousStepBig(step, step);
+                long time = profilePhase(CalculatorStats.PHASE_COPY, stepStart);
+                BigDecimal totalCount = getTotalCountBig(step, step);
+                time = profilePhase(CalculatorStats.PHASE_TOTAL_COUNT, time);
+                prepareTermsBig(step, totalCount);
+                transitionsHigherAccuracy(step, totalCount, 0, transitionsCount, 0);
+                time = profilePhase(CalculatorStats.PHASE_TRANSITIONS, time);
+                reduceDeltasBig(step);
+                time = profilePhase(CalculatorStats.PHASE_REDUCE, time);
+                publishStep(step);
+                time = profilePhase(CalculatorStats.PHASE_PUBLISH, time);
+                callbackProgress(step);
+                profileStep(stepStart, profilePhase(CalculatorStats.PHASE_PROGRESS, time));
+                if (isSteadyState()) {
+                    completeSteadyState(step);
+                    break;
                 }
             }
         }
-        if (!sourceExternal && transitionMode == TransitionMode.REMOVING) {
-            decrementState(step, sourceState, value * sourceCoefficient);
-        }
-        if (!operandExternal) {
-            if (transitionMode == TransitionMode.INHIBITOR || transitionMode == TransitionMode.RESIDUAL) {
-                decrementState(step, operandState, value);
-            } else if (transitionMode != TransitionMode.RETAINING) {
-                decrementState(step, operandState, value * operandCoefficient);
+        clearBigStates();
+    }
+
+    /**
+     * Вычисление с фиксированной точкой; шаги вычисляются последовательно и в параллельном режиме
+     */
+    private void calculateFixedPoint() {
+        callbackProgress(0);
+        publishStep(0);
+        int stepsCount = mTask.getStepsCount();
+        for (int step = 1; step < stepsCount; step++) {
+            long stepStart = startProfiling();
+            mFixedPoint.calculateStep(step, getStates(step));
+            long time = profilePhase(CalculatorStats.PHASE_TRANSITIONS, stepStart);
+            publishStep(step);
+            time = profilePhase(CalculatorStats.PHASE_PUBLISH, time);
+            callbackProgress(step);
+            profileStep(stepStart, profilePhase(CalculatorStats.PHASE_PROGRESS, time));
+            if (isSteadyState()) {
+                completeSteadyState(step);
+                break;
             }
         }
-        if (!resultExternal) {
-            incrementState(step, resultState, value * transition.getResultCoefficient());
+    }
+
+    /**
+     * Вычисление значения перехода с обычной точностью
+     *
+     * @param totalCount общее количество автоматов на прошлом шаге
+     * @param transition позиция перехода в плане
+     * @return значение перехода
+     */
+    private double evaluateTransition(double totalCount, int transition) {
+        TransitionPlan plan = mPlan;
+        return plan.evaluate(transition, mDelayedStates[plan.mSourceDelays[transition]],
+                mDelayedStates[plan.mOperandDelays[transition]], totalCount, mTerms);
+    }
+
+    /**
+     * Значение перехода с обычной точностью: вычисленное пакетом линейных переходов или поштучно
+     *
+     * @param totalCount общее количество автоматов на прошлом шаге
+     * @param transition позиция перехода в плане
+     * @param batch      пакет линейных переходов исполнителя или {@code null}
+     * @return значение перехода
+     */
+    private double evaluateTransition(double totalCount, int transition, LinearBatch batch) {
+        if (batch != null && batch.isBatched(transition)) {
+            return mLinearValues[transition];
         }
+        return evaluateTransition(totalCount, transition);
     }
 
     /**
@@ -492,146 +997,233 @@ public class Calculator {
      *
      * @param step       номер шага
      * @param totalCount общее количество автоматов на прошлом шаге
-     * @param transition переход
-     */
-    private void transitionHigherAccuracy(int step, BigDecimal totalCount, Transition transition) {
-        int sourceState = findState(transition.getSourceState());
-        int operandState = findState(transition.getOperandState());
-        int resultState = findState(transition.getResultState());
-        boolean sourceExternal = isStateExternal(sourceState);
-        boolean operandExternal = isStateExternal(operandState);
-        boolean resultExternal = isStateExternal(resultState);
-        if (sourceExternal && operandExternal) {
-            return;
-        }
-        int sourceIndex = delay(step - 1, transition.getSourceDelay());
-        int operandIndex = delay(step - 1, transition.getOperandDelay());
-        int transitionType = transition.getType();
-        int transitionMode = transition.getMode();
-        double sourceCoefficient = transition.getSourceCoefficient();
-        double operandCoefficient = transition.getOperandCoefficient();
-        double probability = transition.getProbability();
+     * @param transition позиция перехода в плане
+     * @param delta      суммы изменений состояний исполнителя
+     */
+    private void transitionHigherAccuracy(int step, BigDecimal totalCount, int transition, BigDecimal[] delta) {
+        TransitionPlan plan = mPlan;
+        HigherAccuracyConstants constants = mConstants;
+        int sourceState = plan.mSourceStates[transition];
+        int operandState = plan.mOperandStates[transition];
+        int sourceIndex = delay(step - 1, plan.mSourceDelays[transition]);
+        int operandIndex = delay(step - 1, plan.mOperandDelays[transition]);
+        int transitionMode = plan.mModes[transition];
+        double sourceCoefficient = plan.mSourceCoefficients[transition];
+        double operandCoefficient = plan.mOperandCoefficients[transition];
+        BigDecimal probability = constants.mProbabilities[transition];
+        BigDecimal operandCoefficientBig = constants.mOperandCoefficients[transition];
         BigDecimal value = BigDecimal.ZERO;
-        if (transitionType == TransitionType.LINEAR) {
-            if (sourceExternal) {
-                BigDecimal operandDensity =
-                        applyCoefficientLinear(getStateBig(operandIndex, step, operandState), operandCoefficient);
-                value = multiply(operandDensity, decimalValue(probability));
+        switch (plan.mKernels[transition]) {
+            case TransitionPlan.KERNEL_LINEAR_SOURCE_EXTERNAL: {
+                BigDecimal operandDensity = applyCoefficientLinear(getStateBig(operandIndex, step, operandState),
+                        operandCoefficient, constants.mOperandDivisors[transition]);
+                value = multiply(operandDensity, probability);
                 if (transitionMode == TransitionMode.RESIDUAL) {
-                    value = operandDensity.subtract(multiply(value, decimalValue(operandCoefficient)));
+                    value = operandDensity.subtract(multiply(value, operandCoefficientBig));
                 }
-            } else if (operandExternal) {
-                value = multiply(applyCoefficientLinear(getStateBig(sourceIndex, step, sourceState), sourceCoefficient),
-                        decimalValue(probability));
-            } else if (sourceState == operandState) {
+                break;
+            }
+            case TransitionPlan.KERNEL_LINEAR_OPERAND_EXTERNAL: {
+                value = multiply(applyCoefficientLinear(getStateBig(sourceIndex, step, sourceState),
+                        sourceCoefficient, constants.mSourceDivisors[transition]), probability);
+                break;
+            }
+            case TransitionPlan.KERNEL_LINEAR_SAME_STATE: {
                 BigDecimal density = applyCoefficientLinear(getStateBig(sourceIndex, step, sourceState),
-                        sourceCoefficient + operandCoefficient - 1);
-                value = applyTransitionCommon(density, density, transition);
-            } else {
-                BigDecimal sourceDensity =
-                        applyCoefficientLinear(getStateBig(sourceIndex, step, sourceState), sourceCoefficient);
-                BigDecimal operandDensity =
-                        applyCoefficientLinear(getStateBig(operandIndex, step, operandState), operandCoefficient);
-                value = applyTransitionCommon(sourceDensity.min(operandDensity), operandDensity, transition);
+                        sourceCoefficient + operandCoefficient - 1, constants.mCombinedDivisors[transition]);
+                value = applyTransitionCommon(density, density, transitionMode, probability, operandCoefficientBig);
+                break;
+            }
+            case TransitionPlan.KERNEL_LINEAR: {
+                BigDecimal sourceDensity = applyCoefficientLinear(getStateBig(sourceIndex, step, sourceState),
+                        sourceCoefficient, constants.mSourceDivisors[transition]);
+                BigDecimal operandDensity = applyCoefficientLinear(getStateBig(operandIndex, step, operandState),
+                        operandCoefficient, constants.mOperandDivisors[transition]);
+                value = applyTransitionCommon(sourceDensity.min(operandDensity), operandDensity, transitionMode,
+                        probability, operandCoefficientBig);
+                break;
             }
-        } else if (transitionType == TransitionType.SOLUTE) {
-            if (totalCount.compareTo(BigDecimal.ZERO) > 0) {
-                if (sourceExternal) {
-                    BigDecimal operandDensity =
-                            applyCoefficientPower(getStateBig(operandIndex, step, operandState), operandCoefficient);
+            case TransitionPlan.KERNEL_SOLUTE_SOURCE_EXTERNAL: {
+                if (totalCount.compareTo(BigDecimal.ZERO) > 0) {
+                    BigDecimal operandDensity = densityBig(plan.mOperandTerms[transition],
+                            getStateBig(operandIndex, step, operandState), operandCoefficient,
+                            constants.mOperandPowers[transition], constants.mOperandFactorials[transition]);
                     value = operandDensity;
                     if (operandCoefficient > 1) {
-                        value = divide(value, power(totalCount, operandCoefficient - 1));
+                        value = divide(value, powerBig(plan.mDivisorTerms[transition], totalCount,
+                                constants.mOperandRatioPowers[transition]));
                     }
-                    value = applyTransitionCommon(value, operandDensity, transition);
-                } else if (operandExternal) {
-                    value = applyCoefficientPower(getStateBig(sourceIndex, step, sourceState), sourceCoefficient);
+                    value = applyTransitionCommon(value, operandDensity, transitionMode, probability,
+                            operandCoefficientBig);
+                }
+                break;
+            }
+            case TransitionPlan.KERNEL_SOLUTE_OPERAND_EXTERNAL: {
+                if (totalCount.compareTo(BigDecimal.ZERO) > 0) {
+                    value = densityBig(plan.mSourceTerms[transition], getStateBig(sourceIndex, step, sourceState),
+                            sourceCoefficient, constants.mSourcePowers[transition],
+                            constants.mSourceFactorials[transition]);
                     if (sourceCoefficient > 1) {
-                        value = divide(value, power(totalCount, sourceCoefficient - 1));
+                        value = divide(value, powerBig(plan.mDivisorTerms[transition], totalCount,
+                                constants.mSourceRatioPowers[transition]));
                     }
-                    value = multiply(value, decimalValue(probability));
-                } else if (sourceState == operandState) {
-                    BigDecimal density = applyCoefficientPower(getStateBig(sourceIndex, step, sourceState),
-                            sourceCoefficient + operandCoefficient);
-                    value = divide(density, power(totalCount, sourceCoefficient + operandCoefficient - 1));
-                    value = applyTransitionCommon(value, density, transition);
-                } else {
-                    BigDecimal sourceDensity =
-                            applyCoefficientPower(getStateBig(sourceIndex, step, sourceState), sourceCoefficient);
-                    BigDecimal operandDensity =
-                            applyCoefficientPower(getStateBig(operandIndex, step, operandState), operandCoefficient);
-                    value = divide(multiply(sourceDensity, operandDensity),
-                            power(totalCount, sourceCoefficient + operandCoefficient - 1));
-                    value = applyTransitionCommon(value, operandDensity, transition);
+                    value = multiply(value, probability);
+                }
+                break;
+            }
+            case TransitionPlan.KERNEL_SOLUTE_SAME_STATE: {
+                if (totalCount.compareTo(BigDecimal.ZERO) > 0) {
+                    BigDecimal density = densityBig(plan.mSourceTerms[transition],
+                            getStateBig(sourceIndex, step, sourceState), sourceCoefficient + operandCoefficient,
+                            constants.mCombinedPowers[transition], constants.mCombinedFactorials[transition]);
+                    value = divide(density, powerBig(plan.mDivisorTerms[transition], totalCount,
+                            constants.mCombinedRatioPowers[transition]));
+                    value = applyTransitionCommon(value, density, transitionMode, probability, operandCoefficientBig);
                 }
+                break;
+            }
+            case TransitionPlan.KERNEL_SOLUTE: {
+                if (totalCount.compareTo(BigDecimal.ZERO) > 0) {
+                    BigDecimal sourceDensity = densityBig(plan.mSourceTerms[transition],
+                            getStateBig(sourceIndex, step, sourceState), sourceCoefficient,
+                            constants.mSourcePowers[transition], constants.mSourceFactorials[transition]);
+                    BigDecimal operandDensity = densityBig(plan.mOperandTerms[transition],
+                            getStateBig(operandIndex, step, operandState), operandCoefficient,
+                            constants.mOperandPowers[transition], constants.mOperandFactorials[transition]);
+                    value = divide(multiply(sourceDensity, operandDensity), powerBig(plan.mDivisorTerms[transition],
+                            totalCount, constants.mCombinedRatioPowers[transition]));
+                    value = applyTransitionCommon(value, operandDensity, transitionMode, probability,
+                            operandCoefficientBig);
+                }
+                break;
             }
-        } else if (transitionType == TransitionType.BLEND) {
-            if (sourceExternal) {
+            case TransitionPlan.KERNEL_BLEND_SOURCE_EXTERNAL: {
                 BigDecimal operandCount = getStateBig(operandIndex, step, operandState);
                 if (operandCount.compareTo(BigDecimal.ZERO) > 0) {
-                    BigDecimal operandDensity = applyCoefficientPower(operandCount, operandCoefficient);
+                    BigDecimal operandDensity = densityBig(plan.mOperandTerms[transition], operandCount,
+                            operandCoefficient, constants.mOperandPowers[transition],
+                            constants.mOperandFactorials[transition]);
                     value = operandDensity;
                     if (operandCoefficient > 1) {
-                        value = divide(value, power(operandCount, operandCoefficient - 1));
+                        value = divide(value, powerBig(plan.mDivisorTerms[transition], operandCount,
+                                constants.mOperandRatioPowers[transition]));
                     }
-                    value = applyTransitionCommon(value, operandDensity, transition);
+                    value = applyTransitionCommon(value, operandDensity, transitionMode, probability,
+                            operandCoefficientBig);
                 }
-            } else if (operandExternal) {
+                break;
+            }
+            case TransitionPlan.KERNEL_BLEND_OPERAND_EXTERNAL: {
                 BigDecimal sourceCount = getStateBig(sourceIndex, step, sourceState);
                 if (sourceCount.compareTo(BigDecimal.ZERO) > 0) {
-                    value = applyCoefficientPower(sourceCount, sourceCoefficient);
+                    value = densityBig(plan.mSourceTerms[transition], sourceCount, sourceCoefficient,
+                            constants.mSourcePowers[transition], constants.mSourceFactorials[transition]);
                     if (sourceCoefficient > 1) {
-                        value = divide(value, power(sourceCount, sourceCoefficient - 1));
+                        value = divide(value, powerBig(plan.mDivisorTerms[transition], sourceCount,
+                                constants.mSourceRatioPowers[transition]));
                     }
-                    value = multiply(value, decimalValue(probability));
+                    value = multiply(value, probability);
                 }
-            } else if (sourceState == operandState) {
+                break;
+            }
+            case TransitionPlan.KERNEL_BLEND_SAME_STATE: {
                 BigDecimal count = getStateBig(sourceIndex, step, sourceState);
                 if (count.compareTo(BigDecimal.ZERO) > 0) {
-                    BigDecimal density = applyCoefficientPower(count, sourceCoefficient + operandCoefficient);
-                    value = divide(density, power(count, sourceCoefficient + operandCoefficient - 1));
-                    value = applyTransitionCommon(value, density, transition);
+                    BigDecimal density = densityBig(plan.mSourceTerms[transition], count,
+                            sourceCoefficient + operandCoefficient, constants.mCombinedPowers[transition],
+                            constants.mCombinedFactorials[transition]);
+                    value = divide(density, powerBig(plan.mDivisorTerms[transition], count,
+                            constants.mCombinedRatioPowers[transition]));
+                    value = applyTransitionCommon(value, density, transitionMode, probability, operandCoefficientBig);
                 }
-            } else {
+                break;
+            }
+            case TransitionPlan.KERNEL_BLEND: {
                 BigDecimal sourceCount = getStateBig(sourceIndex, step, sourceState);
                 BigDecimal operandCount = getStateBig(operandIndex, step, operandState);
                 BigDecimal sum = sourceCount.add(operandCount);
                 if (sum.compareTo(BigDecimal.ZERO) > 0) {
-                    BigDecimal sourceDensity = applyCoefficientPower(sourceCount, sourceCoefficient);
-                    BigDecimal operandDensity = applyCoefficientPower(operandCount, operandCoefficient);
+                    BigDecimal sourceDensity = densityBig(plan.mSourceTerms[transition], sourceCount,
+                            sourceCoefficient, constants.mSourcePowers[transition],
+                            constants.mSourceFactorials[transition]);
+                    BigDecimal operandDensity = densityBig(plan.mOperandTerms[transition], operandCount,
+                            operandCoefficient, constants.mOperandPowers[transition],
+                            constants.mOperandFactorials[transition]);
                     value = divide(multiply(sourceDensity, operandDensity),
-                            power(sum, sourceCoefficient + operandCoefficient - 1));
-                    value = applyTransitionCommon(value, operandDensity, transition);
+                            power(sum, constants.mCombinedRatioPowers[transition]));
+                    value = applyTransitionCommon(value, operandDensity, transitionMode, probability,
+                            operandCoefficientBig);
                 }
+                break;
             }
         }
-        if (!sourceExternal && transitionMode == TransitionMode.REMOVING) {
-            decrementStateBig(step, step, sourceState, multiply(value, decimalValue(sourceCoefficient)));
+        int sourceTarget = plan.mSourceTargets[transition];
+        if (sourceTarget != TransitionPlan.NO_TARGET) {
+            addDeltaBig(delta, sourceTarget, multiply(value, constants.mSourceCoefficients[transition]).negate());
         }
-        if (!operandExternal) {
+        int operandTarget = plan.mOperandTargets[transition];
+        if (operandTarget != TransitionPlan.NO_TARGET) {
             if (transitionMode == TransitionMode.INHIBITOR || transitionMode == TransitionMode.RESIDUAL) {
-                decrementStateBig(step, step, operandState, value);
-            } else if (transitionMode != TransitionMode.RETAINING) {
-                decrementStateBig(step, step, operandState, multiply(value, decimalValue(operandCoefficient)));
+                addDeltaBig(delta, operandTarget, value.negate());
+            } else {
+                addDeltaBig(delta, operandTarget, multiply(value, operandCoefficientBig).negate());
             }
         }
-        if (!resultExternal) {
-            incrementStateBig(step, step, resultState,
-                    multiply(value, decimalValue(transition.getResultCoefficient())));
+        int resultTarget = plan.mResultTargets[transition];
+        if (resultTarget != TransitionPlan.NO_TARGET) {
+            addDeltaBig(delta, resultTarget, multiply(value, constants.mResultCoefficients[transition]));
         }
     }
 
     /**
      * Выполнение расчётов синхронно
      *
-     * @return результаты вычислений
+     * @return результаты вычислений, если получатель шагов - {@link ResultStepSink}, иначе {@code null}
      */
     public Result calculateSync() {
-        Result result;
-        if (mTask.isHigherAccuracy()) {
-            result = calculateHigherAccuracy();
-        } else {
-            result = calculateNormalAccuracy();
+        long start = startProfiling();
+        mSink.onStart(mTask);
+        switch (mTask.getAccuracy()) {
+            case Accuracy.HIGHER: {
+                calculateHigherAccuracy();
+                break;
+            }
+            case Accuracy.FIXED_POINT: {
+                if (mFixedPoint != null) {
+                    calculateFixedPoint();
+                } else {
+                    calculateHigherAccuracy();
+                }
+                break;
+            }
+            case Accuracy.EXTENDED: {
+                calculateExtendedAccuracy();
+                break;
+            }
+            default: {
+                calculateNormalAccuracy();
+                break;
+            }
+        }
+        long time = startProfiling();
+        mSink.onFinish();
+        CalculatorStats stats = mStats;
+        if (stats != null) {
+            stats.setTotalTime(stats.addPhaseTime(CalculatorStats.PHASE_RESULT, time) - start);
+            mSink.onStats(stats);
+        }
+        if (mErrorEstimate != null) {
+            mSink.onErrorEstimate(mErrorEstimate);
+        }
+        if (mTask.getAccuracy() == Accuracy.FIXED_POINT) {
+            int inexactStep = mFixedPoint != null ? mFixedPoint.getInexactStep() : 1;
+            if (inexactStep != Result.EXACT && inexactStep < mTask.getStepsCount()) {
+                mSink.onInexactStep(inexactStep);
+            }
+        }
+        Result result = null;
+        if (mSink instanceof ResultStepSink) {
+            result = ((ResultStepSink) mSink).getResult();
         }
         callbackResults(result);
         return result;
@@ -641,29 +1233,41 @@ public class Calculator {
      * Выполнение расчётов асинхронно
      */
     public void calculateAsync() {
-        mThreadFactory.newThread(() -> {
-            Result result;
-            if (mTask.isHigherAccuracy()) {
-                result = calculateHigherAccuracy();
-            } else {
-                result = calculateNormalAccuracy();
-            }
-            callbackResults(result);
-        }).start();
+        mThreadFactory.newThread(this::calculateSync).start();
     }
 
     /**
-     * Подождать выполнение задачи
+     * Граница части переходов, обрабатываемой исполнителем
      *
-     * @param future Объект {@link Future} данной задачи
+     * @param transitionsCount количество переходов
+     * @param worker           номер исполнителя
+     * @param workersCount     количество исполнителей
+     * @return позиция первого перехода части
      */
-    private static void await(Future<?> future) {
-        try {
-            future.get();
-        } catch (InterruptedException | CancellationException ignored) {
-        } catch (ExecutionException e) {
-            throw new RuntimeException(e.getCause());
+    private static int chunkBound(int transitionsCount, int worker, int workersCount) {
+        return (int) ((long) transitionsCount * worker / workersCount);
+    }
+
+    /**
+     * Пакеты линейных переходов частей плана, обрабатываемых исполнителями
+     *
+     * @param plan         план вычисления переходов
+     * @param workersCount количество исполнителей
+     * @return пакеты исполнителей или {@code null}, если в плане нет линейных переходов
+     */
+    private static LinearBatch[] buildLinearBatches(TransitionPlan plan, int workersCount) {
+        LinearBatch[] batches = new LinearBatch[workersCount];
+        boolean empty = true;
+        int transitionsCount = plan.getSize();
+        for (int worker = 0; worker < workersCount; worker++) {
+            LinearBatch batch = new LinearBatch(plan, chunkBound(transitionsCount, worker, workersCount),
+                    chunkBound(transitionsCount, worker + 1, workersCount));
+            if (!batch.isEmpty()) {
+                batches[worker] = batch;
+                empty = false;
+            }
         }
+        return empty ? null : batches;
     }
 
     /**
@@ -673,7 +1277,7 @@ public class Calculator {
      * @param delay задержка
      * @return номер шага с задержкой
      */
-    private static int delay(int step, int delay) {
+    static int delay(int step, int delay) {
         if (step > delay) {
             return step - delay;
         } else {
@@ -682,147 +1286,197 @@ public class Calculator {
     }
 
     /**
-     * Применение степенного коэффициента
+     * Вычисление общих слагаемых шага с повышенной точностью
+     *
+     * @param step       номер шага
+     * @param totalCount общее количество автоматов на прошлом шаге
      */
-    private static double applyCoefficientPower(double u, double coefficient) {
-        if (coefficient <= 1) {
-            return u;
+    private void prepareTermsBig(int step, BigDecimal totalCount) {
+        TransitionPlan plan = mPlan;
+        HigherAccuracyConstants constants = mConstants;
+        BigDecimal[] terms = mTermsBig;
+        for (int term = 0; term < terms.length; term++) {
+            int transition = plan.mTermTransitions[term];
+            int side = plan.mTermSides[term];
+            double coefficient;
+            HigherAccuracyConstants.Exponent power;
+            HigherAccuracyConstants.Exponent ratioPower;
+            BigDecimal factorial;
+            if (side == TransitionPlan.SIDE_SOURCE) {
+                coefficient = plan.mSourceCoefficients[transition];
+                power = constants.mSourcePowers[transition];
+                ratioPower = constants.mSourceRatioPowers[transition];
+                factorial = constants.mSourceFactorials[transition];
+            } else if (side == TransitionPlan.SIDE_OPERAND) {
+                coefficient = plan.mOperandCoefficients[transition];
+                power = constants.mOperandPowers[transition];
+                ratioPower = constants.mOperandRatioPowers[transition];
+                factorial = constants.mOperandFactorials[transition];
+            } else {
+                coefficient = plan.mCombinedCoefficients[transition];
+                power = constants.mCombinedPowers[transition];
+                ratioPower = constants.mCombinedRatioPowers[transition];
+                factorial = constants.mCombinedFactorials[transition];
+            }
+            int kind = plan.mTermKinds[term];
+            if (kind == TransitionPlan.TERM_TOTAL_POWER) {
+                terms[term] = totalCount.signum() > 0 ? power(totalCount, ratioPower) : null;
+                continue;
+            }
+            BigDecimal count = side == TransitionPlan.SIDE_OPERAND ?
+                    getStateBig(delay(step - 1, plan.mOperandDelays[transition]), step,
+                            plan.mOperandStates[transition]) :
+                    getStateBig(delay(step - 1, plan.mSourceDelays[transition]), step,
+                            plan.mSourceStates[transition]);
+            if (kind == TransitionPlan.TERM_DENSITY) {
+                terms[term] = applyCoefficientPower(count, coefficient, power, factorial);
+            } else {
+                terms[term] = count.signum() > 0 ? power(count, ratioPower) : null;
+            }
         }
-        return Math.pow(u, coefficient) / probabilisticFactorial(coefficient);
     }
 
     /**
-     * Применение линейного коэффициента
+     * Плотность из таблицы общих слагаемых или вычисленная в переходе (повышенная точность)
      */
-    private static double applyCoefficientLinear(double u, double coefficient) {
-        if (coefficient <= 1) {
-            return u;
+    private BigDecimal densityBig(int term, BigDecimal u, double coefficient, HigherAccuracyConstants.Exponent power,
+            BigDecimal factorial) {
+        if (term == TransitionPlan.NO_TERM) {
+            return applyCoefficientPower(u, coefficient, power, factorial);
         }
-        return u / coefficient;
+        return mTermsBig[term];
     }
 
     /**
-     * Определение, является состояние внешним или нет
+     * Степень из таблицы общих слагаемых или вычисленная в переходе (повышенная точность)
      */
-    private static boolean isStateExternal(int stateId) {
-        return stateId == State.EXTERNAL;
+    private BigDecimal powerBig(int term, BigDecimal u, HigherAccuracyConstants.Exponent exponent) {
+        if (term == TransitionPlan.NO_TERM) {
+            return power(u, exponent);
+        }
+        return mTermsBig[term];
     }
 
     /**
      * Применение степенного коэффициента
      */
-    private static BigDecimal applyCoefficientPower(BigDecimal u, double coefficient) {
+    private BigDecimal applyCoefficientPower(BigDecimal u, double coefficient, HigherAccuracyConstants.Exponent power,
+            BigDecimal factorial) {
         if (coefficient <= 1) {
             return u;
         }
-        return divide(power(u, coefficient), probabilisticFactorialBig(coefficient));
+        return divide(power(u, power), factorial);
     }
 
     /**
      * Применение линейного коэффициента
      */
-    private static BigDecimal applyCoefficientLinear(BigDecimal u, double coefficient) {
+    private BigDecimal applyCoefficientLinear(BigDecimal u, double coefficient, BigDecimal divisor) {
         if (coefficient <= 1) {
             return u;
         }
-        return divide(u, decimalValue(coefficient));
-    }
-
-    /**
-     * Применение основных операций перехода
-     */
-    private static BigDecimal applyTransitionCommon(BigDecimal u, BigDecimal operandDensity, Transition transition) {
-        int mode = transition.getMode();
-        if (mode == TransitionMode.INHIBITOR) {
-            u = operandDensity.subtract(multiply(u, decimalValue(transition.getOperandCoefficient())));
-        }
-        u = multiply(u, decimalValue(transition.getProbability()));
-        if (mode == TransitionMode.RESIDUAL) {
-            u = operandDensity.subtract(multiply(u, decimalValue(transition.getOperandCoefficient())));
-        }
-        return u;
+        return divide(u, divisor);
     }
 
     /**
      * Применение основных операций перехода
      */
-    private static double applyTransitionCommon(double u, double operandDensity, Transition transition) {
-        int mode = transition.getMode();
+    private BigDecimal applyTransitionCommon(BigDecimal u, BigDecimal operandDensity, int mode,
+            BigDecimal probability, BigDecimal operandCoefficient) {
         if (mode == TransitionMode.INHIBITOR) {
-            u = operandDensity - u * transition.getOperandCoefficient();
+            u = operandDensity.subtract(multiply(u, operandCoefficient));
         }
-        u *= transition.getProbability();
+        u = multiply(u, probability);
         if (mode == TransitionMode.RESIDUAL) {
-            u = operandDensity - u * transition.getOperandCoefficient();
+            u = operandDensity.subtract(multiply(u, operandCoefficient));
         }
         return u;
     }
 
     /**
-     * Деление с точностью по-умолчанию для режима повышенной точности
+     * Деление с точностью задачи
      *
      * @param u делимое
      * @param v делитель
      * @return частное
      */
-    private static BigDecimal divide(BigDecimal u, BigDecimal v) {
-        return divide(u, v, HIGHER_ACCURACY_SCALE);
+    private BigDecimal divide(BigDecimal u, BigDecimal v) {
+        return divide(u, v, mMathContext);
     }
 
     /**
-     * Умножение с точностью по-умолчанию для режима повышенной точности
+     * Умножение с точностью задачи
      *
      * @param u множитель
      * @param v множитель
      * @return произведение
      */
-    private static BigDecimal multiply(BigDecimal u, BigDecimal v) {
-        return multiply(u, v, HIGHER_ACCURACY_SCALE);
+    private BigDecimal multiply(BigDecimal u, BigDecimal v) {
+        return multiply(u, v, mMathContext);
     }
 
     /**
-     * Возведение в степень с точностью по-умолчанию для режима повышенной точности
+     * Возведение в степень с точностью задачи; логарифм основания вычисляется
+     * только для дробной части показателя
      *
      * @param u        основание
-     * @param exponent показатель
+     * @param exponent разложенный показатель
      * @return результат
      */
-    private static BigDecimal power(BigDecimal u, double exponent) {
-        return power(u, exponent, HIGHER_ACCURACY_SCALE);
-    }
-
-    private static BigDecimal exponent0(BigDecimal u, int scale) {
-        BigDecimal a = BigDecimal.ONE;
-        BigDecimal b = u;
-        BigDecimal c = u.add(BigDecimal.ONE);
-        BigDecimal d;
-        for (int i = 2; ; i++) {
-            b = multiply(b, u, scale);
-            a = a.multiply(BigDecimal.valueOf(i));
-            BigDecimal e = divide(b, a, scale);
-            d = c;
-            c = c.add(e);
-            if (c.compareTo(d) == 0) {
-                break;
-            }
+    private BigDecimal power(BigDecimal u, HigherAccuracyConstants.Exponent exponent) {
+        if (u.signum() == 0) {
+            return BigDecimal.ZERO;
         }
-        return c;
+        BigDecimal fraction = exponent.mFraction;
+        if (fraction == null) {
+            return power(u, exponent.mIntegral, mMathContext);
+        }
+        // Абсолютная погрешность логарифма становится относительной погрешностью результата
+        double logarithm = (Math.abs(u.precision() - u.scale()) + 1) * Math.log(10);
+        MathContext working = extendMathContext(mMathContext, DecimalMath.digitsCount(logarithm) + 2);
+        BigDecimal result = exponent(fraction.multiply(naturalLogarithm(u, working)), working);
+        if (exponent.mIntegral != 0) {
+            result = result.multiply(power(u, exponent.mIntegral, working), working);
+        }
+        return result.round(mMathContext);
     }
 
-    private static BigDecimal naturalLogarithm0(BigDecimal u, int scale) {
-        int s = scale + 1;
-        BigDecimal a = u;
-        BigDecimal b;
-        BigDecimal c = decimalValue(5).movePointLeft(s);
-        for (; ; ) {
-            BigDecimal d = exponent(u, s);
-            b = d.subtract(a).divide(d, s, RoundingMode.DOWN);
-            u = u.subtract(b);
-            if (b.compareTo(c) <= 0) {
-                break;
-            }
+    /**
+     * Количество защитных цифр: погрешность округления накапливается
+     * пропорционально количеству операций за все шаги
+     *
+     * @param stepsCount       количество шагов
+     * @param transitionsCount количество переходов
+     * @return количество защитных цифр
+     */
+    private static int guardDigits(int stepsCount, int transitionsCount) {
+        return GUARD_DIGITS + DecimalMath.digitsCount(stepsCount) + DecimalMath.digitsCount(transitionsCount);
+    }
+
+    /**
+     * Точность с дополнительными цифрами
+     *
+     * @param mathContext исходная точность
+     * @param digits      количество дополнительных цифр
+     * @return точность
+     */
+    private static MathContext extendMathContext(MathContext mathContext, int digits) {
+        return new MathContext(mathContext.getPrecision() + digits, mathContext.getRoundingMode());
+    }
+
+    /**
+     * Точность, соответствующая заданному количеству знаков в дробной части
+     *
+     * @param magnitude десятичный порядок результата
+     * @param scale     количество знаков в дробной части результата
+     * @return точность или null, если результат округляется до нуля
+     */
+    private static MathContext scaleContext(double magnitude, int scale) {
+        long precision = (long) Math.floor(magnitude) + 1 + scale + GUARD_DIGITS;
+        if (precision <= 0) {
+            return null;
         }
-        return u.setScale(scale, RoundingMode.HALF_EVEN);
+        return new MathContext((int) Math.min(precision, Integer.MAX_VALUE), RoundingMode.HALF_EVEN);
     }
 
     /**
@@ -890,6 +1544,36 @@ public class Calculator {
         return result;
     }
 
+    /**
+     * Натуральный логарифм вероятностного факториала; для значений, факториал которых
+     * не представим в double, используется ряд Стирлинга для логарифма гамма-функции
+     *
+     * @param u исходное значение
+     * @return результат
+     */
+    public static double logarithmProbabilisticFactorial(double u) {
+        if (u <= MAX_DOUBLE_FACTORIAL) {
+            return Math.log(probabilisticFactorial(u));
+        }
+        double v = Math.floor(u);
+        double r = u % 1;
+        double result = logarithmFactorial(v);
+        if (r > 0) {
+            result += Math.log1p(v * r);
+        }
+        return result;
+    }
+
+    /**
+     * Логарифм факториала целого числа, большего {@link #MAX_DOUBLE_FACTORIAL}, по ряду Стирлинга
+     */
+    private static double logarithmFactorial(double n) {
+        double inverse = 1 / n;
+        double inverseSquare = inverse * inverse;
+        return n * Math.log(n) - n + 0.5 * Math.log(2 * Math.PI * n) +
+                inverse * (1.0 / 12 - inverseSquare * (1.0 / 360 - inverseSquare / 1260));
+    }
+
     /**
      * Вероятностный факториал.
      * Факториал вещественного числа как математическое ожидание
@@ -900,6 +1584,23 @@ public class Calculator {
      * @return результат
      */
     public static BigDecimal probabilisticFactorialBig(double u, int scale) {
+        return probabilisticFactorialExact(u).setScale(scale, RoundingMode.HALF_EVEN);
+    }
+
+    /**
+     * Вероятностный факториал.
+     * Факториал вещественного числа как математическое ожидание
+     * от факториалов двух соседних целых.
+     *
+     * @param u           исходное значение
+     * @param mathContext точность результата
+     * @return результат
+     */
+    public static BigDecimal probabilisticFactorialBig(double u, MathContext mathContext) {
+        return probabilisticFactorialExact(u).round(mathContext);
+    }
+
+    private static BigDecimal probabilisticFactorialExact(double u) {
         BigDecimal result = BigDecimal.ONE;
         double r = u % 1;
         if (r > 0) {
@@ -914,11 +1615,7 @@ public class Calculator {
                 result = result.multiply(decimalValue(i));
             }
         }
-        return result.setScale(scale, RoundingMode.HALF_EVEN);
-    }
-
-    private static BigDecimal probabilisticFactorialBig(double u) {
-        return probabilisticFactorialBig(u, HIGHER_ACCURACY_SCALE);
+        return result;
     }
 
     /**
@@ -985,7 +1682,15 @@ public class Calculator {
         if (exponent % 1 == 0 && exponent <= Long.MAX_VALUE) {
             return power(u, (long) exponent, scale);
         }
-        return exponent(decimalValue(exponent).multiply(naturalLogarithm(u, scale)), scale);
+        if (u.signum() < 0) {
+            throw new IllegalArgumentException("Fractional power is defined only on positive values.");
+        }
+        double magnitude = DecimalMath.logarithmEstimate(u) * exponent;
+        MathContext mathContext = scaleContext(DecimalMath.exponentMagnitude(magnitude), scale);
+        if (mathContext == null) {
+            return BigDecimal.ZERO.setScale(scale, RoundingMode.HALF_EVEN);
+        }
+        return power(u, exponent, mathContext).setScale(scale, RoundingMode.HALF_EVEN);
     }
 
     /**
@@ -1000,25 +1705,20 @@ public class Calculator {
         if (u.signum() == 0) {
             return BigDecimal.ZERO;
         }
-        int s = scale + 1;
-        BigDecimal a = u;
-        BigDecimal b = decimalValue(index);
-        BigDecimal c = decimalValue(index - 1);
-        BigDecimal d = decimalValue(5).movePointLeft(s);
-        BigDecimal e;
-        u = divide(u, b, scale);
-        for (; ; ) {
-            BigDecimal f = power(u, index - 1, s);
-            BigDecimal g = multiply(u, f, s);
-            BigDecimal h = a.add(c.multiply(g)).setScale(s, RoundingMode.HALF_EVEN);
-            BigDecimal l = multiply(b, f, s);
-            e = u;
-            u = h.divide(l, s, RoundingMode.DOWN);
-            if (u.subtract(e).abs().compareTo(d) <= 0) {
-                break;
+        if (u.signum() < 0) {
+            if (index % 2 == 0) {
+                throw new IllegalArgumentException("Even root is defined only on non-negative values.");
             }
+            return root(u.negate(), index, scale).negate();
         }
-        return u;
+        double logarithm = DecimalMath.logarithmEstimate(u);
+        MathContext mathContext = scaleContext(DecimalMath.exponentMagnitude(logarithm / index), scale);
+        if (mathContext == null) {
+            return BigDecimal.ZERO.setScale(scale, RoundingMode.HALF_EVEN);
+        }
+        MathContext working = extendMathContext(mathContext, DecimalMath.digitsCount(Math.abs(logarithm)) + 2);
+        BigDecimal result = DecimalMath.naturalLogarithm(u, working).divide(decimalValue(index), working);
+        return DecimalMath.exponent(result, mathContext).setScale(scale, RoundingMode.HALF_EVEN);
     }
 
     /**
@@ -1031,23 +1731,12 @@ public class Calculator {
     public static BigDecimal exponent(BigDecimal u, int scale) {
         if (u.signum() == 0) {
             return BigDecimal.ONE;
-        } else if (u.signum() == -1) {
-            return divide(BigDecimal.ONE, exponent(u.negate(), scale));
-        }
-        BigDecimal a = u.setScale(0, RoundingMode.DOWN);
-        if (a.signum() == 0) {
-            return exponent0(u, scale);
         }
-        BigDecimal b = u.subtract(a);
-        BigDecimal c = BigDecimal.ONE.add(divide(b, a, scale));
-        BigDecimal d = exponent0(c, scale);
-        BigDecimal e = decimalValue(Long.MAX_VALUE);
-        BigDecimal f = BigDecimal.ONE;
-        for (; a.compareTo(e) >= 0; ) {
-            f = multiply(f, power(d, Long.MAX_VALUE, scale), scale);
-            a = a.subtract(e);
+        MathContext mathContext = scaleContext(DecimalMath.exponentMagnitude(u.doubleValue()), scale);
+        if (mathContext == null) {
+            return BigDecimal.ZERO.setScale(scale, RoundingMode.HALF_EVEN);
         }
-        return multiply(f, power(d, a.longValue(), scale), scale);
+        return DecimalMath.exponent(u, mathContext).setScale(scale, RoundingMode.HALF_EVEN);
     }
 
     /**
@@ -1061,14 +1750,113 @@ public class Calculator {
         if (u.signum() <= 0) {
             throw new IllegalArgumentException("Natural logarithm is defined only on positive values.");
         }
-        int a = u.toString().length() - u.scale() - 1;
-        if (a < 3) {
-            return naturalLogarithm0(u, scale);
-        } else {
-            BigDecimal b = root(u, a, scale);
-            BigDecimal c = naturalLogarithm0(b, scale);
-            return multiply(decimalValue(a), c, scale);
+        double logarithm = DecimalMath.logarithmEstimate(u);
+        if (Math.abs(logarithm) < 0.5) {
+            // ln(u) ~ u - 1 вблизи единицы
+            logarithm = u.subtract(BigDecimal.ONE).doubleValue();
+        }
+        MathContext mathContext = scaleContext(Math.log10(Math.abs(logarithm)), scale);
+        if (mathContext == null) {
+            return BigDecimal.ZERO.setScale(scale, RoundingMode.HALF_EVEN);
+        }
+        return DecimalMath.naturalLogarithm(u, mathContext).setScale(scale, RoundingMode.HALF_EVEN);
+    }
+
+    /**
+     * Деление
+     *
+     * @param u           делимое
+     * @param v           делитель
+     * @param mathContext точность результата
+     * @return частное
+     */
+    public static BigDecimal divide(BigDecimal u, BigDecimal v, MathContext mathContext) {
+        return u.divide(v, mathContext);
+    }
+
+    /**
+     * Умножение
+     *
+     * @param u           множитель
+     * @param v           множитель
+     * @param mathContext точность результата
+     * @return произведение
+     */
+    public static BigDecimal multiply(BigDecimal u, BigDecimal v, MathContext mathContext) {
+        return u.multiply(v, mathContext);
+    }
+
+    /**
+     * Возведение в целочисленную степень
+     *
+     * @param u           основание
+     * @param exponent    показатель
+     * @param mathContext точность результата
+     * @return результат
+     */
+    public static BigDecimal power(BigDecimal u, long exponent, MathContext mathContext) {
+        if (u.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        if (exponent < 0) {
+            return BigDecimal.ONE.divide(power(u, -exponent, extendMathContext(mathContext, 1)), mathContext);
+        }
+        if (exponent <= 999999999) {
+            return u.pow((int) exponent, mathContext);
+        }
+        MathContext working = extendMathContext(mathContext, DecimalMath.digitsCount(exponent) + 1);
+        BigDecimal p = BigDecimal.ONE;
+        for (; exponent > 0; exponent >>= 1) {
+            if ((exponent & 1) == 1) {
+                p = p.multiply(u, working);
+            }
+            u = u.multiply(u, working);
+        }
+        return p.round(mathContext);
+    }
+
+    /**
+     * Возведение в вещественную степень
+     *
+     * @param u           основание
+     * @param exponent    показатель
+     * @param mathContext точность результата
+     * @return результат
+     */
+    public static BigDecimal power(BigDecimal u, double exponent, MathContext mathContext) {
+        if (u.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        if (exponent % 1 == 0 && Math.abs(exponent) <= Long.MAX_VALUE) {
+            return power(u, (long) exponent, mathContext);
         }
+        // Абсолютная погрешность логарифма становится относительной погрешностью результата,
+        // умноженной на показатель, поэтому логарифм вычисляется с дополнительными цифрами
+        double logarithm = (Math.abs(u.precision() - u.scale()) + 1) * Math.log(10) * Math.abs(exponent);
+        MathContext working = extendMathContext(mathContext, DecimalMath.digitsCount(logarithm) + 2);
+        return exponent(decimalValue(exponent).multiply(naturalLogarithm(u, working)), mathContext);
+    }
+
+    /**
+     * Возведение числа Эйлера в указанную степень, {@link DecimalMath#exponent}
+     *
+     * @param u           исходное значение
+     * @param mathContext точность результата
+     * @return результат
+     */
+    public static BigDecimal exponent(BigDecimal u, MathContext mathContext) {
+        return DecimalMath.exponent(u, mathContext);
+    }
+
+    /**
+     * Нахождение натурального логарифма от указанного значения, {@link DecimalMath#naturalLogarithm}
+     *
+     * @param u           исходное значение
+     * @param mathContext точность результата
+     * @return результат
+     */
+    public static BigDecimal naturalLogarithm(BigDecimal u, MathContext mathContext) {
+        return DecimalMath.naturalLogarithm(u, mathContext);
     }
 
     /**
@@ -1105,8 +1893,20 @@ public class Calculator {
      */
     public static Result calculateSync(Task task, boolean prepareResultsTableData, boolean prepareResultsChartData,
             ThreadFactory threadFactory) {
-        return new Calculator(task, prepareResultsTableData, prepareResultsChartData, null, null, threadFactory)
-                .calculateSync();
+        return new Calculator(task, new MemoryStepSink(prepareResultsTableData, prepareResultsChartData), null, null,
+                threadFactory).calculateSync();
+    }
+
+    /**
+     * Вычисление с передачей шагов получателю по мере вычисления (синхронно)
+     *
+     * @param task          задача
+     * @param sink          получатель завершённых шагов
+     * @param threadFactory Фабрика потоков для параллельных вычислений
+     * @return результаты вычислений, если получатель шагов - {@link ResultStepSink}, иначе {@code null}
+     */
+    public static Result calculateSync(Task task, StepSink sink, ThreadFactory threadFactory) {
+        return new Calculator(task, sink, null, null, threadFactory).calculateSync();
     }
 
     /**
@@ -1121,57 +1921,105 @@ public class Calculator {
      */
     public static void calculateAsync(Task task, boolean prepareResultsTableData, boolean prepareResultsChartData,
             ResultCallback resultCallback, ProgressCallback progressCallback, ThreadFactory threadFactory) {
-        new Calculator(task, prepareResultsTableData, prepareResultsChartData, resultCallback, progressCallback,
-                threadFactory).calculateAsync();
+        new Calculator(task, new MemoryStepSink(prepareResultsTableData, prepareResultsChartData), resultCallback,
+                progressCallback, threadFactory).calculateAsync();
     }
 
     /**
-     * Действие, представляющее собой вычисление перехода с обычной точностью
+     * Вычисление с передачей шагов получателю по мере вычисления (асинхронно)
+     *
+     * @param task             задача
+     * @param sink             получатель завершённых шагов
+     * @param resultCallback   обратный вызов результата (результат передаётся, если получатель шагов -
+     *                         {@link ResultStepSink}, иначе {@code null})
+     * @param progressCallback обратный вызов прогресса вычислений
+     * @param threadFactory    Фабрика потоков для асинхронных и параллельных вычислений
      */
-    private class TransitionActionNormalAccuracy implements Runnable {
-        private final int mStep;
+    public static void calculateAsync(Task task, StepSink sink, ResultCallback resultCallback,
+            ProgressCallback progressCallback, ThreadFactory threadFactory) {
+        new Calculator(task, sink, resultCallback, progressCallback, threadFactory).calculateAsync();
+    }
+
+    /**
+     * Действие, представляющее собой вычисление части переходов шага с обычной точностью.
+     * Изменения состояний накапливаются в собственном массиве исполнителя без блокировок.
+     */
+    private class TransitionActionNormalAccuracy implements WorkerTeam.Action {
         private final double mTotalCount;
-        private final Transition mTransition;
 
         /**
-         * @param step       номер шага
          * @param totalCount общее количество автоматов на прошлом шаге
-         * @param transition переход
          */
-        private TransitionActionNormalAccuracy(int step, double totalCount, Transition transition) {
-            mStep = step;
+        private TransitionActionNormalAccuracy(double totalCount) {
+            mTotalCount = totalCount;
+        }
+
+        @Override
+        public void run(int worker) {
+            double[] delta = mDeltas[worker];
+            Arrays.fill(delta, 0);
+            double[] compensations = null;
+            if (mDeltaCompensations != null) {
+                compensations = mDeltaCompensations[worker];
+                Arrays.fill(compensations, 0);
+            }
+            int transitionsCount = mPlan.getSize();
+            int end = chunkBound(transitionsCount, worker + 1, mWorkersCount);
+            applyTransitions(chunkBound(transitionsCount, worker, mWorkersCount), end, mTotalCount, delta,
+                    compensations, worker);
+        }
+    }
+
+    /**
+     * Действие, представляющее собой вычисление части переходов шага с расширенной точностью.
+     * Изменения состояний накапливаются в собственных массивах исполнителя без блокировок.
+     */
+    private class TransitionActionExtendedAccuracy implements WorkerTeam.Action {
+        private final DoubleDouble mTotalCount;
+
+        /**
+         * @param totalCount общее количество автоматов на прошлом шаге
+         */
+        private TransitionActionExtendedAccuracy(DoubleDouble totalCount) {
             mTotalCount = totalCount;
-            mTransition = transition;
         }
 
         @Override
-        public void run() {
-            transitionNormalAccuracy(mStep, mTotalCount, mTransition);
+        public void run(int worker) {
+            double[] deltaHigh = mDeltas[worker];
+            double[] deltaLow = mDeltasLow[worker];
+            Arrays.fill(deltaHigh, 0);
+            Arrays.fill(deltaLow, 0);
+            int transitionsCount = mPlan.getSize();
+            int end = chunkBound(transitionsCount, worker + 1, mWorkersCount);
+            applyTransitionsExtended(chunkBound(transitionsCount, worker, mWorkersCount), end, mTotalCount, deltaHigh,
+                    deltaLow, worker);
         }
     }
 
     /**
-     * Действие, представляющее собой вычисление перехода с повышенной точностью
+     * Действие, представляющее собой вычисление части переходов шага с повышенной точностью.
+     * Изменения состояний накапливаются в собственном массиве исполнителя без блокировок.
      */
-    private class TransitionActionHigherAccuracy implements Runnable {
+    private class TransitionActionHigherAccuracy implements WorkerTeam.Action {
         private final int mStep;
         private final BigDecimal mTotalCount;
-        private final Transition mTransition;
 
         /**
          * @param step       номер шага
          * @param totalCount общее количество автоматов на прошлом шаге
-         * @param transition переход
          */
-        private TransitionActionHigherAccuracy(int step, BigDecimal totalCount, Transition transition) {
+        private TransitionActionHigherAccuracy(int step, BigDecimal totalCount) {
             mStep = step;
             mTotalCount = totalCount;
-            mTransition = transition;
         }
 
         @Override
-        public void run() {
-            transitionHigherAccuracy(mStep, mTotalCount, mTransition);
+        public void run(int worker) {
+            int transitionsCount = mPlan.getSize();
+            int end = chunkBound(transitionsCount, worker + 1, mWorkersCount);
+            transitionsHigherAccuracy(mStep, mTotalCount, chunkBound(transitionsCount, worker, mWorkersCount), end,
+                    worker);
         }
     }
 
@@ -0,0 +1,120 @@
+/*
+ * Population
+ * Copyright (C) 2016 Yuriy Budiyev [yuriy.budiyev@yandex.ru]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see http://www.gnu.org/licenses/.
+ */
+package com.budiyev.population.component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.budiyev.population.model.State;
+import com.budiyev.population.model.Task;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.chart.XYChart;
+
+/**
+ * Прореживание шагов для вывода в графическом виде.
+ * Сохраняется не более заданного количества точек на каждое состояние
+ * (первый шаг каждого интервала и последний шаг), независимо от количества шагов.
+ */
+public class ChartStepSink implements StepSink {
+    private final int mMaxPoints; // Максимальное количество точек
+    private Task mTask; // Задача
+    private int mInterval; // Интервал прореживания
+    private int mLastStep; // Номер последнего шага
+    private int mPointsCount; // Количество сохранённых точек
+    private int[] mSteps; // Номера сохранённых шагов
+    private double[][] mValues; // Значения состояний в сохранённых точках
+    private ArrayList<XYChart.Series<Number, Number>> mChartData;
+
+    /**
+     * @param maxPoints максимальное количество точек на каждое состояние
+     */
+    public ChartStepSink(int maxPoints) {
+        mMaxPoints = Math.max(2, maxPoints);
+    }
+
+    @Override
+    public void onStart(Task task) {
+        mTask = task;
+        int stepsCount = task.getStepsCount();
+        mLastStep = stepsCount - 1;
+        mInterval = Math.max(1, (stepsCount + mMaxPoints - 2) / (mMaxPoints - 1));
+        int capacity = Math.min(stepsCount, mMaxPoints + 1);
+        mPointsCount = 0;
+        mSteps = new int[capacity];
+        mValues = new double[task.getStates().size()][capacity];
+        mChartData = null;
+    }
+
+    @Override
+    public void onStep(int step, double[] states) {
+        if (step % mInterval != 0 && step != mLastStep) {
+            return;
+        }
+        int point = mPointsCount++;
+        mSteps[point] = step;
+        for (int state = 0; state < states.length; state++) {
+            mValues[state][point] = states[state];
+        }
+    }
+
+    @Override
+    public boolean onSteadyState(int step, double[] states, boolean fill) {
+        if (fill) {
+            int next = (step / mInterval + 1) * mInterval;
+            for (int s = next; s < mLastStep; s += mInterval) {
+                onStep(s, states);
+            }
+            if (step != mLastStep) {
+                onStep(mLastStep, states);
+            }
+        } else if (mPointsCount == 0 || mSteps[mPointsCount - 1] != step) {
+            int point = mPointsCount++;
+            mSteps[point] = step;
+            for (int state = 0; state < states.length; state++) {
+                mValues[state][point] = states[state];
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void onFinish() {
+        List<State> states = mTask.getStates();
+        int startPoint = mTask.getStartPoint();
+        mChartData = new ArrayList<>(states.size());
+        for (int state = 0; state < states.size(); state++) {
+            ObservableList<XYChart.Data<Number, Number>> data =
+                    FXCollections.observableList(new ArrayList<>(mPointsCount));
+            double[] values = mValues[state];
+            for (int point = 0; point < mPointsCount; point++) {
+                data.add(new XYChart.Data<>(mSteps[point] + startPoint, values[point]));
+            }
+            mChartData.add(new XYChart.Series<>(states.get(state).getName(), data));
+        }
+        mSteps = null;
+        mValues = null;
+    }
+
+    /**
+     * @return прореженные данные для вывода в графическом виде, доступны после завершения вычислений
+     */
+    public ArrayList<XYChart.Series<Number, Number>> getChartData() {
+        return mChartData;
+    }
+}
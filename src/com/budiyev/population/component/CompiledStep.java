@@ -0,0 +1,34 @@
+/*
+ * Population
+ * Copyright (C) 2016 Yuriy Budiyev [yuriy.budiyev@yandex.ru]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see http://www.gnu.org/licenses/.
+ */
+package com.budiyev.population.component;
+
+/**
+ * Шаг вычислений с обычной точностью, скомпилированный в байт-код для конкретного плана переходов
+ * ({@link StepCompiler})
+ */
+public interface CompiledStep {
+    /**
+     * Вычисление переходов шага и применение их значений к состояниям в порядке плана
+     *
+     * @param delayedStates состояния на прошлом шаге с учётом каждой из задержек
+     * @param target        изменяемые состояния
+     * @param totalCount    общее количество автоматов на прошлом шаге
+     * @param terms         общие слагаемые шага
+     */
+    void step(double[][] delayedStates, double[] target, double totalCount, double[] terms);
+}
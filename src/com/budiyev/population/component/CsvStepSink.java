@@ -0,0 +1,121 @@
+/*
+ * Population
+ * Copyright (C) 2016 Yuriy Budiyev [yuriy.budiyev@yandex.ru]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see http://www.gnu.org/licenses/.
+ */
+package com.budiyev.population.component;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.List;
+import java.util.ResourceBundle;
+
+import com.budiyev.population.model.State;
+import com.budiyev.population.model.Task;
+import com.budiyev.population.util.Utils;
+
+/**
+ * Запись шагов в CSV-файл по мере вычисления, в формате {@link Utils#exportResults}
+ */
+public class CsvStepSink implements StepSink {
+    private static final String QUOTE = "\"";
+    private static final String DOUBLE_QUOTE = "\"\"";
+    private final File mFile; // Файл
+    private final char mColumnSeparator; // Разделитель столбцов
+    private final char mDecimalSeparator; // Десятичный разделитель
+    private final String mLineSeparator; // Разделитель строк
+    private final String mEncoding; // Кодировка
+    private final ResourceBundle mResources; // Ресурсы
+    private final StringBuilder mRowBuilder = new StringBuilder();
+    private DecimalFormat mFormatter;
+    private Writer mWriter;
+    private int mStartPoint;
+
+    /**
+     * @param file             файл
+     * @param columnSeparator  разделитель столбцов
+     * @param decimalSeparator десятичный разделитель
+     * @param lineSeparator    разделитель строк
+     * @param encoding         кодировка
+     * @param resources        ресурсы
+     */
+    public CsvStepSink(File file, char columnSeparator, char decimalSeparator, String lineSeparator, String encoding,
+            ResourceBundle resources) {
+        mFile = file;
+        mColumnSeparator = columnSeparator;
+        mDecimalSeparator = decimalSeparator;
+        mLineSeparator = lineSeparator;
+        mEncoding = encoding;
+        mResources = resources;
+    }
+
+    @Override
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    public void onStart(Task task) {
+        mStartPoint = task.getStartPoint();
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance();
+        symbols.setDecimalSeparator(mDecimalSeparator);
+        mFormatter = new DecimalFormat(Utils.DECIMAL_FORMAT_COMMON, symbols);
+        try {
+            if (mFile.exists()) {
+                mFile.delete();
+            }
+            mFile.createNewFile();
+            mWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(mFile), mEncoding));
+            mWriter.append(QUOTE).append(mResources.getString("step")).append(QUOTE);
+            List<State> states = task.getStates();
+            for (State state : states) {
+                mWriter.append(mColumnSeparator).append(QUOTE).append(state.getName().replace(QUOTE, DOUBLE_QUOTE))
+                        .append(QUOTE);
+            }
+            mWriter.append(mLineSeparator);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void onStep(int step, double[] states) {
+        StringBuilder rowBuilder = mRowBuilder;
+        rowBuilder.setLength(0);
+        rowBuilder.append(QUOTE).append(step + mStartPoint).append(QUOTE);
+        for (double state : states) {
+            rowBuilder.append(mColumnSeparator).append(QUOTE).append(mFormatter.format(state)).append(QUOTE);
+        }
+        rowBuilder.append(mLineSeparator);
+        try {
+            mWriter.append(rowBuilder);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void onFinish() {
+        try {
+            mWriter.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            mWriter = null;
+        }
+    }
+}
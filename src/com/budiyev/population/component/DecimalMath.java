@@ -0,0 +1,309 @@
+/*
+ * Population
+ * Copyright (C) 2016 Yuriy Budiyev [yuriy.budiyev@yandex.ru]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see http://www.gnu.org/licenses/.
+ */
+package com.budiyev.population.component;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * Трансцендентные функции BigDecimal с заданным количеством значащих цифр.
+ * Экспонента: редукция аргумента по ln(2), деление на степень двойки, ряд Тейлора для exp(r) - 1
+ * и возведение в квадрат в форме s * (s + 2). Логарифм: редукция по степеням 10 и 2,
+ * итерации Галлея с удвоением точности или ряд artanh вблизи единицы.
+ * Константы ln(2) и ln(10) вычисляются методом двоичного разбиения и кэшируются.
+ */
+public final class DecimalMath {
+    private static final BigDecimal TWO = BigDecimal.valueOf(2);
+    private static final BigDecimal FIVE = BigDecimal.valueOf(5);
+    private static final double LOG10_E = 0.4342944819032518;
+    private static final double LOG10_2 = 0.3010299956639812;
+    private static final int DOUBLE_DIGITS = 15;
+    private static final int GUARD_DIGITS = 3;
+    private static final double SERIES_THRESHOLD = 1e-3; // Граница применения ряда artanh для логарифма
+    private static final double MAX_EXPONENT = 4.9e9; // Максимальный аргумент экспоненты для BigDecimal
+    private static volatile BigDecimal sLogarithmTwo = BigDecimal.ZERO; // ln(2) с наибольшей точностью
+    private static volatile BigDecimal sLogarithmTen = BigDecimal.ZERO; // ln(10) с наибольшей точностью
+
+    private DecimalMath() {
+    }
+
+    /**
+     * Возведение числа Эйлера в указанную степень
+     *
+     * @param u           исходное значение
+     * @param mathContext точность результата
+     * @return результат
+     */
+    public static BigDecimal exponent(BigDecimal u, MathContext mathContext) {
+        if (u.signum() == 0) {
+            return BigDecimal.ONE;
+        }
+        double x = u.doubleValue();
+        if (x > MAX_EXPONENT) {
+            throw new ArithmeticException("Overflow");
+        } else if (x < -MAX_EXPONENT) {
+            return BigDecimal.ZERO;
+        }
+        int precision = mathContext.getPrecision();
+        // Редукция: u = k * ln(2) + r, |r| <= ln(2) / 2
+        long k = Math.round(x / Math.log(2));
+        MathContext working = extend(mathContext, digitsCount(Math.abs(k)) + GUARD_DIGITS);
+        BigDecimal r = u;
+        if (k != 0) {
+            r = u.subtract(logarithmTwo(working).multiply(BigDecimal.valueOf(k)), working);
+        }
+        // Ряд вычисляется в двоичной фиксированной точке: r / 2^halvings * 2^bits
+        int halvings = (int) Math.sqrt(precision * 1.2);
+        int bits = (int) Math.ceil((precision + GUARD_DIGITS) / LOG10_2) + halvings + digitsCount(halvings);
+        BigInteger t = toFixed(r, bits - halvings);
+        BigInteger s = t;
+        BigInteger term = t;
+        for (int i = 2; ; i++) {
+            term = term.multiply(t).shiftRight(bits).divide(BigInteger.valueOf(i));
+            if (term.signum() == 0) {
+                break;
+            }
+            s = s.add(term);
+        }
+        BigInteger two = BigInteger.ONE.shiftLeft(bits + 1);
+        for (int i = 0; i < halvings; i++) {
+            s = s.multiply(s.add(two)).shiftRight(bits);
+        }
+        return fromFixed(s.add(BigInteger.ONE.shiftLeft(bits)), bits - k, mathContext);
+    }
+
+    /**
+     * Нахождение натурального логарифма от указанного значения
+     *
+     * @param u           исходное значение
+     * @param mathContext точность результата
+     * @return результат
+     */
+    public static BigDecimal naturalLogarithm(BigDecimal u, MathContext mathContext) {
+        if (u.signum() <= 0) {
+            throw new IllegalArgumentException("Natural logarithm is defined only on positive values.");
+        }
+        if (u.compareTo(BigDecimal.ONE) == 0) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal m = u;
+        int decimalExponent = 0;
+        int binaryExponent = 0;
+        double estimate = logarithmEstimate(u);
+        if (Math.abs(estimate) > 0.4) {
+            // Редукция: u = m * 2^binaryExponent * 10^decimalExponent, m близко к единице
+            decimalExponent = u.precision() - u.scale() - 1;
+            m = u.scaleByPowerOfTen(-decimalExponent);
+            binaryExponent = (int) Math.round(Math.log(m.doubleValue()) / Math.log(2));
+            m = m.multiply(FIVE.pow(binaryExponent)).scaleByPowerOfTen(-binaryExponent);
+        }
+        // Слагаемые редукции по модулю больше результата не более чем в |decimalExponent| * 6 раз
+        MathContext working = extend(mathContext, digitsCount(Math.abs(decimalExponent)) + GUARD_DIGITS + 1);
+        BigDecimal result = logarithmReduced(m, working);
+        if (binaryExponent != 0) {
+            result = result.add(logarithmTwo(working).multiply(BigDecimal.valueOf(binaryExponent)), working);
+        }
+        if (decimalExponent != 0) {
+            result = result.add(logarithmTen(working).multiply(BigDecimal.valueOf(decimalExponent)), working);
+        }
+        return result.round(mathContext);
+    }
+
+    /**
+     * Натуральный логарифм двух
+     *
+     * @param mathContext точность результата
+     * @return результат
+     */
+    public static BigDecimal logarithmTwo(MathContext mathContext) {
+        BigDecimal cached = sLogarithmTwo;
+        if (cached.precision() >= mathContext.getPrecision() + GUARD_DIGITS) {
+            return cached.round(mathContext);
+        }
+        // ln(2) = 2 * artanh(1 / 3)
+        int precision = mathContext.getPrecision() + 2 * GUARD_DIGITS;
+        BigDecimal value = inverseHyperbolicTangentInverse(3, precision).multiply(TWO);
+        sLogarithmTwo = value;
+        return value.round(mathContext);
+    }
+
+    /**
+     * Натуральный логарифм десяти
+     *
+     * @param mathContext точность результата
+     * @return результат
+     */
+    public static BigDecimal logarithmTen(MathContext mathContext) {
+        BigDecimal cached = sLogarithmTen;
+        if (cached.precision() >= mathContext.getPrecision() + GUARD_DIGITS) {
+            return cached.round(mathContext);
+        }
+        // ln(10) = 3 * ln(2) + ln(5 / 4) = 3 * ln(2) + 2 * artanh(1 / 9)
+        int precision = mathContext.getPrecision() + 2 * GUARD_DIGITS;
+        MathContext working = new MathContext(precision, RoundingMode.HALF_EVEN);
+        BigDecimal value = logarithmTwo(working).multiply(BigDecimal.valueOf(3))
+                .add(inverseHyperbolicTangentInverse(9, precision).multiply(TWO), working);
+        sLogarithmTen = value;
+        return value.round(mathContext);
+    }
+
+    /**
+     * Оценка натурального логарифма типа double, не переполняющаяся для больших и малых значений
+     *
+     * @param u положительное значение
+     * @return оценка
+     */
+    public static double logarithmEstimate(BigDecimal u) {
+        int decimalExponent = u.precision() - u.scale() - 1;
+        return Math.log(u.scaleByPowerOfTen(-decimalExponent).doubleValue()) + decimalExponent * Math.log(10);
+    }
+
+    /**
+     * Оценка десятичного порядка значения e^u
+     *
+     * @param u показатель
+     * @return оценка
+     */
+    public static double exponentMagnitude(double u) {
+        return u * LOG10_E;
+    }
+
+    /**
+     * @param u неотрицательное значение
+     * @return количество десятичных цифр в целой части
+     */
+    static int digitsCount(double u) {
+        return u < 1 ? 1 : (int) Math.floor(Math.log10(u)) + 1;
+    }
+
+    /**
+     * Логарифм значения, близкого к единице
+     */
+    private static BigDecimal logarithmReduced(BigDecimal m, MathContext mathContext) {
+        BigDecimal difference = m.subtract(BigDecimal.ONE);
+        if (Math.abs(difference.doubleValue()) < SERIES_THRESHOLD) {
+            // ln(m) = 2 * artanh(z), z = (m - 1) / (m + 1), ряд в двоичной фиксированной точке
+            MathContext working = extend(mathContext, GUARD_DIGITS);
+            BigDecimal z = difference.divide(m.add(BigDecimal.ONE), working);
+            int exponent = -(z.precision() - z.scale());
+            int bits = (int) Math.ceil((mathContext.getPrecision() + GUARD_DIGITS + exponent) / LOG10_2);
+            BigInteger fixed = toFixed(z, bits);
+            BigInteger square = fixed.multiply(fixed).shiftRight(bits);
+            BigInteger power = fixed;
+            BigInteger sum = fixed;
+            for (int i = 3; ; i += 2) {
+                power = power.multiply(square).shiftRight(bits);
+                BigInteger term = power.divide(BigInteger.valueOf(i));
+                if (term.signum() == 0) {
+                    break;
+                }
+                sum = sum.add(term);
+            }
+            return fromFixed(sum, bits - 1, mathContext);
+        }
+        // Итерации Галлея y += 2 * (m - e^y) / (m + e^y) утраивают количество верных цифр,
+        // поэтому точность каждой итерации в три раза больше предыдущей
+        int target = mathContext.getPrecision() + GUARD_DIGITS;
+        int iterations = 0;
+        for (int precision = target; precision > DOUBLE_DIGITS; precision = precision / 3 + 1) {
+            iterations++;
+        }
+        int[] precisions = new int[iterations];
+        int precision = target;
+        for (int i = iterations - 1; i >= 0; i--) {
+            precisions[i] = precision;
+            precision = precision / 3 + 1;
+        }
+        BigDecimal y = new BigDecimal(Math.log(m.doubleValue()));
+        for (int i = 0; i < iterations; i++) {
+            MathContext working = new MathContext(precisions[i], RoundingMode.HALF_EVEN);
+            BigDecimal e = exponent(y, working);
+            y = y.add(TWO.multiply(m.subtract(e)).divide(m.add(e), working), working);
+        }
+        return y.round(mathContext);
+    }
+
+    /**
+     * artanh(1 / q) = sum(1 / ((2n + 1) * q^(2n + 1))) методом двоичного разбиения
+     *
+     * @param q         знаменатель аргумента
+     * @param precision количество значащих цифр результата
+     * @return результат
+     */
+    private static BigDecimal inverseHyperbolicTangentInverse(int q, int precision) {
+        // Каждый член ряда уменьшается в q^2 раз
+        int terms = (int) Math.ceil(precision / (2 * Math.log10(q))) + 1;
+        BigInteger[] result = splitInverseHyperbolicTangent(BigInteger.valueOf(q), 0, terms);
+        BigInteger qq = result[1];
+        BigInteger b = result[2];
+        BigInteger t = result[3];
+        return new BigDecimal(t).divide(new BigDecimal(b.multiply(qq)),
+                new MathContext(precision, RoundingMode.HALF_EVEN));
+    }
+
+    /**
+     * Двоичное разбиение суммы членов с номерами [from, to):
+     * a(n) = 1, b(n) = 2n + 1, p(n) = 1, q(0) = q, q(n) = q^2.
+     *
+     * @return P, Q, B, T
+     */
+    private static BigInteger[] splitInverseHyperbolicTangent(BigInteger q, int from, int to) {
+        if (to - from == 1) {
+            BigInteger b = BigInteger.valueOf(2L * from + 1);
+            return new BigInteger[] {BigInteger.ONE, from == 0 ? q : q.multiply(q), b, BigInteger.ONE};
+        }
+        int middle = (from + to) >>> 1;
+        BigInteger[] left = splitInverseHyperbolicTangent(q, from, middle);
+        BigInteger[] right = splitInverseHyperbolicTangent(q, middle, to);
+        BigInteger p = left[0].multiply(right[0]);
+        BigInteger qq = left[1].multiply(right[1]);
+        BigInteger b = left[2].multiply(right[2]);
+        BigInteger t = right[2].multiply(right[1]).multiply(left[3])
+                .add(left[2].multiply(left[0]).multiply(right[3]));
+        return new BigInteger[] {p, qq, b, t};
+    }
+
+    /**
+     * Перевод в двоичную фиксированную точку: round(u * 2^bits)
+     */
+    private static BigInteger toFixed(BigDecimal u, int bits) {
+        BigDecimal scaled;
+        if (bits >= 0) {
+            scaled = u.multiply(new BigDecimal(BigInteger.ONE.shiftLeft(bits)));
+        } else {
+            scaled = u.divide(new BigDecimal(BigInteger.ONE.shiftLeft(-bits)));
+        }
+        return scaled.setScale(0, RoundingMode.HALF_EVEN).unscaledValue();
+    }
+
+    /**
+     * Перевод из двоичной фиксированной точки: u / 2^bits
+     */
+    private static BigDecimal fromFixed(BigInteger u, long bits, MathContext mathContext) {
+        if (bits <= 0) {
+            return new BigDecimal(u.shiftLeft((int) -bits), mathContext);
+        }
+        return new BigDecimal(u).divide(new BigDecimal(BigInteger.ONE.shiftLeft((int) bits)), mathContext);
+    }
+
+    private static MathContext extend(MathContext mathContext, int digits) {
+        return new MathContext(mathContext.getPrecision() + digits, mathContext.getRoundingMode());
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * Population
+ * Copyright (C) 2016 Yuriy Budiyev [yuriy.budiyev@yandex.ru]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see http://www.gnu.org/licenses/.
+ */
+package com.budiyev.population.component;
+
+import java.math.BigDecimal;
+
+/**
+ * Изменяемое число двойной-двойной точности: неоценённая сумма старшей и младшей частей типа double
+ * (около 32 значащих десятичных цифр). Операции выполняются на месте с использованием
+ * безошибочных преобразований суммы и произведения и не выделяют память.
+ */
+public final class DoubleDouble {
+    private static final double SPLITTER = 134217729.0; // 2^27 + 1
+    private static final double SPLIT_THRESHOLD = 6.69692879491417e+299; // 2^996
+    private static final double LN2_HIGH = 6.931471805599452862e-01;
+    private static final double LN2_LOW = 2.319046813846299558e-17;
+    private static final double EPSILON = 4.93038065763132e-32; // 2^-104
+    private static final int EXPONENT_SQUARINGS = 10;
+    private static final double EXPONENT_REDUCTION = 1.0 / (1 << EXPONENT_SQUARINGS);
+    private static final int EXPONENT_MAX_TERMS = 24;
+    private double mHigh; // Старшая часть
+    private double mLow; // Младшая часть
+
+    public DoubleDouble() {
+    }
+
+    /**
+     * @param high старшая часть
+     * @param low  младшая часть
+     */
+    public DoubleDouble(double high, double low) {
+        set(high, low);
+    }
+
+    /**
+     * @return старшая часть, значение, округлённое до double
+     */
+    public double getHigh() {
+        return mHigh;
+    }
+
+    /**
+     * @return младшая часть
+     */
+    public double getLow() {
+        return mLow;
+    }
+
+    public DoubleDouble set(double high, double low) {
+        normalize(high, low);
+        return this;
+    }
+
+    public DoubleDouble set(DoubleDouble u) {
+        mHigh = u.mHigh;
+        mLow = u.mLow;
+        return this;
+    }
+
+    public DoubleDouble negate() {
+        mHigh = -mHigh;
+        mLow = -mLow;
+        return this;
+    }
+
+    public DoubleDouble add(double high, double low) {
+        double a = mHigh;
+        double b = mLow;
+        double s = a + high;
+        double e = twoSumLow(a, high, s);
+        double t = b + low;
+        double f = twoSumLow(b, low, t);
+        e += t;
+        double u = s + e;
+        e -= u - s;
+        e += f;
+        normalize(u, e);
+        return this;
+    }
+
+    public DoubleDouble add(DoubleDouble u) {
+        return add(u.mHigh, u.mLow);
+    }
+
+    public DoubleDouble subtract(DoubleDouble u) {
+        return add(-u.mHigh, -u.mLow);
+    }
+
+    public DoubleDouble multiply(double high, double low) {
+        double a = mHigh;
+        double p = a * high;
+        double e = twoProductLow(a, high, p) + (a * low + mLow * high);
+        normalize(p, e);
+        return this;
+    }
+
+    public DoubleDouble multiply(double u) {
+        double a = mHigh;
+        double p = a * u;
+        double e = twoProductLow(a, u, p) + mLow * u;
+        normalize(p, e);
+        return this;
+    }
+
+    public DoubleDouble multiply(DoubleDouble u) {
+        return multiply(u.mHigh, u.mLow);
+    }
+
+    public DoubleDouble divide(double high, double low) {
+        double a = mHigh;
+        double q = a / high;
+        if (!isFinite(q)) {
+            mHigh = q;
+            mLow = 0;
+            return this;
+        }
+        // Остаток a - q * (high + low) вычисляется точно в старшей части
+        double p = q * high;
+        double e = twoProductLow(q, high, p);
+        double r = (((a - p) - e) + mLow - q * low) / high;
+        normalize(q, r);
+        return this;
+    }
+
+    public DoubleDouble divide(double u) {
+        return divide(u, 0);
+    }
+
+    public DoubleDouble divide(DoubleDouble u) {
+        return divide(u.mHigh, u.mLow);
+    }
+
+    /**
+     * Умножение на степень двойки (точно)
+     *
+     * @param exponent показатель степени двойки
+     * @return это число
+     */
+    public DoubleDouble scale(int exponent) {
+        mHigh = Math.scalb(mHigh, exponent);
+        mLow = Math.scalb(mLow, exponent);
+        return this;
+    }
+
+    /**
+     * @param high старшая часть
+     * @param low  младшая часть
+     * @return это число меньше указанного
+     */
+    public boolean isLess(double high, double low) {
+        return mHigh < high || mHigh == high && mLow < low;
+    }
+
+    /**
+     * Возведение числа Эйлера в степень, равную этому числу.
+     * Аргумент приводится к r = x - k * ln(2), делится на 2^10, вычисляется exp(r) - 1 рядом Тейлора,
+     * затем выполняется 10 возведений в квадрат в форме s * (s + 2), сохраняющей относительную точность.
+     *
+     * @return это число
+     */
+    public DoubleDouble exponent() {
+        double a = mHigh;
+        if (a == 0) {
+            return set(1, 0);
+        } else if (a > 709.8) {
+            return set(Double.POSITIVE_INFINITY, 0);
+        } else if (a < -745.2) {
+            return set(0, 0);
+        } else if (!isFinite(a)) {
+            return set(Math.exp(a), 0);
+        }
+        double k = Math.rint(a / LN2_HIGH);
+        double p = k * LN2_HIGH;
+        add(-p, -(twoProductLow(k, LN2_HIGH, p) + k * LN2_LOW));
+        multiply(EXPONENT_REDUCTION);
+        double rh = mHigh;
+        double rl = mLow;
+        double sh = rh;
+        double sl = rl;
+        double threshold = Math.abs(rh) * EPSILON;
+        for (int i = 2; i < EXPONENT_MAX_TERMS; i++) {
+            multiply(rh, rl).divide(i);
+            if (Math.abs(mHigh) <= threshold) {
+                break;
+            }
+            double th = mHigh;
+            double tl = mLow;
+            add(sh, sl);
+            sh = mHigh;
+            sl = mLow;
+            set(th, tl);
+        }
+        set(sh, sl);
+        for (int i = 0; i < EXPONENT_SQUARINGS; i++) {
+            sh = mHigh;
+            sl = mLow;
+            add(2, 0).multiply(sh, sl);
+        }
+        return add(1, 0).scale((int) k);
+    }
+
+    /**
+     * Натуральный логарифм этого числа: приближение типа double уточняется одним шагом
+     * метода Ньютона y = x + a * exp(-x) - 1
+     *
+     * @return это число
+     */
+    public DoubleDouble naturalLogarithm() {
+        double ah = mHigh;
+        double al = mLow;
+        if (!(ah > 0) || !isFinite(ah)) {
+            return set(Math.log(ah), 0);
+        }
+        double x = Math.log(ah);
+        return set(-x, 0).exponent().multiply(ah, al).add(-1, 0).add(x, 0);
+    }
+
+    /**
+     * Возведение этого числа в степень; целочисленные показатели обрабатываются
+     * последовательным возведением в квадрат, дробные - через экспоненту и логарифм
+     *
+     * @param exponent показатель
+     * @return это число
+     */
+    public DoubleDouble power(double exponent) {
+        if (exponent == 0) {
+            return set(1, 0);
+        }
+        double a = mHigh;
+        if (a == 0 || !isFinite(a)) {
+            return set(Math.pow(a, exponent), 0);
+        }
+        if (exponent % 1 == 0 && Math.abs(exponent) < Integer.MAX_VALUE) {
+            int n = (int) Math.abs(exponent);
+            double rh = 1;
+            double rl = 0;
+            for (; ; ) {
+                if ((n & 1) == 1) {
+                    double bh = mHigh;
+                    double bl = mLow;
+                    multiply(rh, rl);
+                    rh = mHigh;
+                    rl = mLow;
+                    set(bh, bl);
+                }
+                n >>>= 1;
+                if (n == 0) {
+                    break;
+                }
+                multiply(mHigh, mLow);
+            }
+            set(rh, rl);
+            if (exponent < 0) {
+                set(1, 0).divide(rh, rl);
+            }
+            return this;
+        }
+        if (a < 0) {
+            return set(Double.NaN, 0);
+        }
+        return naturalLogarithm().multiply(exponent).exponent();
+    }
+
+    /**
+     * @return значение в виде BigDecimal (точно)
+     */
+    public BigDecimal toBigDecimal() {
+        return new BigDecimal(mHigh).add(new BigDecimal(mLow));
+    }
+
+    @Override
+    public String toString() {
+        return isFinite(mHigh) ? toBigDecimal().toString() : String.valueOf(mHigh);
+    }
+
+    /**
+     * Ближайшее число двойной-двойной точности
+     *
+     * @param u исходное значение
+     * @return результат
+     */
+    public static DoubleDouble valueOf(BigDecimal u) {
+        double high = u.doubleValue();
+        if (!isFinite(high)) {
+            return new DoubleDouble(high, 0);
+        }
+        return new DoubleDouble(high, u.subtract(new BigDecimal(high)).doubleValue());
+    }
+
+    private void normalize(double high, double low) {
+        double s = high + low;
+        if (isFinite(s)) {
+            mHigh = s;
+            mLow = low - (s - high);
+        } else {
+            mHigh = s;
+            mLow = 0;
+        }
+    }
+
+    /**
+     * Погрешность суммы s = a + b
+     */
+    private static double twoSumLow(double a, double b, double s) {
+        double v = s - a;
+        return (a - (s - v)) + (b - v);
+    }
+
+    /**
+     * Погрешность произведения p = a * b (разложение Деккера)
+     */
+    private static double twoProductLow(double a, double b, double p) {
+        if (Math.abs(a) > SPLIT_THRESHOLD || Math.abs(b) > SPLIT_THRESHOLD || !isFinite(p)) {
+            return 0;
+        }
+        double t = SPLITTER * a;
+        double ah = t - (t - a);
+        double al = a - ah;
+        t = SPLITTER * b;
+        double bh = t - (t - b);
+        double bl = b - bh;
+        return ((ah * bh - p) + ah * bl + al * bh) + al * bl;
+    }
+
+    private static boolean isFinite(double u) {
+        return Math.abs(u) <= Double.MAX_VALUE;
+    }
+}
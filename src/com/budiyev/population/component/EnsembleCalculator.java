@@ -0,0 +1,206 @@
+/*
+ * Population
+ * Copyright (C) 2016 Yuriy Budiyev [yuriy.budiyev@yandex.ru]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see http://www.gnu.org/licenses/.
+ */
+package com.budiyev.population.component;
+
+import java.util.List;
+
+import com.budiyev.population.model.Accuracy;
+import com.budiyev.population.model.State;
+import com.budiyev.population.model.Task;
+
+/**
+ * Вычисление ансамбля вариантов одной модели, отличающихся только вероятностями переходов.
+ * Структура задачи компилируется один раз, состояния хранятся как [состояние][вариант],
+ * поэтому каждый переход вычисляется для всех вариантов подряд в одном цикле.
+ * Результат каждого варианта совпадает с результатом {@link Calculator} с обычной точностью.
+ */
+public final class EnsembleCalculator {
+    private final Task mTask; // Задача, задающая структуру модели
+    private final TransitionPlan mPlan; // План вычисления переходов
+    private final int mStatesCount; // Количество состояний
+    private final int mVariantsCount; // Количество вариантов
+    private final double[][] mProbabilities; // Вероятности переходов плана в вариантах, [переход][вариант]
+    private final double[][][] mStates; // Кольцевой буфер состояний последних шагов, [шаг][состояние][вариант]
+    private final double[][][] mDelayedStates; // Состояния на прошлом шаге с учётом каждой из задержек
+    private final double[] mTotalCounts; // Общие количества автоматов вариантов на прошлом шаге
+    private final double[][] mTerms; // Общие слагаемые шага вариантов, [вариант][слагаемое]
+    private final double[] mValues; // Значения вычисляемого перехода в вариантах
+    private final double[] mZeros; // Количества автоматов внешнего состояния
+    private final double[] mOutputStates; // Состояния шага варианта, передаваемые получателю
+    private final StepSink[] mSinks; // Получатели завершённых шагов вариантов
+
+    /**
+     * @param task          задача, задающая структуру модели, начальные состояния и параметры вычислений
+     * @param probabilities вероятности переходов задачи в вариантах, [вариант][переход задачи]
+     * @param sinks         получатели завершённых шагов вариантов
+     */
+    public EnsembleCalculator(Task task, double[][] probabilities, StepSink[] sinks) {
+        if (!isSupported(task)) {
+            throw new IllegalArgumentException("Only normal accuracy without additional options is supported");
+        }
+        int variantsCount = probabilities.length;
+        if (sinks.length != variantsCount) {
+            throw new IllegalArgumentException("Expected " + variantsCount + " sinks, got " + sinks.length);
+        }
+        mTask = task;
+        mPlan = TransitionPlan.compile(task);
+        mVariantsCount = variantsCount;
+        mSinks = sinks;
+        int transitionsCount = mPlan.getSize();
+        mProbabilities = new double[transitionsCount][variantsCount];
+        for (int variant = 0; variant < variantsCount; variant++) {
+            if (probabilities[variant].length != task.getTransitions().size()) {
+                throw new IllegalArgumentException("Expected " + task.getTransitions().size() +
+                        " probabilities in variant " + variant);
+            }
+            for (int transition = 0; transition < transitionsCount; transition++) {
+                mProbabilities[transition][variant] = probabilities[variant][mPlan.mTransitionIndexes[transition]];
+            }
+        }
+        List<State> statesList = task.getStates();
+        int statesCount = statesList.size();
+        mStatesCount = statesCount;
+        double[][][] states = new double[mPlan.getMaxDelay() + 2][statesCount][variantsCount];
+        for (int state = 0; state < statesCount; state++) {
+            double count = statesList.get(state).getCount();
+            for (int variant = 0; variant < variantsCount; variant++) {
+                states[0][state][variant] = count;
+            }
+        }
+        mStates = states;
+        mDelayedStates = new double[mPlan.getMaxDelay() + 1][][];
+        mTotalCounts = new double[variantsCount];
+        mTerms = new double[variantsCount][mPlan.getTermsCount()];
+        mValues = new double[variantsCount];
+        mZeros = new double[variantsCount];
+        mOutputStates = new double[statesCount];
+    }
+
+    /**
+     * Проверка, что задачу можно вычислить ансамблем
+     *
+     * @param task задача
+     * @return {@code true}, если задача вычисляется с обычной точностью
+     * без компенсированного суммирования, оценки погрешности, остановки по установившемуся состоянию
+     * и профилирования
+     */
+    public static boolean isSupported(Task task) {
+        return task.getAccuracy() == Accuracy.NORMAL && !task.isCompensatedSummation() &&
+                task.getErrorEstimationInterval() <= 0 && task.getSteadyStateEpsilon() <= 0 && !task.isProfiling();
+    }
+
+    private double[][] getStates(int step) {
+        return mStates[step % mStates.length];
+    }
+
+    private void copyPreviousStep(int step) {
+        double[][] previous = getStates(step - 1);
+        double[][] current = getStates(step);
+        for (int state = 0; state < mStatesCount; state++) {
+            System.arraycopy(previous[state], 0, current[state], 0, mVariantsCount);
+        }
+    }
+
+    private void prepareDelayedStates(int step) {
+        for (int delay = 0; delay < mDelayedStates.length; delay++) {
+            mDelayedStates[delay] = getStates(Calculator.delay(step - 1, delay));
+        }
+    }
+
+    /**
+     * Общие количества автоматов вариантов; состояния суммируются в том же порядке, что и в {@link Calculator}
+     *
+     * @param step номер шага
+     */
+    private void prepareTotalCounts(int step) {
+        double[][] states = getStates(step);
+        double[] totalCounts = mTotalCounts;
+        for (int variant = 0; variant < mVariantsCount; variant++) {
+            totalCounts[variant] = 0;
+        }
+        for (int state = 0; state < mStatesCount; state++) {
+            double[] counts = states[state];
+            for (int variant = 0; variant < mVariantsCount; variant++) {
+                totalCounts[variant] += counts[variant];
+            }
+        }
+    }
+
+    /**
+     * Вычисление переходов шага для всех вариантов
+     *
+     * @param step номер шага
+     */
+    private void applyTransitions(int step) {
+        TransitionPlan plan = mPlan;
+        double[][] target = getStates(step);
+        int transitionsCount = plan.getSize();
+        for (int transition = 0; transition < transitionsCount; transition++) {
+            int source = plan.mSourceStates[transition];
+            int operand = plan.mOperandStates[transition];
+            double[] sourceCounts = TransitionPlan.isStateExternal(source) ? mZeros :
+                    mDelayedStates[plan.mSourceDelays[transition]][source];
+            double[] operandCounts = TransitionPlan.isStateExternal(operand) ? mZeros :
+                    mDelayedStates[plan.mOperandDelays[transition]][operand];
+            plan.evaluateEnsemble(transition, sourceCounts, operandCounts, mTotalCounts, mProbabilities[transition],
+                    mTerms, mValues);
+            plan.applyEnsemble(transition, mValues, target);
+        }
+    }
+
+    /**
+     * Передача завершённого шага получателям вариантов; отрицательные значения заменяются нулями,
+     * если они не разрешены в задаче
+     *
+     * @param step номер шага
+     */
+    private void publishStep(int step) {
+        double[][] states = getStates(step);
+        double[] output = mOutputStates;
+        boolean allowNegative = mTask.isAllowNegative();
+        for (int variant = 0; variant < mVariantsCount; variant++) {
+            for (int state = 0; state < mStatesCount; state++) {
+                double value = states[state][variant];
+                output[state] = !allowNegative && value < 0 ? 0 : value;
+            }
+            mSinks[variant].onStep(step, output);
+        }
+    }
+
+    /**
+     * Выполнение расчётов синхронно
+     */
+    public void calculateSync() {
+        for (StepSink sink : mSinks) {
+            sink.onStart(mTask);
+        }
+        publishStep(0);
+        int stepsCount = mTask.getStepsCount();
+        for (int step = 1; step < stepsCount; step++) {
+            copyPreviousStep(step);
+            prepareDelayedStates(step);
+            prepareTotalCounts(step);
+            mPlan.prepareTerms(mDelayedStates, mTotalCounts, mTerms);
+            applyTransitions(step);
+            publishStep(step);
+        }
+        for (StepSink sink : mSinks) {
+            sink.onFinish();
+        }
+    }
+}
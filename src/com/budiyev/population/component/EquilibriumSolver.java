@@ -0,0 +1,877 @@
+/*
+ * Population
+ * Copyright (C) 2016 Yuriy Budiyev [yuriy.budiyev@yandex.ru]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see http://www.gnu.org/licenses/.
+ */
+package com.budiyev.population.component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.budiyev.population.model.Equilibrium;
+import com.budiyev.population.model.State;
+import com.budiyev.population.model.Task;
+
+/**
+ * Поиск установившегося состояния задачи без вычисления всех шагов: неподвижной точки отображения одного шага,
+ * построенного по плану переходов (на неподвижной точке состояния со всеми задержками совпадают).
+ * <p>
+ * Изменения состояний переходами сохраняют величины вида w·x, где w - решение w·S = 0, а S - матрица
+ * изменений состояний переходами; такие величины определяются начальными состояниями задачи
+ * и выделяют из множества неподвижных точек ту, к которой приходят вычисления по шагам.
+ * <p>
+ * Для задач только с линейными переходами изменение состояний за шаг линейно на каждом из участков,
+ * где не меняется выбор минимальной плотности. Неподвижные точки участка и его сохраняющиеся величины -
+ * базисы решений разреженных систем J·x = 0 и x·J = 0, где J - производные изменений состояний;
+ * из неподвижных точек выбирается та, на которой сохраняющиеся величины равны их значениям на вычислениях
+ * по шагам, для чего решается плотная система с количеством уравнений, равным количеству сохраняющихся
+ * величин. Если точка оказалась на другом участке, решение повторяется для него. Для остальных задач, а также если размерности базисов
+ * не совпадают, выполняются итерации одного шага с ускорением Андерсона, не изменяющие сохраняющихся величин.
+ * <p>
+ * Устойчивость оценивается спектральным радиусом линеаризованного шага (с учётом задержек) без направлений
+ * сохраняющихся величин: степенной метод с производными по направлению, вычисляемыми центральными разностями.
+ */
+public final class EquilibriumSolver {
+    public static final double DEFAULT_TOLERANCE = 1e-12;
+    public static final int DEFAULT_MAX_ITERATIONS = 1000;
+    private static final int ANDERSON_DEPTH = 5; // Количество запоминаемых прошлых итераций
+    private static final double ANDERSON_RESTART = 1e4; // Рост невязки относительно наименьшей для сброса истории
+    private static final double TRAJECTORY_DISTANCE = 1e-2; // Допустимое расстояние до точки, зависящей от пути
+    private static final int MAX_LINEAR_ITERATIONS = 50; // Наибольшее количество участков линейной задачи
+    private static final long MAX_TRAJECTORY_STEPS = 1 << 20; // Наибольшее количество шагов линейной задачи
+    private static final int TRANSITION_OPERATIONS = 16; // Стоимость вычисления перехода в операциях исключения
+    private static final int STABILITY_ITERATIONS = 200; // Итерации степенного метода
+    private static final double STABILITY_STEP = 1e-6; // Относительный шаг центральных разностей
+    private static final double RANK_THRESHOLD = 1e-10; // Относительный порог линейной зависимости
+    private final TransitionPlan mPlan; // План вычисления переходов
+    private final int mStatesCount; // Количество состояний
+    private final double mTolerance; // Допустимая относительная невязка
+    private final int mMaxIterations; // Наибольшее количество итераций
+    private final double[][] mHistory; // Состояния с учётом каждой из задержек
+    private final double[] mTerms; // Общие слагаемые шага
+    private final double[] mGradient; // Производные значения линейного перехода
+    private final int[] mDelayedTargets; // Изменяемые состояния производных по состояниям с задержкой
+    private final int[] mDelayedArguments; // Состояния с задержкой, по которым взяты производные
+    private final int[] mDelayedSteps; // Задержки состояний, по которым взяты производные
+    private final double[] mDelayedDerivatives; // Производные изменений состояний по состояниям с задержкой
+    private int mDelayedCount; // Количество производных по состояниям с задержкой
+    private final double[][] mStructuralLaws; // Сохраняющиеся величины, следующие из изменений состояний переходами
+    private double[][] mLaws; // Сохраняющиеся величины
+    private boolean mTrajectoryDependent; // Установившееся состояние зависит от пути вычислений по шагам
+    private int mIterations; // Количество итераций
+    private int mEvaluations; // Количество вычислений шага
+
+    /**
+     * @param task          задача
+     * @param tolerance     допустимая относительная невязка
+     * @param maxIterations наибольшее количество итераций
+     */
+    private EquilibriumSolver(Task task, double tolerance, int maxIterations) {
+        mPlan = TransitionPlan.compile(task);
+        mStatesCount = task.getStates().size();
+        mTolerance = tolerance;
+        mMaxIterations = maxIterations;
+        mHistory = new double[mPlan.getMaxDelay() + 1][];
+        mTerms = new double[mPlan.getTermsCount()];
+        mGradient = new double[2];
+        int derivativesCount = mPlan.getMaxDelay() > 0 ? mPlan.getSize() * 6 : 0;
+        mDelayedTargets = new int[derivativesCount];
+        mDelayedArguments = new int[derivativesCount];
+        mDelayedSteps = new int[derivativesCount];
+        mDelayedDerivatives = new double[derivativesCount];
+        mStructuralLaws = findStructuralConservationLaws();
+        mLaws = mStructuralLaws;
+    }
+
+    /**
+     * Поиск установившегося состояния с допустимой относительной невязкой {@link #DEFAULT_TOLERANCE}
+     *
+     * @param task задача
+     * @return установившееся состояние, к которому приходят вычисления от начальных состояний задачи
+     */
+    public static Equilibrium solve(Task task) {
+        return solve(task, DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS);
+    }
+
+    /**
+     * Поиск установившегося состояния
+     *
+     * @param task          задача
+     * @param tolerance     допустимая относительная невязка: наибольшее изменение состояния за шаг,
+     *                      отнесённое к наибольшему состоянию
+     * @param maxIterations наибольшее количество итераций
+     * @return установившееся состояние, к которому приходят вычисления от начальных состояний задачи
+     */
+    public static Equilibrium solve(Task task, double tolerance, int maxIterations) {
+        return new EquilibriumSolver(task, tolerance, maxIterations).solve(task.getStates());
+    }
+
+    private Equilibrium solve(List<State> initialStates) {
+        double[] initial = new double[mStatesCount];
+        for (int state = 0; state < mStatesCount; state++) {
+            initial[state] = initialStates.get(state).getCount();
+        }
+        double[] states = null;
+        int method = Equilibrium.METHOD_LINEAR;
+        double residual = Double.NaN;
+        if (mPlan.isLinear()) {
+            states = solveLinear(initial);
+            if (states != null) {
+                residual = residual(states, new double[mStatesCount]);
+            }
+        }
+        if (!(residual <= mTolerance)) {
+            if (states == null) {
+                mLaws = mStructuralLaws;
+            }
+            method = Equilibrium.METHOD_ANDERSON;
+            states = iterateAnderson(states != null ? states : initial);
+            residual = residual(states, new double[mStatesCount]);
+        }
+        if (mPlan.isLinear()) {
+            mTrajectoryDependent = isTrajectoryDependent(states);
+        }
+        boolean converged = residual <= mTolerance;
+        double spectralRadius = estimateSpectralRadius(states);
+        return new Equilibrium(states, method, converged, residual, mIterations, mEvaluations, mLaws.length,
+                mTrajectoryDependent, spectralRadius);
+    }
+
+    /**
+     * Вычисление одного шага
+     *
+     * @param history состояния с учётом каждой из задержек
+     * @param target  состояния после шага (результат)
+     */
+    private void step(double[][] history, double[] target) {
+        TransitionPlan plan = mPlan;
+        double[] previous = history[0];
+        System.arraycopy(previous, 0, target, 0, mStatesCount);
+        double totalCount = 0;
+        for (int state = 0; state < mStatesCount; state++) {
+            totalCount += previous[state];
+        }
+        plan.prepareTerms(history, totalCount, mTerms);
+        for (int transition = 0; transition < plan.getSize(); transition++) {
+            plan.apply(transition, plan.evaluate(transition, history[plan.mSourceDelays[transition]],
+                    history[plan.mOperandDelays[transition]], totalCount, mTerms), target);
+        }
+        mEvaluations++;
+    }
+
+    /**
+     * Вычисление шага от постоянных состояний
+     *
+     * @param states состояния на всех шагах с учётом задержек
+     * @param target состояния после шага (результат)
+     */
+    private void step(double[] states, double[] target) {
+        Arrays.fill(mHistory, states);
+        step(mHistory, target);
+    }
+
+    /**
+     * @param states состояния
+     * @param work   рабочий массив
+     * @return наибольшее изменение состояния за шаг, отнесённое к наибольшему состоянию
+     */
+    private double residual(double[] states, double[] work) {
+        step(states, work);
+        return distance(states, work);
+    }
+
+    /**
+     * @param states состояния
+     * @param other  другие состояния
+     * @return наибольшая разность состояний, отнесённая к наибольшему состоянию
+     */
+    private double distance(double[] states, double[] other) {
+        double difference = 0;
+        for (int state = 0; state < mStatesCount; state++) {
+            difference = Math.max(difference, Math.abs(states[state] - other[state]));
+        }
+        double scale = norm(states);
+        return difference / (scale > 0 ? scale : 1);
+    }
+
+    /**
+     * Поиск неподвижной точки задачи только с линейными переходами.
+     * Сохраняющиеся величины находятся по производным изменений состояний на участке: кроме следующих
+     * из изменений состояний переходами, это, например, доли, которые накапливаются в состояниях,
+     * не уменьшаемых ни одним переходом. Такие величины сохраняются только в пределах участка, поэтому
+     * их значения берутся из состояний, к которым пришли вычисления по шагам: пока точка не найдена,
+     * вычисляются следующие шаги (каждый раз вдвое больше, но не меньше, чем сопоставимо по объёму
+     * с исключением систем), и точка ищется для участка последнего шага. Если сохраняются только величины,
+     * следующие из изменений состояний переходами, их значения от пути не зависят, и точка, оказавшаяся
+     * на другом участке, сразу используется для выбора участка. Точка, зависящая от пути
+     * ({@link #isTrajectoryDependent(double[])}), принимается, только когда вычисления по шагам подошли к ней
+     * ближе {@link #TRAJECTORY_DISTANCE} на том же участке: до этого они ещё могут перейти на другой участок.
+     * Если вычисления по шагам сошлись раньше, возвращаются их состояния
+     *
+     * @param initial начальные состояния
+     * @return неподвижная точка (последнее приближение) или {@code null}, если точка участка
+     * не определяется сохраняющимися величинами
+     */
+    private double[] solveLinear(double[] initial) {
+        TransitionPlan plan = mPlan;
+        int size = plan.getSize();
+        SparseLinearSystem derivatives = new SparseLinearSystem(mStatesCount);
+        SparseLinearSystem transposed = new SparseLinearSystem(mStatesCount);
+        boolean[] pieces = new boolean[size];
+        boolean[] solutionPieces = new boolean[size];
+        boolean[] trajectoryPieces = new boolean[size];
+        double[][] trajectory = new double[mHistory.length][];
+        for (int delay = 0; delay < trajectory.length; delay++) {
+            trajectory[delay] = initial.clone();
+        }
+        double[] next = new double[mStatesCount];
+        double[] work = new double[mStatesCount];
+        double[] states = initial;
+        double[] solution = null;
+        selectPieces(states, pieces);
+        long batch = 0;
+        long trajectorySteps = 0;
+        for (int iteration = 0; iteration < MAX_LINEAR_ITERATIONS; iteration++) {
+            mIterations++;
+            derivatives.clear();
+            transposed.clear();
+            mDelayedCount = 0;
+            for (int transition = 0; transition < size; transition++) {
+                int source = plan.mSourceStates[transition];
+                int operand = plan.mOperandStates[transition];
+                plan.linearGradient(transition, count(states, source), count(states, operand), mGradient);
+                addDerivatives(derivatives, transposed, transition, plan.mSourceTargets[transition],
+                        plan.mSourceFactors[transition]);
+                addDerivatives(derivatives, transposed, transition, plan.mOperandTargets[transition],
+                        plan.mOperandFactors[transition]);
+                addDerivatives(derivatives, transposed, transition, plan.mResultTargets[transition],
+                        plan.mResultFactors[transition]);
+            }
+            derivatives.reduce(RANK_THRESHOLD);
+            transposed.reduce(RANK_THRESHOLD);
+            if (derivatives.getFreeColumnsCount() != transposed.getFreeColumnsCount()) {
+                return null;
+            }
+            double[][] laws = getNullVectors(transposed);
+            solution = selectFixedPoint(getNullVectors(derivatives), laws, trajectory);
+            if (solution == null) {
+                return null;
+            }
+            mLaws = laws;
+            if (residual(solution, work) <= mTolerance) {
+                if (!isTrajectoryDependent(solution)) {
+                    break;
+                }
+                double distance = distance(solution, trajectory[0]);
+                if (distance <= mTolerance) {
+                    break;
+                }
+                selectPieces(trajectory[0], trajectoryPieces);
+                if (distance <= TRAJECTORY_DISTANCE && isPieceOf(solution, trajectoryPieces)) {
+                    break;
+                }
+            } else if (laws.length == mStructuralLaws.length && selectPieces(solution, solutionPieces, pieces)) {
+                states = solution;
+                System.arraycopy(solutionPieces, 0, pieces, 0, size);
+                continue;
+            }
+            batch = Math.max(batch * 2,
+                    (derivatives.getOperations() + transposed.getOperations()) / (size * TRANSITION_OPERATIONS) + 1);
+            if (trajectorySteps + batch > MAX_TRAJECTORY_STEPS) {
+                break;
+            }
+            for (long i = 0; i < batch; i++) {
+                next = advance(trajectory, next);
+            }
+            trajectorySteps += batch;
+            states = trajectory[0];
+            if (residual(states, work) <= mTolerance) {
+                solution = states;
+                break;
+            }
+            selectPieces(states, pieces);
+        }
+        return solution;
+    }
+
+    /**
+     * Вычисление следующего шага вычислений по шагам
+     *
+     * @param trajectory состояния с учётом каждой из задержек (сдвигаются на шаг)
+     * @param next       массив для состояний следующего шага
+     * @return освободившийся массив состояний самого давнего шага
+     */
+    private double[] advance(double[][] trajectory, double[] next) {
+        step(trajectory, next);
+        double[] oldest = trajectory[trajectory.length - 1];
+        System.arraycopy(trajectory, 0, trajectory, 1, trajectory.length - 1);
+        trajectory[0] = next;
+        return oldest;
+    }
+
+    /**
+     * Выбор неподвижной точки участка, на которой сохраняющиеся величины участка равны их значениям
+     * на последнем шаге: x = N·a, где (W·N)·a = W·x(T). С задержками сохраняются величины
+     * w·x(T) + Σ w·A(d)·(x(T-1) + ... + x(T-d)), где A(d) - производные по состояниям с задержкой d;
+     * на неподвижной точке они равны w·(E + Σ d·A(d))·x
+     *
+     * @param directions базис неподвижных точек участка N
+     * @param laws       базис сохраняющихся величин участка W
+     * @param trajectory состояния с учётом каждой из задержек, x(T), x(T-1), ...
+     * @return неподвижная точка или {@code null}, если сохраняющиеся величины её не определяют
+     */
+    private double[] selectFixedPoint(double[][] directions, double[][] laws, double[][] trajectory) {
+        int lawsCount = laws.length;
+        double[][] matrix = new double[lawsCount][lawsCount];
+        double[] right = new double[lawsCount];
+        double[] row = new double[mStatesCount];
+        for (int law = 0; law < lawsCount; law++) {
+            double[] weights = laws[law];
+            System.arraycopy(weights, 0, row, 0, mStatesCount);
+            double value = dot(weights, trajectory[0]);
+            for (int entry = 0; entry < mDelayedCount; entry++) {
+                double weight = weights[mDelayedTargets[entry]] * mDelayedDerivatives[entry];
+                if (weight != 0) {
+                    int argument = mDelayedArguments[entry];
+                    int delay = mDelayedSteps[entry];
+                    row[argument] += delay * weight;
+                    for (int previous = 1; previous <= delay; previous++) {
+                        value += weight * trajectory[previous][argument];
+                    }
+                }
+            }
+            for (int direction = 0; direction < lawsCount; direction++) {
+                matrix[law][direction] = dot(row, directions[direction]);
+            }
+            right[law] = value;
+        }
+        double[] coefficients = new double[lawsCount];
+        if (!solveDense(matrix, right, coefficients)) {
+            return null;
+        }
+        double[] states = new double[mStatesCount];
+        for (int direction = 0; direction < lawsCount; direction++) {
+            subtract(states, directions[direction], -coefficients[direction]);
+        }
+        return states;
+    }
+
+    /**
+     * Проверка, что неподвижная точка задачи только с линейными переходами может не совпадать
+     * с пределом вычислений по шагам
+     *
+     * @param states неподвижная точка
+     * @return множество неподвижных точек имеет направления, не закреплённые величинами, следующими
+     * из изменений состояний переходами, или точка лежит на границе нескольких его частей
+     */
+    private boolean isTrajectoryDependent(double[] states) {
+        return mLaws.length > mStructuralLaws.length || countFreeDirections(states) > mStructuralLaws.length ||
+                hasInactiveTransitions(states);
+    }
+
+    /**
+     * Количество независимых направлений множества неподвижных точек задачи только с линейными переходами:
+     * переходы, для которых плотности исходного состояния и операнда совпадают, не учитываются, так как
+     * при изменении одной из плотностей в сторону увеличения минимальная плотность не изменяется
+     *
+     * @param states неподвижная точка
+     * @return размерность нулевого пространства матрицы производных
+     */
+    private int countFreeDirections(double[] states) {
+        TransitionPlan plan = mPlan;
+        SparseLinearSystem derivatives = new SparseLinearSystem(mStatesCount);
+        double tie = RANK_THRESHOLD * norm(states);
+        for (int transition = 0; transition < plan.getSize(); transition++) {
+            int source = plan.mSourceStates[transition];
+            int operand = plan.mOperandStates[transition];
+            double sourceCount = count(states, source);
+            double operandCount = count(states, operand);
+            double sourceDensity = sourceCount / plan.mSourceDivisors[transition];
+            double operandDensity = operandCount / plan.mOperandDivisors[transition];
+            if (plan.mKernels[transition] == TransitionPlan.KERNEL_LINEAR &&
+                    Math.abs(sourceDensity - operandDensity) <= tie) {
+                continue;
+            }
+            plan.linearGradient(transition, sourceCount, operandCount, mGradient);
+            addDerivatives(derivatives, null, transition, plan.mSourceTargets[transition],
+                    plan.mSourceFactors[transition]);
+            addDerivatives(derivatives, null, transition, plan.mOperandTargets[transition],
+                    plan.mOperandFactors[transition]);
+            addDerivatives(derivatives, null, transition, plan.mResultTargets[transition],
+                    plan.mResultFactors[transition]);
+        }
+        return mStatesCount - derivatives.reduce(RANK_THRESHOLD);
+    }
+
+    /**
+     * @param states неподвижная точка
+     * @return есть линейный переход, минимальная плотность которого равна нулю, а плотность другого
+     * состояния нет: точка лежит на границе области неотрицательных состояний, где сходятся несколько
+     * частей множества неподвижных точек, и вычисления по шагам могут прийти к любой из них
+     */
+    private boolean hasInactiveTransitions(double[] states) {
+        TransitionPlan plan = mPlan;
+        double zero = RANK_THRESHOLD * norm(states);
+        for (int transition = 0; transition < plan.getSize(); transition++) {
+            if (plan.mKernels[transition] != TransitionPlan.KERNEL_LINEAR) {
+                continue;
+            }
+            double sourceDensity = count(states, plan.mSourceStates[transition]) / plan.mSourceDivisors[transition];
+            double operandDensity =
+                    count(states, plan.mOperandStates[transition]) / plan.mOperandDivisors[transition];
+            if (Math.abs(Math.min(sourceDensity, operandDensity)) <= zero &&
+                    Math.max(sourceDensity, operandDensity) > zero) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Добавление производных изменения состояния переходом в матрицу производных
+     * и в транспонированную матрицу производных; если транспонированная матрица задана,
+     * производные по состояниям с задержкой запоминаются для вычисления сохраняющихся величин
+     *
+     * @param derivatives матрица производных
+     * @param transposed  транспонированная матрица производных или {@code null}
+     * @param transition  позиция перехода в плане
+     * @param target      изменяемое состояние
+     * @param factor      коэффициент изменения состояния
+     */
+    private void addDerivatives(SparseLinearSystem derivatives, SparseLinearSystem transposed, int transition,
+            int target, double factor) {
+        if (target == TransitionPlan.NO_TARGET) {
+            return;
+        }
+        TransitionPlan plan = mPlan;
+        addDerivative(derivatives, transposed, target, plan.mSourceStates[transition],
+                plan.mSourceDelays[transition], factor * mGradient[0]);
+        addDerivative(derivatives, transposed, target, plan.mOperandStates[transition],
+                plan.mOperandDelays[transition], factor * mGradient[1]);
+    }
+
+    private void addDerivative(SparseLinearSystem derivatives, SparseLinearSystem transposed, int target,
+            int argument, int delay, double value) {
+        if (TransitionPlan.isStateExternal(argument) || value == 0) {
+            return;
+        }
+        derivatives.add(target, argument, value);
+        if (transposed == null) {
+            return;
+        }
+        transposed.add(argument, target, value);
+        if (delay > 0) {
+            int entry = mDelayedCount++;
+            mDelayedTargets[entry] = target;
+            mDelayedArguments[entry] = argument;
+            mDelayedSteps[entry] = delay;
+            mDelayedDerivatives[entry] = value;
+        }
+    }
+
+    /**
+     * Выбор минимальной плотности линейных переходов для состояний
+     *
+     * @param states состояния
+     * @param pieces для каждого перехода: плотность исходного состояния не больше плотности операнда (результат)
+     */
+    private void selectPieces(double[] states, boolean[] pieces) {
+        TransitionPlan plan = mPlan;
+        for (int transition = 0; transition < pieces.length; transition++) {
+            pieces[transition] = count(states, plan.mSourceStates[transition]) / plan.mSourceDivisors[transition] <=
+                    count(states, plan.mOperandStates[transition]) / plan.mOperandDivisors[transition];
+        }
+    }
+
+    /**
+     * @return выбор минимальной плотности для состояний отличается от прошлого
+     */
+    private boolean selectPieces(double[] states, boolean[] pieces, boolean[] previousPieces) {
+        selectPieces(states, pieces);
+        TransitionPlan plan = mPlan;
+        for (int transition = 0; transition < pieces.length; transition++) {
+            if (plan.mKernels[transition] == TransitionPlan.KERNEL_LINEAR &&
+                    pieces[transition] != previousPieces[transition]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Проверка, что состояния на участке; переходы, для которых плотности равны с точностью
+     * до допустимой невязки, на любом участке
+     *
+     * @param states состояния
+     * @param pieces выбор минимальной плотности линейных переходов
+     * @return состояния на участке
+     */
+    private boolean isPieceOf(double[] states, boolean[] pieces) {
+        TransitionPlan plan = mPlan;
+        double threshold = mTolerance * norm(states);
+        for (int transition = 0; transition < pieces.length; transition++) {
+            if (plan.mKernels[transition] == TransitionPlan.KERNEL_LINEAR) {
+                double source = count(states, plan.mSourceStates[transition]) / plan.mSourceDivisors[transition];
+                double operand = count(states, plan.mOperandStates[transition]) / plan.mOperandDivisors[transition];
+                if ((source <= operand) != pieces[transition] && Math.abs(source - operand) > threshold) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Итерации одного шага с ускорением Андерсона: следующее приближение - сочетание результатов шага
+     * от нескольких последних приближений с коэффициентами, минимизирующими невязку (сумма коэффициентов
+     * равна единице, поэтому сохраняющиеся величины не изменяются)
+     *
+     * @param initial начальное приближение
+     * @return последнее приближение
+     */
+    private double[] iterateAnderson(double[] initial) {
+        int statesCount = mStatesCount;
+        double[] states = initial.clone();
+        double[] mapped = new double[statesCount];
+        double[] residual = new double[statesCount];
+        double[] previousMapped = new double[statesCount];
+        double[] previousResidual = new double[statesCount];
+        double[][] residualDifferences = new double[ANDERSON_DEPTH][statesCount];
+        double[][] mappedDifferences = new double[ANDERSON_DEPTH][statesCount];
+        double[] coefficients = new double[ANDERSON_DEPTH];
+        int stored = 0;
+        int next = 0;
+        double bestNorm = Double.POSITIVE_INFINITY;
+        for (int iteration = 0; iteration < mMaxIterations; iteration++) {
+            mIterations++;
+            step(states, mapped);
+            for (int state = 0; state < statesCount; state++) {
+                residual[state] = mapped[state] - states[state];
+            }
+            double residualNorm = norm(residual);
+            double scale = norm(states);
+            if (residualNorm / (scale > 0 ? scale : 1) <= mTolerance) {
+                return states;
+            }
+            if (!(residualNorm <= bestNorm * ANDERSON_RESTART)) {
+                stored = 0;
+                next = 0;
+            } else if (iteration > 0) {
+                for (int state = 0; state < statesCount; state++) {
+                    residualDifferences[next][state] = residual[state] - previousResidual[state];
+                    mappedDifferences[next][state] = mapped[state] - previousMapped[state];
+                }
+                next = (next + 1) % ANDERSON_DEPTH;
+                stored = Math.min(stored + 1, ANDERSON_DEPTH);
+            }
+            bestNorm = Math.min(bestNorm, residualNorm);
+            System.arraycopy(residual, 0, previousResidual, 0, statesCount);
+            System.arraycopy(mapped, 0, previousMapped, 0, statesCount);
+            leastSquares(residualDifferences, stored, residual, coefficients);
+            for (int state = 0; state < statesCount; state++) {
+                double value = mapped[state];
+                for (int column = 0; column < stored; column++) {
+                    value -= mappedDifferences[column][state] * coefficients[column];
+                }
+                states[state] = value;
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Решение задачи наименьших квадратов min |b - A·x| ортогонализацией Грама-Шмидта;
+     * почти линейно зависимые столбцы не используются
+     *
+     * @param columns      столбцы матрицы A
+     * @param columnsCount количество столбцов
+     * @param right        вектор b
+     * @param solution     решение (результат)
+     */
+    private static void leastSquares(double[][] columns, int columnsCount, double[] right, double[] solution) {
+        double[][] basis = new double[columnsCount][];
+        double[][] triangle = new double[columnsCount][columnsCount];
+        for (int column = 0; column < columnsCount; column++) {
+            double[] vector = columns[column].clone();
+            double initialNorm = Math.sqrt(dot(vector, vector));
+            for (int previous = 0; previous < column; previous++) {
+                if (basis[previous] != null) {
+                    double projection = dot(basis[previous], vector);
+                    triangle[previous][column] = projection;
+                    subtract(vector, basis[previous], projection);
+                }
+            }
+            double vectorNorm = Math.sqrt(dot(vector, vector));
+            if (vectorNorm > RANK_THRESHOLD * initialNorm) {
+                for (int i = 0; i < vector.length; i++) {
+                    vector[i] /= vectorNorm;
+                }
+                basis[column] = vector;
+                triangle[column][column] = vectorNorm;
+            }
+        }
+        for (int column = columnsCount - 1; column >= 0; column--) {
+            if (basis[column] == null) {
+                solution[column] = 0;
+                continue;
+            }
+            double value = dot(basis[column], right);
+            for (int later = column + 1; later < columnsCount; later++) {
+                value -= triangle[column][later] * solution[later];
+            }
+            solution[column] = value / triangle[column][column];
+        }
+    }
+
+    /**
+     * Оценка спектрального радиуса линеаризованного шага с учётом задержек без направлений
+     * сохраняющихся величин: средний рост отклонения за шаг на второй половине итераций степенного метода
+     *
+     * @param states установившееся состояние
+     * @return оценка спектрального радиуса
+     */
+    private double estimateSpectralRadius(double[] states) {
+        int depth = mHistory.length;
+        int statesCount = mStatesCount;
+        double[][] deviation = new double[depth][statesCount];
+        Random random = new Random(statesCount);
+        for (double[] delayed : deviation) {
+            for (int state = 0; state < statesCount; state++) {
+                delayed[state] = random.nextDouble() - 0.5;
+            }
+        }
+        double[][] lawsBasis = orthonormalize(mLaws);
+        project(lawsBasis, deviation[0]);
+        if (!(normalize(deviation) > 0)) {
+            return 0;
+        }
+        double scale = norm(states);
+        double h = STABILITY_STEP * (scale > 0 ? scale : 1);
+        double[][] history = new double[depth][statesCount];
+        double[] forward = new double[statesCount];
+        double[] backward = new double[statesCount];
+        double logarithmSum = 0;
+        int samples = 0;
+        for (int iteration = 0; iteration < STABILITY_ITERATIONS; iteration++) {
+            shiftHistory(history, states, deviation, h);
+            step(history, forward);
+            shiftHistory(history, states, deviation, -h);
+            step(history, backward);
+            double[] oldest = deviation[depth - 1];
+            System.arraycopy(deviation, 0, deviation, 1, depth - 1);
+            for (int state = 0; state < statesCount; state++) {
+                oldest[state] = (forward[state] - backward[state]) / (2 * h);
+            }
+            deviation[0] = oldest;
+            project(lawsBasis, oldest);
+            double growth = normalize(deviation);
+            if (!(growth > 0)) {
+                return 0;
+            }
+            if (iteration >= STABILITY_ITERATIONS / 2) {
+                logarithmSum += Math.log(growth);
+                samples++;
+            }
+        }
+        return Math.exp(logarithmSum / samples);
+    }
+
+    /**
+     * Заполнение состояний с задержками отклонёнными от установившегося состояния
+     */
+    private static void shiftHistory(double[][] history, double[] states, double[][] deviation, double h) {
+        for (int delay = 0; delay < history.length; delay++) {
+            double[] delayed = history[delay];
+            double[] delayedDeviation = deviation[delay];
+            for (int state = 0; state < states.length; state++) {
+                delayed[state] = states[state] + h * delayedDeviation[state];
+            }
+        }
+    }
+
+    /**
+     * Исключение из отклонения направлений, изменяющих сохраняющиеся величины
+     */
+    private void project(double[][] lawsBasis, double[] vector) {
+        for (double[] law : lawsBasis) {
+            subtract(vector, law, dot(law, vector));
+        }
+    }
+
+    /**
+     * Нормирование отклонения состояний со всеми задержками
+     *
+     * @return норма до нормирования
+     */
+    private static double normalize(double[][] deviation) {
+        double sum = 0;
+        for (double[] delayed : deviation) {
+            sum += dot(delayed, delayed);
+        }
+        double norm = Math.sqrt(sum);
+        if (norm > 0) {
+            for (double[] delayed : deviation) {
+                for (int i = 0; i < delayed.length; i++) {
+                    delayed[i] /= norm;
+                }
+            }
+        }
+        return norm;
+    }
+
+    /**
+     * Сохраняющиеся величины, следующие из изменений состояний переходами: базис решений w·S = 0,
+     * где столбцы S - изменения состояний переходами. Переходы изменяют не больше трёх состояний,
+     * поэтому система разреженная, а базисные величины отличны от нуля только в пределах связной части
+     * состояний, изменяемых общими переходами
+     *
+     * @return базис сохраняющихся величин
+     */
+    private double[][] findStructuralConservationLaws() {
+        TransitionPlan plan = mPlan;
+        int size = plan.getSize();
+        SparseLinearSystem changes = new SparseLinearSystem(size, mStatesCount);
+        for (int transition = 0; transition < size; transition++) {
+            addChange(changes, transition, plan.mSourceTargets[transition], plan.mSourceFactors[transition]);
+            addChange(changes, transition, plan.mOperandTargets[transition], plan.mOperandFactors[transition]);
+            addChange(changes, transition, plan.mResultTargets[transition], plan.mResultFactors[transition]);
+        }
+        changes.reduce(RANK_THRESHOLD);
+        return getNullVectors(changes);
+    }
+
+    /**
+     * @param system исключённая система
+     * @return базис решений однородной системы
+     */
+    private double[][] getNullVectors(SparseLinearSystem system) {
+        double[][] vectors = new double[system.getFreeColumnsCount()][mStatesCount];
+        for (int free = 0; free < vectors.length; free++) {
+            system.getNullVector(free, vectors[free]);
+        }
+        return vectors;
+    }
+
+    /**
+     * Решение плотной системы линейных уравнений методом Гаусса с выбором главного элемента по столбцу
+     *
+     * @param matrix   коэффициенты (изменяются)
+     * @param right    правые части (изменяются)
+     * @param solution решение (результат)
+     * @return {@code true}, если система невырожденная
+     */
+    private static boolean solveDense(double[][] matrix, double[] right, double[] solution) {
+        int size = right.length;
+        double scale = 0;
+        for (double[] row : matrix) {
+            scale = Math.max(scale, norm(row));
+        }
+        for (int column = 0; column < size; column++) {
+            int pivot = column;
+            for (int row = column + 1; row < size; row++) {
+                if (Math.abs(matrix[row][column]) > Math.abs(matrix[pivot][column])) {
+                    pivot = row;
+                }
+            }
+            if (!(Math.abs(matrix[pivot][column]) > RANK_THRESHOLD * scale)) {
+                return false;
+            }
+            double[] pivotRow = matrix[pivot];
+            matrix[pivot] = matrix[column];
+            matrix[column] = pivotRow;
+            double pivotRight = right[pivot];
+            right[pivot] = right[column];
+            right[column] = pivotRight;
+            for (int row = column + 1; row < size; row++) {
+                double factor = matrix[row][column] / pivotRow[column];
+                if (factor != 0) {
+                    double[] target = matrix[row];
+                    for (int i = column; i < size; i++) {
+                        target[i] -= factor * pivotRow[i];
+                    }
+                    right[row] -= factor * pivotRight;
+                }
+            }
+        }
+        for (int row = size - 1; row >= 0; row--) {
+            double value = right[row];
+            for (int column = row + 1; column < size; column++) {
+                value -= matrix[row][column] * solution[column];
+            }
+            solution[row] = value / matrix[row][row];
+        }
+        return true;
+    }
+
+    private static void addChange(SparseLinearSystem changes, int transition, int target, double factor) {
+        if (target != TransitionPlan.NO_TARGET) {
+            changes.add(transition, target, factor);
+        }
+    }
+
+    /**
+     * Ортонормированный базис линейной оболочки векторов
+     */
+    private static double[][] orthonormalize(double[][] vectors) {
+        double[][] basis = new double[vectors.length][];
+        int count = 0;
+        for (double[] source : vectors) {
+            double[] vector = source.clone();
+            for (int i = 0; i < count; i++) {
+                subtract(vector, basis[i], dot(basis[i], vector));
+            }
+            double vectorNorm = Math.sqrt(dot(vector, vector));
+            if (vectorNorm > 0) {
+                for (int i = 0; i < vector.length; i++) {
+                    vector[i] /= vectorNorm;
+                }
+                basis[count++] = vector;
+            }
+        }
+        double[][] result = new double[count][];
+        System.arraycopy(basis, 0, result, 0, count);
+        return result;
+    }
+
+    private static double count(double[] states, int state) {
+        return TransitionPlan.isStateExternal(state) ? 0 : states[state];
+    }
+
+    private static double dot(double[] a, double[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static void subtract(double[] vector, double[] direction, double factor) {
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] -= factor * direction[i];
+        }
+    }
+
+    /**
+     * @return наибольшее по модулю значение
+     */
+    private static double norm(double[] vector) {
+        double max = 0;
+        for (double value : vector) {
+            max = Math.max(max, Math.abs(value));
+        }
+        return max;
+    }
+}
@@ -0,0 +1,459 @@
+/*
+ * Population
+ * Copyright (C) 2016 Yuriy Budiyev [yuriy.budiyev@yandex.ru]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see http://www.gnu.org/licenses/.
+ */
+package com.budiyev.population.component;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.List;
+
+import com.budiyev.population.model.Result;
+import com.budiyev.population.model.State;
+import com.budiyev.population.model.TransitionMode;
+
+/**
+ * Вычисления с фиксированной точкой для задач, содержащих только линейные переходы.
+ * Количества хранятся как целые long с общим десятичным масштабом, константы переходов берутся
+ * в их десятичной записи. Пока каждая операция выполняется без переполнения и без остатка,
+ * результаты точные. Если операция дала бы остаток, масштаб увеличивается, пока значения
+ * помещаются в long, и шаг вычисляется заново. Когда увеличить масштаб уже нельзя, шаг вычисляется
+ * заново в BigDecimal, и дальше вычисления продолжаются в BigDecimal с округлением до точности задачи:
+ * начиная с этого шага результаты уже не точные.
+ */
+final class FixedPointEngine {
+    private static final int MAX_DIGITS = 18; // Количество десятичных цифр, всегда представимых в long
+    private static final int HEADROOM_DIGITS = 3; // Запас цифр целой части для роста количеств
+    private static final long[] POWERS_OF_TEN = buildPowersOfTen();
+    private final TransitionPlan mPlan; // План вычисления переходов
+    private final MathContext mMathContext; // Точность вычислений в BigDecimal
+    private final int mStatesCount; // Количество состояний
+    private int mScale; // Десятичный масштаб количеств
+    private final long[][] mStates; // Кольцевой буфер масштабированных количеств последних шагов
+    private final BigDecimal[][] mStatesDecimal; // Кольцевой буфер состояний после перехода на BigDecimal
+    private final Constant[] mProbabilities; // Вероятности
+    private final Constant[] mOperandCoefficients; // Коэффициенты операндов
+    private final Constant[] mSourceDivisors; // Линейные делители исходных состояний
+    private final Constant[] mOperandDivisors; // Линейные делители операндов
+    private final Constant[] mCombinedDivisors; // Линейные делители для совпадающих состояний
+    private final Constant[] mSourceFactors; // Множители изменения исходных состояний
+    private final Constant[] mOperandFactors; // Множители изменения операндов
+    private final Constant[] mResultFactors; // Множители изменения результирующих состояний
+    private boolean mExact; // Вычисления выполняются в long без потери точности
+    private int mInexactStep = Result.EXACT; // Первый шаг, вычисленный с округлением
+
+    /**
+     * @param plan        план вычисления переходов, содержащий только линейные переходы
+     * @param states      начальные состояния
+     * @param mathContext точность вычислений после перехода на BigDecimal
+     */
+    FixedPointEngine(TransitionPlan plan, List<State> states, MathContext mathContext) {
+        mPlan = plan;
+        mMathContext = mathContext;
+        int statesCount = states.size();
+        mStatesCount = statesCount;
+        int size = plan.getSize();
+        mProbabilities = new Constant[size];
+        mOperandCoefficients = new Constant[size];
+        mSourceDivisors = new Constant[size];
+        mOperandDivisors = new Constant[size];
+        mCombinedDivisors = new Constant[size];
+        mSourceFactors = new Constant[size];
+        mOperandFactors = new Constant[size];
+        mResultFactors = new Constant[size];
+        for (int transition = 0; transition < size; transition++) {
+            mProbabilities[transition] = new Constant(plan.mProbabilities[transition]);
+            mOperandCoefficients[transition] = new Constant(plan.mOperandCoefficients[transition]);
+            mSourceDivisors[transition] = new Constant(plan.mSourceDivisors[transition]);
+            mOperandDivisors[transition] = new Constant(plan.mOperandDivisors[transition]);
+            mCombinedDivisors[transition] = new Constant(plan.mCombinedDivisors[transition]);
+            mSourceFactors[transition] = new Constant(plan.mSourceFactors[transition]);
+            mOperandFactors[transition] = new Constant(plan.mOperandFactors[transition]);
+            mResultFactors[transition] = new Constant(plan.mResultFactors[transition]);
+        }
+        boolean exact = isExact(mProbabilities) && isExact(mOperandCoefficients) && isExact(mSourceDivisors) &&
+                isExact(mOperandDivisors) && isExact(mCombinedDivisors) && isExact(mSourceFactors) &&
+                isExact(mOperandFactors) && isExact(mResultFactors);
+        BigDecimal[] initial = new BigDecimal[statesCount];
+        BigDecimal totalCount = BigDecimal.ZERO;
+        for (int state = 0; state < statesCount; state++) {
+            BigDecimal count = BigDecimal.valueOf(states.get(state).getCount());
+            initial[state] = count;
+            totalCount = totalCount.add(count.abs());
+        }
+        int scale = MAX_DIGITS - HEADROOM_DIGITS - Math.max(totalCount.precision() - totalCount.scale(), 1);
+        mScale = scale;
+        int length = plan.getMaxDelay() + 2;
+        mStates = new long[length][statesCount];
+        mStatesDecimal = new BigDecimal[length][statesCount];
+        exact &= scale >= 0;
+        for (int state = 0; exact && state < statesCount; state++) {
+            BigDecimal count = initial[state];
+            if (count.stripTrailingZeros().scale() > scale) {
+                exact = false;
+            } else {
+                mStates[0][state] = count.setScale(scale).unscaledValue().longValue();
+            }
+        }
+        if (!exact) {
+            System.arraycopy(initial, 0, mStatesDecimal[0], 0, statesCount);
+            mInexactStep = 1;
+        }
+        mExact = exact;
+    }
+
+    /**
+     * @return первый шаг, вычисленный в BigDecimal с округлением, или {@link Result#EXACT},
+     * если до сих пор все шаги вычислены в long без потери точности
+     */
+    int getInexactStep() {
+        return mInexactStep;
+    }
+
+    /**
+     * Вычисление шага
+     *
+     * @param step   номер шага
+     * @param output состояния шага в double
+     */
+    void calculateStep(int step, double[] output) {
+        if (mExact) {
+            do {
+                try {
+                    calculateStepExact(step);
+                    long[] states = getStates(step);
+                    for (int state = 0; state < mStatesCount; state++) {
+                        output[state] = doubleValue(states[state]);
+                    }
+                    return;
+                } catch (ArithmeticException e) {
+                    // Точность была бы потеряна: увеличение масштаба или переход на BigDecimal
+                }
+            } while (rescale(step));
+            switchToDecimal(step);
+        }
+        calculateStepDecimal(step);
+        BigDecimal[] states = getStatesDecimal(step);
+        for (int state = 0; state < mStatesCount; state++) {
+            output[state] = Calculator.doubleValue(states[state]);
+        }
+    }
+
+    private long[] getStates(int step) {
+        return mStates[step % mStates.length];
+    }
+
+    private BigDecimal[] getStatesDecimal(int step) {
+        return mStatesDecimal[step % mStatesDecimal.length];
+    }
+
+    /**
+     * Вычисление шага в long; при переполнении или остатке деления выбрасывается {@link ArithmeticException}
+     */
+    private void calculateStepExact(int step) {
+        TransitionPlan plan = mPlan;
+        long[] states = getStates(step);
+        System.arraycopy(getStates(step - 1), 0, states, 0, mStatesCount);
+        for (int transition = 0; transition < plan.getSize(); transition++) {
+            long[] sourceStates = getStates(Calculator.delay(step - 1, plan.mSourceDelays[transition]));
+            long[] operandStates = getStates(Calculator.delay(step - 1, plan.mOperandDelays[transition]));
+            int mode = plan.mModes[transition];
+            Constant probability = mProbabilities[transition];
+            Constant operandCoefficient = mOperandCoefficients[transition];
+            long value;
+            switch (plan.mKernels[transition]) {
+                case TransitionPlan.KERNEL_LINEAR_SOURCE_EXTERNAL: {
+                    long operandDensity =
+                            divide(operandStates[plan.mOperandStates[transition]], mOperandDivisors[transition]);
+                    value = multiply(operandDensity, probability);
+                    if (mode == TransitionMode.RESIDUAL) {
+                        value = Math.subtractExact(operandDensity, multiply(value, operandCoefficient));
+                    }
+                    break;
+                }
+                case TransitionPlan.KERNEL_LINEAR_OPERAND_EXTERNAL: {
+                    value = multiply(divide(sourceStates[plan.mSourceStates[transition]],
+                            mSourceDivisors[transition]), probability);
+                    break;
+                }
+                case TransitionPlan.KERNEL_LINEAR_SAME_STATE: {
+                    long density =
+                            divide(sourceStates[plan.mSourceStates[transition]], mCombinedDivisors[transition]);
+                    value = applyTransitionCommon(density, density, mode, probability, operandCoefficient);
+                    break;
+                }
+                default: {
+                    long sourceDensity =
+                            divide(sourceStates[plan.mSourceStates[transition]], mSourceDivisors[transition]);
+                    long operandDensity =
+                            divide(operandStates[plan.mOperandStates[transition]], mOperandDivisors[transition]);
+                    value = applyTransitionCommon(Math.min(sourceDensity, operandDensity), operandDensity, mode,
+                            probability, operandCoefficient);
+                    break;
+                }
+            }
+            int sourceTarget = plan.mSourceTargets[transition];
+            if (sourceTarget != TransitionPlan.NO_TARGET) {
+                states[sourceTarget] =
+                        Math.addExact(states[sourceTarget], multiply(value, mSourceFactors[transition]));
+            }
+            int operandTarget = plan.mOperandTargets[transition];
+            if (operandTarget != TransitionPlan.NO_TARGET) {
+                states[operandTarget] =
+                        Math.addExact(states[operandTarget], multiply(value, mOperandFactors[transition]));
+            }
+            int resultTarget = plan.mResultTargets[transition];
+            if (resultTarget != TransitionPlan.NO_TARGET) {
+                states[resultTarget] =
+                        Math.addExact(states[resultTarget], multiply(value, mResultFactors[transition]));
+            }
+        }
+    }
+
+    /**
+     * Увеличение масштаба сохранённых шагов до наибольшего, при котором значения помещаются в long
+     * с запасом цифр целой части
+     *
+     * @param step номер шага, который будет вычислен заново
+     * @return масштаб увеличен
+     */
+    private boolean rescale(int step) {
+        int current = step % mStates.length;
+        long max = 0;
+        for (int row = 0; row < mStates.length; row++) {
+            if (row == current) {
+                continue;
+            }
+            for (int state = 0; state < mStatesCount; state++) {
+                long value = mStates[row][state];
+                if (value == Long.MIN_VALUE) {
+                    return false;
+                }
+                max = Math.max(max, Math.abs(value));
+            }
+        }
+        int digits = 1;
+        while (digits < MAX_DIGITS && max >= POWERS_OF_TEN[digits]) {
+            digits++;
+        }
+        int scale = Math.min(mScale + MAX_DIGITS - HEADROOM_DIGITS - digits, MAX_DIGITS);
+        if (scale <= mScale) {
+            return false;
+        }
+        long factor = POWERS_OF_TEN[scale - mScale];
+        for (int row = 0; row < mStates.length; row++) {
+            if (row == current) {
+                continue;
+            }
+            for (int state = 0; state < mStatesCount; state++) {
+                mStates[row][state] *= factor;
+            }
+        }
+        mScale = scale;
+        return true;
+    }
+
+    /**
+     * Переход на BigDecimal: точные значения всех сохранённых шагов переводятся без округления
+     *
+     * @param step номер шага, который будет вычислен в BigDecimal
+     */
+    private void switchToDecimal(int step) {
+        mExact = false;
+        mInexactStep = step;
+        for (int row = 0; row < mStates.length; row++) {
+            if (row == step % mStates.length) {
+                continue;
+            }
+            for (int state = 0; state < mStatesCount; state++) {
+                mStatesDecimal[row][state] = BigDecimal.valueOf(mStates[row][state], mScale);
+            }
+        }
+    }
+
+    /**
+     * Вычисление шага в BigDecimal с точностью задачи
+     */
+    private void calculateStepDecimal(int step) {
+        TransitionPlan plan = mPlan;
+        MathContext mathContext = mMathContext;
+        BigDecimal[] states = getStatesDecimal(step);
+        System.arraycopy(getStatesDecimal(step - 1), 0, states, 0, mStatesCount);
+        for (int transition = 0; transition < plan.getSize(); transition++) {
+            BigDecimal[] sourceStates =
+                    getStatesDecimal(Calculator.delay(step - 1, plan.mSourceDelays[transition]));
+            BigDecimal[] operandStates =
+                    getStatesDecimal(Calculator.delay(step - 1, plan.mOperandDelays[transition]));
+            int mode = plan.mModes[transition];
+            BigDecimal probability = mProbabilities[transition].mValue;
+            BigDecimal operandCoefficient = mOperandCoefficients[transition].mValue;
+            BigDecimal value;
+            switch (plan.mKernels[transition]) {
+                case TransitionPlan.KERNEL_LINEAR_SOURCE_EXTERNAL: {
+                    BigDecimal operandDensity = operandStates[plan.mOperandStates[transition]]
+                            .divide(mOperandDivisors[transition].mValue, mathContext);
+                    value = operandDensity.multiply(probability, mathContext);
+                    if (mode == TransitionMode.RESIDUAL) {
+                        value = operandDensity.subtract(value.multiply(operandCoefficient, mathContext), mathContext);
+                    }
+                    break;
+                }
+                case TransitionPlan.KERNEL_LINEAR_OPERAND_EXTERNAL: {
+                    value = sourceStates[plan.mSourceStates[transition]]
+                            .divide(mSourceDivisors[transition].mValue, mathContext)
+                            .multiply(probability, mathContext);
+                    break;
+                }
+                case TransitionPlan.KERNEL_LINEAR_SAME_STATE: {
+                    BigDecimal density = sourceStates[plan.mSourceStates[transition]]
+                            .divide(mCombinedDivisors[transition].mValue, mathContext);
+                    value = applyTransitionCommon(density, density, mode, probability, operandCoefficient,
+                            mathContext);
+                    break;
+                }
+                default: {
+                    BigDecimal sourceDensity = sourceStates[plan.mSourceStates[transition]]
+                            .divide(mSourceDivisors[transition].mValue, mathContext);
+                    BigDecimal operandDensity = operandStates[plan.mOperandStates[transition]]
+                            .divide(mOperandDivisors[transition].mValue, mathContext);
+                    value = applyTransitionCommon(sourceDensity.min(operandDensity), operandDensity, mode,
+                            probability, operandCoefficient, mathContext);
+                    break;
+                }
+            }
+            int sourceTarget = plan.mSourceTargets[transition];
+            if (sourceTarget != TransitionPlan.NO_TARGET) {
+                states[sourceTarget] = states[sourceTarget]
+                        .add(value.multiply(mSourceFactors[transition].mValue, mathContext), mathContext);
+            }
+            int operandTarget = plan.mOperandTargets[transition];
+            if (operandTarget != TransitionPlan.NO_TARGET) {
+                states[operandTarget] = states[operandTarget]
+                        .add(value.multiply(mOperandFactors[transition].mValue, mathContext), mathContext);
+            }
+            int resultTarget = plan.mResultTargets[transition];
+            if (resultTarget != TransitionPlan.NO_TARGET) {
+                states[resultTarget] = states[resultTarget]
+                        .add(value.multiply(mResultFactors[transition].mValue, mathContext), mathContext);
+            }
+        }
+    }
+
+    /**
+     * Перевод масштабированного количества в double с одним округлением
+     */
+    private double doubleValue(long u) {
+        if (Math.abs(u) < 1L << 53) {
+            return u / (double) POWERS_OF_TEN[mScale];
+        }
+        return BigDecimal.valueOf(u, mScale).doubleValue();
+    }
+
+    /**
+     * Применение основных операций перехода в long
+     */
+    private static long applyTransitionCommon(long u, long operandDensity, int mode, Constant probability,
+            Constant operandCoefficient) {
+        if (mode == TransitionMode.INHIBITOR) {
+            u = Math.subtractExact(operandDensity, multiply(u, operandCoefficient));
+        }
+        u = multiply(u, probability);
+        if (mode == TransitionMode.RESIDUAL) {
+            u = Math.subtractExact(operandDensity, multiply(u, operandCoefficient));
+        }
+        return u;
+    }
+
+    /**
+     * Применение основных операций перехода в BigDecimal
+     */
+    private static BigDecimal applyTransitionCommon(BigDecimal u, BigDecimal operandDensity, int mode,
+            BigDecimal probability, BigDecimal operandCoefficient, MathContext mathContext) {
+        if (mode == TransitionMode.INHIBITOR) {
+            u = operandDensity.subtract(u.multiply(operandCoefficient, mathContext), mathContext);
+        }
+        u = u.multiply(probability, mathContext);
+        if (mode == TransitionMode.RESIDUAL) {
+            u = operandDensity.subtract(u.multiply(operandCoefficient, mathContext), mathContext);
+        }
+        return u;
+    }
+
+    /**
+     * Точное умножение масштабированного количества на константу
+     */
+    private static long multiply(long u, Constant constant) {
+        long product = Math.multiplyExact(u, constant.mUnscaled);
+        if (constant.mScale == 0) {
+            return product;
+        }
+        long divisor = POWERS_OF_TEN[constant.mScale];
+        if (product % divisor != 0) {
+            throw new ArithmeticException("Inexact multiplication");
+        }
+        return product / divisor;
+    }
+
+    /**
+     * Точное деление масштабированного количества на константу
+     */
+    private static long divide(long u, Constant constant) {
+        long dividend = Math.multiplyExact(u, POWERS_OF_TEN[constant.mScale]);
+        if (dividend % constant.mUnscaled != 0) {
+            throw new ArithmeticException("Inexact division");
+        }
+        return dividend / constant.mUnscaled;
+    }
+
+    private static boolean isExact(Constant[] constants) {
+        for (Constant constant : constants) {
+            if (!constant.mExact) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long[] buildPowersOfTen() {
+        long[] powers = new long[MAX_DIGITS + 1];
+        powers[0] = 1;
+        for (int i = 1; i < powers.length; i++) {
+            powers[i] = powers[i - 1] * 10;
+        }
+        return powers;
+    }
+
+    /**
+     * Константа перехода в десятичной записи: целое значение и масштаб
+     */
+    private static final class Constant {
+        final BigDecimal mValue; // Значение
+        final long mUnscaled; // Значение без масштаба
+        final int mScale; // Десятичный масштаб
+        final boolean mExact; // Представима в long с масштабом не больше MAX_DIGITS
+
+        private Constant(double u) {
+            BigDecimal value = BigDecimal.valueOf(u).stripTrailingZeros();
+            if (value.scale() < 0) {
+                value = value.setScale(0);
+            }
+            mValue = value;
+            mExact = value.scale() <= MAX_DIGITS && value.unscaledValue().bitLength() < Long.SIZE;
+            mUnscaled = mExact ? value.unscaledValue().longValue() : 0;
+            mScale = mExact ? value.scale() : 0;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Population
+ * Copyright (C) 2016 Yuriy Budiyev [yuriy.budiyev@yandex.ru]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see http://www.gnu.org/licenses/.
+ */
+package com.budiyev.population.component;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * Неизменяемая таблица констант переходов для режима повышенной точности.
+ * Строится один раз на вычисление, чтобы на шагах выполнялась только арифметика над состояниями:
+ * вероятности и коэффициенты переведены в BigDecimal, вероятностные факториалы вычислены
+ * с точностью задачи, показатели степеней разложены на целую и дробную части.
+ */
+final class HigherAccuracyConstants {
+    final BigDecimal[] mProbabilities; // Вероятности
+    final BigDecimal[] mSourceCoefficients; // Коэффициенты исходных состояний
+    final BigDecimal[] mOperandCoefficients; // Коэффициенты операндов
+    final BigDecimal[] mResultCoefficients; // Коэффициенты результирующих состояний
+    final BigDecimal[] mSourceDivisors; // Линейные делители исходных состояний
+    final BigDecimal[] mOperandDivisors; // Линейные делители операндов
+    final BigDecimal[] mCombinedDivisors; // Линейные делители для совпадающих состояний
+    final BigDecimal[] mSourceFactorials; // Вероятностные факториалы коэффициентов исходных состояний
+    final BigDecimal[] mOperandFactorials; // Вероятностные факториалы коэффициентов операндов
+    final BigDecimal[] mCombinedFactorials; // Вероятностные факториалы сумм коэффициентов
+    final Exponent[] mSourcePowers; // Показатели: коэффициенты исходных состояний
+    final Exponent[] mOperandPowers; // Показатели: коэффициенты операндов
+    final Exponent[] mCombinedPowers; // Показатели: суммы коэффициентов
+    final Exponent[] mSourceRatioPowers; // Показатели: коэффициенты исходных состояний без единицы
+    final Exponent[] mOperandRatioPowers; // Показатели: коэффициенты операндов без единицы
+    final Exponent[] mCombinedRatioPowers; // Показатели: суммы коэффициентов без единицы
+
+    /**
+     * @param plan        план вычисления переходов
+     * @param mathContext точность вычислений
+     */
+    HigherAccuracyConstants(TransitionPlan plan, MathContext mathContext) {
+        int size = plan.getSize();
+        mProbabilities = new BigDecimal[size];
+        mSourceCoefficients = new BigDecimal[size];
+        mOperandCoefficients = new BigDecimal[size];
+        mResultCoefficients = new BigDecimal[size];
+        mSourceDivisors = new BigDecimal[size];
+        mOperandDivisors = new BigDecimal[size];
+        mCombinedDivisors = new BigDecimal[size];
+        mSourceFactorials = new BigDecimal[size];
+        mOperandFactorials = new BigDecimal[size];
+        mCombinedFactorials = new BigDecimal[size];
+        mSourcePowers = new Exponent[size];
+        mOperandPowers = new Exponent[size];
+        mCombinedPowers = new Exponent[size];
+        mSourceRatioPowers = new Exponent[size];
+        mOperandRatioPowers = new Exponent[size];
+        mCombinedRatioPowers = new Exponent[size];
+        for (int transition = 0; transition < size; transition++) {
+            double sourceCoefficient = plan.mSourceCoefficients[transition];
+            double operandCoefficient = plan.mOperandCoefficients[transition];
+            double combinedCoefficient = plan.mCombinedCoefficients[transition];
+            mProbabilities[transition] = Calculator.decimalValue(plan.mProbabilities[transition]);
+            mSourceCoefficients[transition] = Calculator.decimalValue(sourceCoefficient);
+            mOperandCoefficients[transition] = Calculator.decimalValue(operandCoefficient);
+            mResultCoefficients[transition] = Calculator.decimalValue(plan.mResultCoefficients[transition]);
+            mSourceDivisors[transition] = Calculator.decimalValue(plan.mSourceDivisors[transition]);
+            mOperandDivisors[transition] = Calculator.decimalValue(plan.mOperandDivisors[transition]);
+            mCombinedDivisors[transition] = Calculator.decimalValue(plan.mCombinedDivisors[transition]);
+            mSourceFactorials[transition] = Calculator.probabilisticFactorialBig(sourceCoefficient, mathContext);
+            mOperandFactorials[transition] = Calculator.probabilisticFactorialBig(operandCoefficient, mathContext);
+            mCombinedFactorials[transition] = Calculator.probabilisticFactorialBig(combinedCoefficient, mathContext);
+            mSourcePowers[transition] = new Exponent(sourceCoefficient);
+            mOperandPowers[transition] = new Exponent(operandCoefficient);
+            mCombinedPowers[transition] = new Exponent(combinedCoefficient);
+            mSourceRatioPowers[transition] = new Exponent(sourceCoefficient - 1);
+            mOperandRatioPowers[transition] = new Exponent(operandCoefficient - 1);
+            mCombinedRatioPowers[transition] = new Exponent(combinedCoefficient - 1);
+        }
+    }
+
+    /**
+     * Показатель степени, разложенный на целую часть и дробную часть в виде BigDecimal:
+     * u^e = u^n * exp(f * ln(u)), где логарифм нужен только для дробной части
+     */
+    static final class Exponent {
+        final long mIntegral; // Целая часть
+        final BigDecimal mFraction; // Дробная часть или null, если показатель целый
+
+        /**
+         * @param exponent показатель
+         */
+        Exponent(double exponent) {
+            double integral = Math.floor(exponent);
+            mIntegral = (long) integral;
+            double fraction = exponent - integral;
+            mFraction = fraction == 0 ? null : Calculator.decimalValue(fraction);
+        }
+    }
+}
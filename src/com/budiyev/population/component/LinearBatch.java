@@ -0,0 +1,265 @@
+/*
+ * Population
+ * Copyright (C) 2016 Yuriy Budiyev [yuriy.budiyev@yandex.ru]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see http://www.gnu.org/licenses/.
+ */
+package com.budiyev.population.component;
+
+import com.budiyev.population.model.TransitionMode;
+
+/**
+ * Пакетное вычисление значений линейных переходов части плана с обычной точностью.
+ * Переходы группируются по виду (внешнее исходное состояние, внешний операнд, совпадающие состояния,
+ * разные состояния) и по режиму; параметры группы хранятся в массивах примитивов, поэтому значения
+ * группы вычисляются плотными циклами без выбора ядра для каждого перехода.
+ * Значения только вычисляются, применяются они к состояниям в порядке плана,
+ * поэтому результаты совпадают с поштучным вычислением переходов.
+ */
+final class LinearBatch {
+    private static final int SHAPE_SOURCE_EXTERNAL = 0;
+    private static final int SHAPE_OPERAND_EXTERNAL = 1;
+    private static final int SHAPE_SAME_STATE = 2;
+    private static final int SHAPE_DIFFERENT_STATES = 3;
+    private static final int SHAPES_COUNT = 4;
+    private static final int MODE_SIMPLE = 0; // Значение - плотность, умноженная на вероятность
+    private static final int MODE_INHIBITOR = 1;
+    private static final int MODE_RESIDUAL = 2;
+    private static final int MODES_COUNT = 3;
+    private final boolean[] mBatched; // Значение перехода плана вычисляется пакетом
+    private final Group[] mGroups; // Непустые группы переходов
+    private final double[] mDensities; // Плотности группы (рабочий массив)
+    private final double[] mOperandDensities; // Плотности операндов группы (рабочий массив)
+
+    /**
+     * @param plan план вычисления переходов
+     * @param from позиция первого перехода части плана
+     * @param to   позиция, следующая за последним переходом части плана
+     */
+    LinearBatch(TransitionPlan plan, int from, int to) {
+        int[] sizes = new int[SHAPES_COUNT * MODES_COUNT];
+        for (int transition = from; transition < to; transition++) {
+            int group = groupOf(plan, transition);
+            if (group >= 0) {
+                sizes[group]++;
+            }
+        }
+        Group[] groups = new Group[sizes.length];
+        int groupsCount = 0;
+        int maxSize = 0;
+        for (int group = 0; group < sizes.length; group++) {
+            if (sizes[group] > 0) {
+                groups[group] = new Group(group / MODES_COUNT, group % MODES_COUNT, sizes[group]);
+                groupsCount++;
+                maxSize = Math.max(maxSize, sizes[group]);
+            }
+        }
+        mBatched = new boolean[plan.getSize()];
+        for (int transition = from; transition < to; transition++) {
+            int group = groupOf(plan, transition);
+            if (group >= 0) {
+                groups[group].add(plan, transition);
+                mBatched[transition] = true;
+            }
+        }
+        mGroups = new Group[groupsCount];
+        int index = 0;
+        for (Group group : groups) {
+            if (group != null) {
+                mGroups[index++] = group;
+            }
+        }
+        mDensities = new double[maxSize];
+        mOperandDensities = new double[maxSize];
+    }
+
+    /**
+     * @return в части плана нет линейных переходов
+     */
+    boolean isEmpty() {
+        return mGroups.length == 0;
+    }
+
+    /**
+     * @param transition позиция перехода в плане
+     * @return значение перехода вычисляется пакетом
+     */
+    boolean isBatched(int transition) {
+        return mBatched[transition];
+    }
+
+    /**
+     * Вычисление значений линейных переходов части плана
+     *
+     * @param delayedStates состояния на прошлом шаге с учётом каждой из задержек
+     * @param values        значения переходов, по позициям в плане
+     */
+    void evaluate(double[][] delayedStates, double[] values) {
+        double[] densities = mDensities;
+        double[] operandDensities = mOperandDensities;
+        for (Group group : mGroups) {
+            int size = group.mSize;
+            int[] sourceDelays = group.mSourceDelays;
+            int[] sourceStates = group.mSourceStates;
+            double[] sourceDivisors = group.mSourceDivisors;
+            int[] operandDelays = group.mOperandDelays;
+            int[] operandStates = group.mOperandStates;
+            double[] operandDivisors = group.mOperandDivisors;
+            switch (group.mShape) {
+                case SHAPE_SOURCE_EXTERNAL: {
+                    for (int i = 0; i < size; i++) {
+                        operandDensities[i] = delayedStates[operandDelays[i]][operandStates[i]] / operandDivisors[i];
+                    }
+                    System.arraycopy(operandDensities, 0, densities, 0, size);
+                    break;
+                }
+                case SHAPE_OPERAND_EXTERNAL: {
+                    for (int i = 0; i < size; i++) {
+                        densities[i] = delayedStates[sourceDelays[i]][sourceStates[i]] / sourceDivisors[i];
+                    }
+                    break;
+                }
+                case SHAPE_SAME_STATE: {
+                    for (int i = 0; i < size; i++) {
+                        densities[i] = delayedStates[sourceDelays[i]][sourceStates[i]] / sourceDivisors[i];
+                    }
+                    System.arraycopy(densities, 0, operandDensities, 0, size);
+                    break;
+                }
+                default: {
+                    for (int i = 0; i < size; i++) {
+                        double sourceDensity = delayedStates[sourceDelays[i]][sourceStates[i]] / sourceDivisors[i];
+                        double operandDensity =
+                                delayedStates[operandDelays[i]][operandStates[i]] / operandDivisors[i];
+                        densities[i] = Math.min(sourceDensity, operandDensity);
+                        operandDensities[i] = operandDensity;
+                    }
+                    break;
+                }
+            }
+            int[] transitions = group.mTransitions;
+            double[] probabilities = group.mProbabilities;
+            double[] operandCoefficients = group.mOperandCoefficients;
+            switch (group.mMode) {
+                case MODE_INHIBITOR: {
+                    for (int i = 0; i < size; i++) {
+                        values[transitions[i]] =
+                                (operandDensities[i] - densities[i] * operandCoefficients[i]) * probabilities[i];
+                    }
+                    break;
+                }
+                case MODE_RESIDUAL: {
+                    for (int i = 0; i < size; i++) {
+                        values[transitions[i]] =
+                                operandDensities[i] - densities[i] * probabilities[i] * operandCoefficients[i];
+                    }
+                    break;
+                }
+                default: {
+                    for (int i = 0; i < size; i++) {
+                        values[transitions[i]] = densities[i] * probabilities[i];
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Группа линейного перехода: вид * {@link #MODES_COUNT} + режим, или -1 для нелинейного перехода.
+     * Режимы, не меняющие значение перехода данного вида, относятся к {@link #MODE_SIMPLE}.
+     */
+    private static int groupOf(TransitionPlan plan, int transition) {
+        int mode = plan.mModes[transition];
+        int shape;
+        switch (plan.mKernels[transition]) {
+            case TransitionPlan.KERNEL_LINEAR_SOURCE_EXTERNAL: {
+                shape = SHAPE_SOURCE_EXTERNAL;
+                if (mode == TransitionMode.INHIBITOR) {
+                    mode = TransitionMode.SIMPLE;
+                }
+                break;
+            }
+            case TransitionPlan.KERNEL_LINEAR_OPERAND_EXTERNAL: {
+                shape = SHAPE_OPERAND_EXTERNAL;
+                mode = TransitionMode.SIMPLE;
+                break;
+            }
+            case TransitionPlan.KERNEL_LINEAR_SAME_STATE: {
+                shape = SHAPE_SAME_STATE;
+                break;
+            }
+            case TransitionPlan.KERNEL_LINEAR: {
+                shape = SHAPE_DIFFERENT_STATES;
+                break;
+            }
+            default: {
+                return -1;
+            }
+        }
+        if (mode == TransitionMode.INHIBITOR) {
+            return shape * MODES_COUNT + MODE_INHIBITOR;
+        } else if (mode == TransitionMode.RESIDUAL) {
+            return shape * MODES_COUNT + MODE_RESIDUAL;
+        } else {
+            return shape * MODES_COUNT + MODE_SIMPLE;
+        }
+    }
+
+    /**
+     * Параметры переходов группы, по массиву на каждый параметр
+     */
+    private static final class Group {
+        private final int mShape;
+        private final int mMode;
+        private final int[] mTransitions;
+        private final int[] mSourceDelays;
+        private final int[] mSourceStates;
+        private final double[] mSourceDivisors;
+        private final int[] mOperandDelays;
+        private final int[] mOperandStates;
+        private final double[] mOperandDivisors;
+        private final double[] mProbabilities;
+        private final double[] mOperandCoefficients;
+        private int mSize;
+
+        private Group(int shape, int mode, int capacity) {
+            mShape = shape;
+            mMode = mode;
+            mTransitions = new int[capacity];
+            mSourceDelays = new int[capacity];
+            mSourceStates = new int[capacity];
+            mSourceDivisors = new double[capacity];
+            mOperandDelays = new int[capacity];
+            mOperandStates = new int[capacity];
+            mOperandDivisors = new double[capacity];
+            mProbabilities = new double[capacity];
+            mOperandCoefficients = new double[capacity];
+        }
+
+        private void add(TransitionPlan plan, int transition) {
+            int index = mSize++;
+            mTransitions[index] = transition;
+            mSourceDelays[index] = plan.mSourceDelays[transition];
+            mSourceStates[index] = plan.mSourceStates[transition];
+            mSourceDivisors[index] = mShape == SHAPE_SAME_STATE ? plan.mCombinedDivisors[transition] :
+                    plan.mSourceDivisors[transition];
+            mOperandDelays[index] = plan.mOperandDelays[transition];
+            mOperandStates[index] = plan.mOperandStates[transition];
+            mOperandDivisors[index] = plan.mOperandDivisors[transition];
+            mProbabilities[index] = plan.mProbabilities[transition];
+            mOperandCoefficients[index] = plan.mOperandCoefficients[transition];
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Population
+ * Copyright (C) 2016 Yuriy Budiyev [yuriy.budiyev@yandex.ru]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see http://www.gnu.org/licenses/.
+ */
+package com.budiyev.population.component;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.budiyev.population.model.MappedResultStorage;
+import com.budiyev.population.model.CalculatorStats;
+import com.budiyev.population.model.ErrorEstimate;
+import com.budiyev.population.model.Result;
+import com.budiyev.population.model.ResultStorage;
+import com.budiyev.population.model.SteadyStateStorage;
+import com.budiyev.population.model.Task;
+
+/**
+ * Запись шагов в файл, отображённый в память, и формирование {@link Result}, читающего из этого файла.
+ * Используется, когда результат не помещается в памяти.
+ */
+public class MappedStepSink implements ResultStepSink {
+    private final File mFile; // Файл или null, если нужно создать временный
+    private final boolean mPrepareResultsTableData; // Подготовить результат в табличном виде
+    private final boolean mPrepareResultsChartData; // Подготовить результат в графическом виде
+    private Task mTask; // Задача
+    private MappedResultStorage mStorage; // Хранилище
+    private int mConvergenceStep; // Шаг остановки по достижении установившегося состояния
+    private boolean mSteadyStateFill; // Заполнить оставшиеся шаги установившимся состоянием
+    private Result mResult; // Результат
+
+    /**
+     * Запись во временный файл, удаляемый при освобождении результата ({@link Result#close()})
+     * или при завершении работы
+     *
+     * @param prepareResultsTableData подготовить результат в табличном виде
+     * @param prepareResultsChartData подготовить результат в графическом виде
+     */
+    public MappedStepSink(boolean prepareResultsTableData, boolean prepareResultsChartData) {
+        this(null, prepareResultsTableData, prepareResultsChartData);
+    }
+
+    /**
+     * @param file                    файл
+     * @param prepareResultsTableData подготовить результат в табличном виде
+     * @param prepareResultsChartData подготовить результат в графическом виде
+     */
+    public MappedStepSink(File file, boolean prepareResultsTableData, boolean prepareResultsChartData) {
+        mFile = file;
+        mPrepareResultsTableData = prepareResultsTableData;
+        mPrepareResultsChartData = prepareResultsChartData;
+    }
+
+    @Override
+    public void onStart(Task task) {
+        mTask = task;
+        mConvergenceStep = Result.NO_CONVERGENCE;
+        mResult = null;
+        try {
+            if (mFile == null) {
+                mStorage = MappedResultStorage.createTemporary(task.getStepsCount(), task.getStates().size());
+            } else {
+                mStorage = MappedResultStorage.create(mFile, task.getStepsCount(), task.getStates().size());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void onStep(int step, double[] states) {
+        mStorage.setStep(step, states);
+    }
+
+    @Override
+    public boolean onSteadyState(int step, double[] states, boolean fill) {
+        mConvergenceStep = step;
+        mSteadyStateFill = fill;
+        return true;
+    }
+
+    @Override
+    public void onFinish() {
+        ResultStorage storage = mStorage;
+        if (mConvergenceStep != Result.NO_CONVERGENCE) {
+            storage = new SteadyStateStorage(storage, mConvergenceStep, mSteadyStateFill);
+        }
+        mResult = new Result(mTask.getStartPoint(), storage, mTask.getStates(), mPrepareResultsTableData,
+                mPrepareResultsChartData);
+        mResult.setConvergenceStep(mConvergenceStep);
+    }
+
+    @Override
+    public void onStats(CalculatorStats stats) {
+        mResult.setStats(stats);
+    }
+
+    @Override
+    public void onErrorEstimate(ErrorEstimate errorEstimate) {
+        mResult.setErrorEstimate(errorEstimate);
+    }
+
+    @Override
+    public void onInexactStep(int step) {
+        mResult.setInexactStep(step);
+    }
+
+    @Override
+    public Result getResult() {
+        return mResult;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Population
+ * Copyright (C) 2016 Yuriy Budiyev [yuriy.budiyev@yandex.ru]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see http://www.gnu.org/licenses/.
+ */
+package com.budiyev.population.component;
+
+import com.budiyev.population.model.CalculatorStats;
+import com.budiyev.population.model.ErrorEstimate;
+import com.budiyev.population.model.Result;
+import com.budiyev.population.model.ResultStorage;
+import com.budiyev.population.model.SteadyStateStorage;
+import com.budiyev.population.model.Task;
+
+/**
+ * Сбор всех шагов в памяти (по столбцам) и формирование {@link Result}
+ */
+public class MemoryStepSink implements ResultStepSink {
+    private final boolean mPrepareResultsTableData; // Подготовить результат в табличном виде
+    private final boolean mPrepareResultsChartData; // Подготовить результат в графическом виде
+    private Task mTask; // Задача
+    private double[][] mColumns; // Значения состояний по шагам, один столбец на каждое состояние
+    private int mConvergenceStep; // Шаг остановки по достижении установившегося состояния
+    private boolean mSteadyStateFill; // Заполнить оставшиеся шаги установившимся состоянием
+    private Result mResult; // Результат
+
+    /**
+     * @param prepareResultsTableData подготовить результат в табличном виде
+     * @param prepareResultsChartData подготовить результат в графическом виде
+     */
+    public MemoryStepSink(boolean prepareResultsTableData, boolean prepareResultsChartData) {
+        mPrepareResultsTableData = prepareResultsTableData;
+        mPrepareResultsChartData = prepareResultsChartData;
+    }
+
+    @Override
+    public void onStart(Task task) {
+        mTask = task;
+        mColumns = new double[task.getStates().size()][task.getStepsCount()];
+        mConvergenceStep = Result.NO_CONVERGENCE;
+        mResult = null;
+    }
+
+    @Override
+    public void onStep(int step, double[] states) {
+        double[][] columns = mColumns;
+        for (int state = 0; state < columns.length; state++) {
+            columns[state][step] = states[state];
+        }
+    }
+
+    @Override
+    public boolean onSteadyState(int step, double[] states, boolean fill) {
+        mConvergenceStep = step;
+        mSteadyStateFill = fill;
+        return true;
+    }
+
+    @Override
+    public void onFinish() {
+        ResultStorage storage = new Result.ColumnStorage(mColumns);
+        if (mConvergenceStep != Result.NO_CONVERGENCE) {
+            storage = new SteadyStateStorage(storage, mConvergenceStep, mSteadyStateFill);
+        }
+        mResult = new Result(mTask.getStartPoint(), storage, mTask.getStates(), mPrepareResultsTableData,
+                mPrepareResultsChartData);
+        mResult.setConvergenceStep(mConvergenceStep);
+    }
+
+    /**
+     * @return значения состояний по шагам, один столбец на каждое состояние
+     */
+    public double[][] getColumns() {
+        return mColumns;
+    }
+
+    @Override
+    public void onStats(CalculatorStats stats) {
+        mResult.setStats(stats);
+    }
+
+    @Override
+    public void onErrorEstimate(ErrorEstimate errorEstimate) {
+        mResult.setErrorEstimate(errorEstimate);
+    }
+
+    @Override
+    public void onInexactStep(int step) {
+        mResult.setInexactStep(step);
+    }
+
+    @Override
+    public Result getResult() {
+        return mResult;
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ * Population
+ * Copyright (C) 2016 Yuriy Budiyev [yuriy.budiyev@yandex.ru]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see http://www.gnu.org/licenses/.
+ */
+package com.budiyev.population.component;
+
+import java.util.Arrays;
+
+/**
+ * Разреженная однородная система линейных уравнений, исключаемая методом Гаусса, по которой определяются
+ * её ранг и базис решений. Строки хранятся как упорядоченные списки ненулевых элементов; столбцы
+ * исключаются по возрастанию количества их ненулевых элементов, ведущая строка выбирается среди строк
+ * с достаточно большим элементом (не меньше доли наибольшего) как строка с наименьшим количеством
+ * ненулевых элементов, чтобы ограничить заполнение. Столбцы без достаточно большого элемента
+ * считаются свободными.
+ */
+final class SparseLinearSystem {
+    private static final double PIVOT_THRESHOLD = 0.1; // Доля наибольшего элемента столбца для ведущей строки
+    private final int mRowsCount; // Количество уравнений
+    private final int mColumnsCount; // Количество неизвестных
+    private final int[][] mIndexes; // Позиции столбцов ненулевых элементов строк
+    private final double[][] mValues; // Значения ненулевых элементов строк
+    private final int[] mLengths; // Количества ненулевых элементов строк
+    private final double[] mDense; // Строка в плотном виде (рабочий массив)
+    private final boolean[] mMarks; // Отметки ненулевых позиций строки в плотном виде (рабочий массив)
+    private final int[] mPositions; // Позиции столбцов в порядке исключения
+    private final int[] mPivotRows; // Ведущие строки по порядку исключения, -1 - свободный столбец
+    private final int[] mFreeColumns; // Позиции свободных столбцов в порядке исключения
+    private final double[] mSolution; // Решение в порядке исключения (рабочий массив)
+    private int mFreeColumnsCount; // Количество свободных столбцов
+    private long mOperations; // Количество операций с элементами строк
+    private int[] mMergedIndexes = new int[4]; // Позиции элементов строки при исключении (рабочий массив)
+    private double[] mMergedValues = new double[4]; // Значения элементов строки при исключении (рабочий массив)
+
+    /**
+     * @param size количество уравнений и неизвестных
+     */
+    SparseLinearSystem(int size) {
+        this(size, size);
+    }
+
+    /**
+     * @param rowsCount    количество уравнений
+     * @param columnsCount количество неизвестных
+     */
+    SparseLinearSystem(int rowsCount, int columnsCount) {
+        mRowsCount = rowsCount;
+        mColumnsCount = columnsCount;
+        mIndexes = new int[rowsCount][];
+        mValues = new double[rowsCount][];
+        mLengths = new int[rowsCount];
+        mDense = new double[columnsCount];
+        mMarks = new boolean[columnsCount];
+        mPositions = new int[columnsCount];
+        mPivotRows = new int[columnsCount];
+        mFreeColumns = new int[columnsCount];
+        mSolution = new double[columnsCount];
+        for (int row = 0; row < rowsCount; row++) {
+            mIndexes[row] = new int[4];
+            mValues[row] = new double[4];
+        }
+    }
+
+    /**
+     * Удаление всех коэффициентов
+     */
+    void clear() {
+        Arrays.fill(mLengths, 0);
+        mFreeColumnsCount = 0;
+        mOperations = 0;
+    }
+
+    /**
+     * Прибавление к коэффициенту уравнения
+     *
+     * @param row    позиция уравнения
+     * @param column позиция неизвестного
+     * @param value  прибавляемое значение
+     */
+    void add(int row, int column, double value) {
+        if (value == 0) {
+            return;
+        }
+        int length = mLengths[row];
+        if (length == mIndexes[row].length) {
+            mIndexes[row] = Arrays.copyOf(mIndexes[row], length * 2);
+            mValues[row] = Arrays.copyOf(mValues[row], length * 2);
+        }
+        mIndexes[row][length] = column;
+        mValues[row][length] = value;
+        mLengths[row] = length + 1;
+    }
+
+    /**
+     * Исключение неизвестных; столбец, все элементы которого (в ещё не выбранных строках) не больше порога,
+     * отнесённого к наибольшему элементу системы, считается свободным, а его элементы - нулевыми.
+     * Коэффициенты при этом изменяются
+     *
+     * @param threshold относительный порог линейной зависимости
+     * @return ранг системы
+     */
+    int reduce(double threshold) {
+        int rowsCount = mRowsCount;
+        int columnsCount = mColumnsCount;
+        orderColumns();
+        double scale = 0;
+        for (int row = 0; row < rowsCount; row++) {
+            normalize(row);
+            double[] values = mValues[row];
+            for (int i = 0; i < mLengths[row]; i++) {
+                scale = Math.max(scale, Math.abs(values[i]));
+            }
+        }
+        boolean[] active = new boolean[rowsCount];
+        Arrays.fill(active, true);
+        int[] candidates = new int[rowsCount];
+        int[] pivotRows = mPivotRows;
+        int freeCount = 0;
+        for (int position = 0; position < columnsCount; position++) {
+            int candidatesCount = 0;
+            double max = 0;
+            for (int row = 0; row < rowsCount; row++) {
+                if (active[row] && mLengths[row] > 0 && mIndexes[row][0] == position) {
+                    candidates[candidatesCount++] = row;
+                    max = Math.max(max, Math.abs(mValues[row][0]));
+                }
+            }
+            if (!(max > threshold * scale)) {
+                for (int i = 0; i < candidatesCount; i++) {
+                    removeFirst(candidates[i]);
+                }
+                pivotRows[position] = -1;
+                mFreeColumns[freeCount++] = position;
+                continue;
+            }
+            int pivot = -1;
+            for (int i = 0; i < candidatesCount; i++) {
+                int row = candidates[i];
+                if (Math.abs(mValues[row][0]) >= PIVOT_THRESHOLD * max &&
+                        (pivot < 0 || mLengths[row] < mLengths[pivot])) {
+                    pivot = row;
+                }
+            }
+            active[pivot] = false;
+            pivotRows[position] = pivot;
+            for (int i = 0; i < candidatesCount; i++) {
+                int row = candidates[i];
+                if (row != pivot) {
+                    eliminate(row, pivot);
+                }
+            }
+        }
+        mFreeColumnsCount = freeCount;
+        return columnsCount - freeCount;
+    }
+
+    /**
+     * @return количество свободных столбцов исключённой системы
+     * (размерность пространства решений)
+     */
+    int getFreeColumnsCount() {
+        return mFreeColumnsCount;
+    }
+
+    /**
+     * @return количество операций с элементами строк при исключении и вычислении решений
+     * с момента последней очистки
+     */
+    long getOperations() {
+        return mOperations;
+    }
+
+    /**
+     * Решение исключённой системы с единицей в заданном свободном столбце и нулями в остальных
+     * свободных столбцах; такие решения для всех свободных столбцов образуют базис
+     *
+     * @param free     номер свободного столбца (от нуля до {@link #getFreeColumnsCount()})
+     * @param solution решение (результат)
+     */
+    void getNullVector(int free, double[] solution) {
+        double[] ordered = mSolution;
+        Arrays.fill(ordered, 0);
+        ordered[mFreeColumns[free]] = 1;
+        for (int position = mColumnsCount - 1; position >= 0; position--) {
+            int row = mPivotRows[position];
+            if (row < 0) {
+                continue;
+            }
+            int[] indexes = mIndexes[row];
+            double[] values = mValues[row];
+            double sum = 0;
+            for (int i = 1; i < mLengths[row]; i++) {
+                sum -= values[i] * ordered[indexes[i]];
+            }
+            ordered[position] = sum / values[0];
+            mOperations += mLengths[row];
+        }
+        for (int column = 0; column < mColumnsCount; column++) {
+            solution[column] = ordered[mPositions[column]];
+        }
+    }
+
+    /**
+     * Выбор порядка исключения столбцов по возрастанию количества их элементов
+     * и замена позиций столбцов в строках позициями в этом порядке
+     */
+    private void orderColumns() {
+        int columnsCount = mColumnsCount;
+        int[] counts = new int[columnsCount];
+        for (int row = 0; row < mRowsCount; row++) {
+            int[] indexes = mIndexes[row];
+            for (int i = 0; i < mLengths[row]; i++) {
+                int column = indexes[i];
+                counts[column] = Math.min(counts[column] + 1, columnsCount - 1);
+            }
+        }
+        int[] starts = new int[columnsCount + 1];
+        for (int column = 0; column < columnsCount; column++) {
+            starts[counts[column] + 1]++;
+        }
+        for (int count = 1; count <= columnsCount; count++) {
+            starts[count] += starts[count - 1];
+        }
+        for (int column = 0; column < columnsCount; column++) {
+            int position = starts[counts[column]]++;
+            mPositions[column] = position;
+        }
+        for (int row = 0; row < mRowsCount; row++) {
+            int[] indexes = mIndexes[row];
+            for (int i = 0; i < mLengths[row]; i++) {
+                indexes[i] = mPositions[indexes[i]];
+            }
+        }
+    }
+
+    /**
+     * Упорядочивание элементов строки по столбцам со сложением повторяющихся и удалением нулевых
+     *
+     * @param row позиция уравнения
+     */
+    private void normalize(int row) {
+        int[] indexes = mIndexes[row];
+        double[] values = mValues[row];
+        int length = mLengths[row];
+        double[] dense = mDense;
+        boolean[] marks = mMarks;
+        for (int i = 0; i < length; i++) {
+            dense[indexes[i]] += values[i];
+            marks[indexes[i]] = true;
+        }
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            int column = indexes[i];
+            if (marks[column]) {
+                marks[column] = false;
+                indexes[count++] = column;
+            }
+        }
+        Arrays.sort(indexes, 0, count);
+        int nonZero = 0;
+        for (int i = 0; i < count; i++) {
+            int column = indexes[i];
+            double value = dense[column];
+            dense[column] = 0;
+            if (value != 0) {
+                indexes[nonZero] = column;
+                values[nonZero++] = value;
+            }
+        }
+        mLengths[row] = nonZero;
+    }
+
+    /**
+     * Удаление первого (пренебрежимо малого) элемента строки
+     *
+     * @param row позиция уравнения
+     */
+    private void removeFirst(int row) {
+        int length = mLengths[row] - 1;
+        System.arraycopy(mIndexes[row], 1, mIndexes[row], 0, length);
+        System.arraycopy(mValues[row], 1, mValues[row], 0, length);
+        mLengths[row] = length;
+    }
+
+    /**
+     * Исключение ведущего столбца из строки вычитанием ведущей строки;
+     * строки упорядочены, и их первые элементы находятся в ведущем столбце.
+     * Результат собирается в рабочих массивах, которые затем меняются местами с массивами строки
+     *
+     * @param row   позиция изменяемого уравнения
+     * @param pivot позиция ведущего уравнения
+     */
+    private void eliminate(int row, int pivot) {
+        int[] rowIndexes = mIndexes[row];
+        double[] rowValues = mValues[row];
+        int rowLength = mLengths[row];
+        int[] pivotIndexes = mIndexes[pivot];
+        double[] pivotValues = mValues[pivot];
+        int pivotLength = mLengths[pivot];
+        double factor = rowValues[0] / pivotValues[0];
+        int capacity = rowLength + pivotLength - 2;
+        if (mMergedIndexes.length < capacity) {
+            mMergedIndexes = new int[capacity * 2];
+            mMergedValues = new double[capacity * 2];
+        }
+        int[] indexes = mMergedIndexes;
+        double[] values = mMergedValues;
+        int length = 0;
+        int i = 1;
+        int j = 1;
+        while (i < rowLength || j < pivotLength) {
+            int rowColumn = i < rowLength ? rowIndexes[i] : Integer.MAX_VALUE;
+            int pivotColumn = j < pivotLength ? pivotIndexes[j] : Integer.MAX_VALUE;
+            double value;
+            int column;
+            if (rowColumn < pivotColumn) {
+                column = rowColumn;
+                value = rowValues[i++];
+            } else if (pivotColumn < rowColumn) {
+                column = pivotColumn;
+                value = -factor * pivotValues[j++];
+            } else {
+                column = rowColumn;
+                value = rowValues[i++] - factor * pivotValues[j++];
+            }
+            if (value != 0) {
+                indexes[length] = column;
+                values[length++] = value;
+            }
+        }
+        mIndexes[row] = indexes;
+        mValues[row] = values;
+        mLengths[row] = length;
+        mMergedIndexes = rowIndexes;
+        mMergedValues = rowValues;
+        mOperations += rowLength + pivotLength;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Population
+ * Copyright (C) 2016 Yuriy Budiyev [yuriy.budiyev@yandex.ru]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see http://www.gnu.org/licenses/.
+ */
+package com.budiyev.population.component;
+
+import java.util.Arrays;
+
+import com.budiyev.population.model.Task;
+
+/**
+ * Накопление статистики по каждому состоянию без хранения шагов:
+ * минимум, максимум, среднее, дисперсия и последнее значение
+ */
+public class StatisticsStepSink implements StepSink {
+    private long mStepsCount; // Количество шагов
+    private double[] mMinimums; // Минимальные значения
+    private double[] mMaximums; // Максимальные значения
+    private double[] mMeans; // Средние значения
+    private double[] mSquares; // Суммы квадратов отклонений от среднего
+    private double[] mLastValues; // Последние значения
+
+    @Override
+    public void onStart(Task task) {
+        int statesCount = task.getStates().size();
+        mStepsCount = 0;
+        mMinimums = new double[statesCount];
+        mMaximums = new double[statesCount];
+        mMeans = new double[statesCount];
+        mSquares = new double[statesCount];
+        mLastValues = new double[statesCount];
+        Arrays.fill(mMinimums, Double.POSITIVE_INFINITY);
+        Arrays.fill(mMaximums, Double.NEGATIVE_INFINITY);
+    }
+
+    @Override
+    public void onStep(int step, double[] states) {
+        long count = ++mStepsCount;
+        for (int state = 0; state < states.length; state++) {
+            double value = states[state];
+            if (value < mMinimums[state]) {
+                mMinimums[state] = value;
+            }
+            if (value > mMaximums[state]) {
+                mMaximums[state] = value;
+            }
+            double deviation = value - mMeans[state];
+            mMeans[state] += deviation / count;
+            mSquares[state] += deviation * (value - mMeans[state]);
+            mLastValues[state] = value;
+        }
+    }
+
+    @Override
+    public void onFinish() {
+    }
+
+    /**
+     * @return количество шагов
+     */
+    public long getStepsCount() {
+        return mStepsCount;
+    }
+
+    /**
+     * @param state позиция состояния
+     * @return минимальное значение
+     */
+    public double getMinimum(int state) {
+        return mMinimums[state];
+    }
+
+    /**
+     * @param state позиция состояния
+     * @return максимальное значение
+     */
+    public double getMaximum(int state) {
+        return mMaximums[state];
+    }
+
+    /**
+     * @param state позиция состояния
+     * @return среднее значение
+     */
+    public double getMean(int state) {
+        return mMeans[state];
+    }
+
+    /**
+     * @param state позиция состояния
+     * @return дисперсия
+     */
+    public double getVariance(int state) {
+        if (mStepsCount < 2) {
+            return 0;
+        }
+        return mSquares[state] / (mStepsCount - 1);
+    }
+
+    /**
+     * @param state позиция состояния
+     * @return последнее значение
+     */
+    public double getLastValue(int state) {
+        return mLastValues[state];
+    }
+}
@@ -0,0 +1,508 @@
+/*
+ * Population
+ * Copyright (C) 2016 Yuriy Budiyev [yuriy.budiyev@yandex.ru]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see http://www.gnu.org/licenses/.
+ */
+package com.budiyev.population.component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import com.budiyev.population.model.TransitionMode;
+
+/**
+ * Компиляция плана переходов в класс, реализующий {@link CompiledStep}.
+ * Линейные переходы записываются прямолинейным кодом, константы переходов (делители, вероятности,
+ * коэффициенты, позиции состояний) встраиваются в байт-код; остальные переходы вызывают
+ * {@link TransitionPlan#evaluate(int, double[], double[], double, double[])}.
+ * Операции выполняются в том же порядке, что и в плане, поэтому результаты совпадают с поштучным вычислением.
+ * Код не содержит ветвлений, поэтому класс версии 52 (Java 8) не требует атрибута StackMapTable.
+ * <p>
+ * Прямолинейный код выигрывает только у небольших планов: с ростом плана код перестаёт помещаться
+ * в кэш команд и проигрывает пакетному вычислению линейных переходов ({@link LinearBatch}), которое
+ * скомпилированный шаг не использует, поэтому планы больше {@link #MAX_TRANSITIONS_COUNT} переходов
+ * не компилируются.
+ */
+final class StepCompiler {
+    private static final int CLASS_VERSION = 52;
+    /**
+     * Длина кода части шага: короткие методы JIT компилирует быстрее,
+     * а методы длиннее 8000 байт HotSpot не компилирует совсем
+     */
+    private static final int MAX_PART_CODE_LENGTH = 1000;
+    private static final int MAX_CONSTANTS_COUNT = 65000; // Ограничение размера пула констант класса
+    /**
+     * Наибольшее количество переходов компилируемого плана: на больших планах (от 200 - 500 переходов
+     * в зависимости от доли линейных) скомпилированный шаг медленнее обычного вычисления с пакетами
+     */
+    static final int MAX_TRANSITIONS_COUNT = 128;
+    private static final String CLASS_NAME = "com/budiyev/population/component/generated/Step";
+    private static final String OBJECT_NAME = "java/lang/Object";
+    private static final String PLAN_NAME = "com/budiyev/population/component/TransitionPlan";
+    private static final String STEP_NAME = "com/budiyev/population/component/CompiledStep";
+    private static final String PLAN_FIELD = "mPlan";
+    private static final String PLAN_DESCRIPTOR = "L" + PLAN_NAME + ";";
+    private static final String STEP_DESCRIPTOR = "([[D[DD[D)V";
+    private static final String EVALUATE_DESCRIPTOR = "(I[D[DD[D)D";
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_FIELD = 9;
+    private static final int CONSTANT_METHOD = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int LDC2_W = 0x14;
+    private static final int DLOAD = 0x18;
+    private static final int ALOAD = 0x19;
+    private static final int DLOAD_3 = 0x29;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ALOAD_2 = 0x2c;
+    private static final int DALOAD = 0x31;
+    private static final int AALOAD = 0x32;
+    private static final int DSTORE = 0x39;
+    private static final int DASTORE = 0x52;
+    private static final int DUP2 = 0x5c;
+    private static final int DADD = 0x63;
+    private static final int DSUB = 0x67;
+    private static final int DMUL = 0x6b;
+    private static final int DDIV = 0x6f;
+    private static final int RETURN = 0xb1;
+    private static final int GETFIELD = 0xb4;
+    private static final int PUTFIELD = 0xb5;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    /**
+     * Локальные переменные методов шага: this, состояния с задержками, изменяемые состояния,
+     * общее количество (два слота), общие слагаемые, значение перехода и плотность операнда (по два слота)
+     */
+    private static final int LOCAL_TERMS = 5;
+    private static final int LOCAL_VALUE = 6;
+    private static final int LOCAL_OPERAND_DENSITY = 8;
+    private static final int LOCALS_COUNT = 10;
+    private static final int MAX_STACK = 10;
+    private final TransitionPlan mPlan; // Компилируемый план
+    private final ByteArrayOutputStream mConstantsBuffer = new ByteArrayOutputStream(); // Записанный пул констант
+    private final DataOutputStream mConstants = new DataOutputStream(mConstantsBuffer);
+    private final HashMap<Object, Integer> mConstantIndexes = new HashMap<>(); // Позиции записанных констант
+    private int mConstantsCount = 1; // Количество слотов пула констант, включая нулевой
+
+    private StepCompiler(TransitionPlan plan) {
+        mPlan = plan;
+    }
+
+    /**
+     * Компиляция плана переходов
+     *
+     * @param plan план вычисления переходов
+     * @return скомпилированный шаг или {@code null}, если план больше {@link #MAX_TRANSITIONS_COUNT}
+     * переходов или не помещается в один класс
+     */
+    static CompiledStep compile(TransitionPlan plan) {
+        if (plan.getSize() > MAX_TRANSITIONS_COUNT) {
+            return null;
+        }
+        try {
+            byte[] bytes = new StepCompiler(plan).build();
+            if (bytes == null) {
+                return null;
+            }
+            Class<?> stepClass = new StepClassLoader(CompiledStep.class.getClassLoader()).define(bytes);
+            return (CompiledStep) stepClass.getConstructor(TransitionPlan.class).newInstance(plan);
+        } catch (IOException | ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Построение класса: переходы плана по порядку разбиваются на части-методы,
+     * метод {@link CompiledStep#step} вызывает части по очереди
+     *
+     * @return байт-код класса или {@code null}, если пул констант переполнен
+     */
+    private byte[] build() throws IOException {
+        List<byte[]> parts = new ArrayList<>();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream code = new DataOutputStream(buffer);
+        int transitionsCount = mPlan.getSize();
+        for (int transition = 0; transition < transitionsCount; transition++) {
+            emitTransition(code, transition);
+            if (buffer.size() > MAX_PART_CODE_LENGTH || transition == transitionsCount - 1) {
+                code.writeByte(RETURN);
+                parts.add(buffer.toByteArray());
+                buffer.reset();
+            }
+            if (mConstantsCount > MAX_CONSTANTS_COUNT) {
+                return null;
+            }
+        }
+        ByteArrayOutputStream stepBuffer = new ByteArrayOutputStream();
+        DataOutputStream step = new DataOutputStream(stepBuffer);
+        for (int part = 0; part < parts.size(); part++) {
+            step.writeByte(ALOAD_0);
+            step.writeByte(ALOAD_1);
+            step.writeByte(ALOAD_2);
+            step.writeByte(DLOAD_3);
+            step.writeByte(ALOAD);
+            step.writeByte(LOCAL_TERMS);
+            step.writeByte(INVOKESPECIAL);
+            step.writeShort(methodReference(CLASS_NAME, partName(part), STEP_DESCRIPTOR));
+        }
+        step.writeByte(RETURN);
+        ByteArrayOutputStream constructorBuffer = new ByteArrayOutputStream();
+        DataOutputStream constructor = new DataOutputStream(constructorBuffer);
+        constructor.writeByte(ALOAD_0);
+        constructor.writeByte(INVOKESPECIAL);
+        constructor.writeShort(methodReference(OBJECT_NAME, "<init>", "()V"));
+        constructor.writeByte(ALOAD_0);
+        constructor.writeByte(ALOAD_1);
+        constructor.writeByte(PUTFIELD);
+        constructor.writeShort(fieldReference(CLASS_NAME, PLAN_FIELD, PLAN_DESCRIPTOR));
+        constructor.writeByte(RETURN);
+        int thisClass = classReference(CLASS_NAME);
+        int superClass = classReference(OBJECT_NAME);
+        int stepInterface = classReference(STEP_NAME);
+        int fieldName = utf8(PLAN_FIELD);
+        int fieldDescriptor = utf8(PLAN_DESCRIPTOR);
+        int codeName = utf8("Code");
+        ByteArrayOutputStream methodsBuffer = new ByteArrayOutputStream();
+        DataOutputStream methods = new DataOutputStream(methodsBuffer);
+        writeMethod(methods, ACC_PUBLIC, utf8("<init>"), utf8("(" + PLAN_DESCRIPTOR + ")V"), codeName, 2, 2,
+                constructorBuffer.toByteArray());
+        writeMethod(methods, ACC_PUBLIC, utf8("step"), utf8(STEP_DESCRIPTOR), codeName, MAX_STACK, LOCALS_COUNT,
+                stepBuffer.toByteArray());
+        for (int part = 0; part < parts.size(); part++) {
+            writeMethod(methods, ACC_PRIVATE, utf8(partName(part)), utf8(STEP_DESCRIPTOR), codeName, MAX_STACK,
+                    LOCALS_COUNT, parts.get(part));
+        }
+        if (mConstantsCount > MAX_CONSTANTS_COUNT) {
+            return null;
+        }
+        ByteArrayOutputStream classBuffer = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(classBuffer);
+        output.writeInt(0xCAFEBABE);
+        output.writeShort(0);
+        output.writeShort(CLASS_VERSION);
+        output.writeShort(mConstantsCount);
+        mConstantsBuffer.writeTo(output);
+        output.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+        output.writeShort(thisClass);
+        output.writeShort(superClass);
+        output.writeShort(1);
+        output.writeShort(stepInterface);
+        output.writeShort(1);
+        output.writeShort(ACC_PRIVATE | ACC_FINAL);
+        output.writeShort(fieldName);
+        output.writeShort(fieldDescriptor);
+        output.writeShort(0);
+        output.writeShort(2 + parts.size());
+        methodsBuffer.writeTo(output);
+        output.writeShort(0);
+        return classBuffer.toByteArray();
+    }
+
+    /**
+     * Код перехода: вычисление значения в {@link #LOCAL_VALUE} и применение к изменяемым состояниям
+     */
+    private void emitTransition(DataOutputStream code, int transition) throws IOException {
+        TransitionPlan plan = mPlan;
+        int mode = plan.mModes[transition];
+        switch (plan.mKernels[transition]) {
+            case TransitionPlan.KERNEL_LINEAR_SOURCE_EXTERNAL: {
+                emitDensity(code, plan.mOperandDelays[transition], plan.mOperandStates[transition],
+                        plan.mOperandDivisors[transition]);
+                code.writeByte(DUP2);
+                emitStore(code, LOCAL_OPERAND_DENSITY);
+                emitMode(code, transition, mode == TransitionMode.RESIDUAL ? mode : TransitionMode.SIMPLE);
+                break;
+            }
+            case TransitionPlan.KERNEL_LINEAR_OPERAND_EXTERNAL: {
+                emitDensity(code, plan.mSourceDelays[transition], plan.mSourceStates[transition],
+                        plan.mSourceDivisors[transition]);
+                emitMode(code, transition, TransitionMode.SIMPLE);
+                break;
+            }
+            case TransitionPlan.KERNEL_LINEAR_SAME_STATE: {
+                emitDensity(code, plan.mSourceDelays[transition], plan.mSourceStates[transition],
+                        plan.mCombinedDivisors[transition]);
+                code.writeByte(DUP2);
+                emitStore(code, LOCAL_OPERAND_DENSITY);
+                emitMode(code, transition, mode);
+                break;
+            }
+            case TransitionPlan.KERNEL_LINEAR: {
+                emitDensity(code, plan.mSourceDelays[transition], plan.mSourceStates[transition],
+                        plan.mSourceDivisors[transition]);
+                emitDensity(code, plan.mOperandDelays[transition], plan.mOperandStates[transition],
+                        plan.mOperandDivisors[transition]);
+                code.writeByte(DUP2);
+                emitStore(code, LOCAL_OPERAND_DENSITY);
+                code.writeByte(INVOKESTATIC);
+                code.writeShort(methodReference("java/lang/Math", "min", "(DD)D"));
+                emitMode(code, transition, mode);
+                break;
+            }
+            default: {
+                code.writeByte(ALOAD_0);
+                code.writeByte(GETFIELD);
+                code.writeShort(fieldReference(CLASS_NAME, PLAN_FIELD, PLAN_DESCRIPTOR));
+                emitInt(code, transition);
+                emitStates(code, plan.mSourceDelays[transition]);
+                emitStates(code, plan.mOperandDelays[transition]);
+                code.writeByte(DLOAD_3);
+                code.writeByte(ALOAD);
+                code.writeByte(LOCAL_TERMS);
+                code.writeByte(INVOKEVIRTUAL);
+                code.writeShort(methodReference(PLAN_NAME, "evaluate", EVALUATE_DESCRIPTOR));
+                emitStore(code, LOCAL_VALUE);
+                break;
+            }
+        }
+        emitApply(code, plan.mSourceTargets[transition], plan.mSourceFactors[transition]);
+        emitApply(code, plan.mOperandTargets[transition], plan.mOperandFactors[transition]);
+        emitApply(code, plan.mResultTargets[transition], plan.mResultFactors[transition]);
+    }
+
+    /**
+     * Плотность линейного перехода на стеке: состояние с задержкой, делённое на делитель коэффициента
+     */
+    private void emitDensity(DataOutputStream code, int delay, int state, double divisor) throws IOException {
+        emitStates(code, delay);
+        emitInt(code, state);
+        code.writeByte(DALOAD);
+        emitDouble(code, divisor);
+        code.writeByte(DDIV);
+    }
+
+    /**
+     * Значение линейного перехода по режиму, как в {@link TransitionPlan#evaluate}: плотность на стеке,
+     * плотность операнда в {@link #LOCAL_OPERAND_DENSITY}, результат в {@link #LOCAL_VALUE}
+     */
+    private void emitMode(DataOutputStream code, int transition, int mode) throws IOException {
+        double operandCoefficient = mPlan.mOperandCoefficients[transition];
+        if (mode == TransitionMode.INHIBITOR) {
+            emitResidue(code, operandCoefficient);
+        }
+        emitDouble(code, mPlan.mProbabilities[transition]);
+        code.writeByte(DMUL);
+        if (mode == TransitionMode.RESIDUAL) {
+            emitResidue(code, operandCoefficient);
+        }
+        emitStore(code, LOCAL_VALUE);
+    }
+
+    /**
+     * Замена значения u на стеке на разность плотности операнда и u, умноженного на коэффициент операнда
+     */
+    private void emitResidue(DataOutputStream code, double operandCoefficient) throws IOException {
+        emitStore(code, LOCAL_VALUE);
+        emitLoad(code, LOCAL_OPERAND_DENSITY);
+        emitLoad(code, LOCAL_VALUE);
+        emitDouble(code, operandCoefficient);
+        code.writeByte(DMUL);
+        code.writeByte(DSUB);
+    }
+
+    /**
+     * Прибавление значения перехода, умноженного на множитель, к изменяемому состоянию
+     */
+    private void emitApply(DataOutputStream code, int target, double factor) throws IOException {
+        if (target == TransitionPlan.NO_TARGET) {
+            return;
+        }
+        code.writeByte(ALOAD_2);
+        emitInt(code, target);
+        code.writeByte(DUP2);
+        code.writeByte(DALOAD);
+        emitLoad(code, LOCAL_VALUE);
+        emitDouble(code, factor);
+        code.writeByte(DMUL);
+        code.writeByte(DADD);
+        code.writeByte(DASTORE);
+    }
+
+    private void emitStates(DataOutputStream code, int delay) throws IOException {
+        code.writeByte(ALOAD_1);
+        emitInt(code, delay);
+        code.writeByte(AALOAD);
+    }
+
+    private void emitInt(DataOutputStream code, int value) throws IOException {
+        if (value >= -1 && value <= 5) {
+            code.writeByte(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            code.writeByte(BIPUSH);
+            code.writeByte(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            code.writeByte(SIPUSH);
+            code.writeShort(value);
+        } else {
+            code.writeByte(LDC_W);
+            code.writeShort(intConstant(value));
+        }
+    }
+
+    private void emitDouble(DataOutputStream code, double value) throws IOException {
+        code.writeByte(LDC2_W);
+        code.writeShort(doubleConstant(value));
+    }
+
+    private static void emitLoad(DataOutputStream code, int local) throws IOException {
+        code.writeByte(DLOAD);
+        code.writeByte(local);
+    }
+
+    private static void emitStore(DataOutputStream code, int local) throws IOException {
+        code.writeByte(DSTORE);
+        code.writeByte(local);
+    }
+
+    private static void writeMethod(DataOutputStream methods, int access, int name, int descriptor, int codeName,
+            int maxStack, int maxLocals, byte[] code) throws IOException {
+        methods.writeShort(access);
+        methods.writeShort(name);
+        methods.writeShort(descriptor);
+        methods.writeShort(1);
+        methods.writeShort(codeName);
+        methods.writeInt(12 + code.length);
+        methods.writeShort(maxStack);
+        methods.writeShort(maxLocals);
+        methods.writeInt(code.length);
+        methods.write(code);
+        methods.writeShort(0);
+        methods.writeShort(0);
+    }
+
+    private static String partName(int part) {
+        return "part" + part;
+    }
+
+    private int utf8(String value) throws IOException {
+        String key = "utf8 " + value;
+        Integer index = mConstantIndexes.get(key);
+        if (index == null) {
+            mConstants.writeByte(CONSTANT_UTF8);
+            mConstants.writeUTF(value);
+            index = addConstant(key, 1);
+        }
+        return index;
+    }
+
+    private int intConstant(int value) throws IOException {
+        Integer index = mConstantIndexes.get(value);
+        if (index == null) {
+            mConstants.writeByte(CONSTANT_INTEGER);
+            mConstants.writeInt(value);
+            index = addConstant(value, 1);
+        }
+        return index;
+    }
+
+    /**
+     * Константа double; сравнение {@link Double} по битам различает 0.0 и -0.0
+     */
+    private int doubleConstant(double value) throws IOException {
+        Integer index = mConstantIndexes.get(value);
+        if (index == null) {
+            mConstants.writeByte(CONSTANT_DOUBLE);
+            mConstants.writeDouble(value);
+            index = addConstant(value, 2);
+        }
+        return index;
+    }
+
+    private int classReference(String name) throws IOException {
+        String key = "class " + name;
+        Integer index = mConstantIndexes.get(key);
+        if (index == null) {
+            int nameIndex = utf8(name);
+            mConstants.writeByte(CONSTANT_CLASS);
+            mConstants.writeShort(nameIndex);
+            index = addConstant(key, 1);
+        }
+        return index;
+    }
+
+    private int nameAndType(String name, String descriptor) throws IOException {
+        String key = "nameAndType " + name + " " + descriptor;
+        Integer index = mConstantIndexes.get(key);
+        if (index == null) {
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            mConstants.writeByte(CONSTANT_NAME_AND_TYPE);
+            mConstants.writeShort(nameIndex);
+            mConstants.writeShort(descriptorIndex);
+            index = addConstant(key, 1);
+        }
+        return index;
+    }
+
+    private int methodReference(String owner, String name, String descriptor) throws IOException {
+        return memberReference(CONSTANT_METHOD, "method ", owner, name, descriptor);
+    }
+
+    private int fieldReference(String owner, String name, String descriptor) throws IOException {
+        return memberReference(CONSTANT_FIELD, "field ", owner, name, descriptor);
+    }
+
+    private int memberReference(int tag, String kind, String owner, String name, String descriptor)
+            throws IOException {
+        String key = kind + owner + " " + name + " " + descriptor;
+        Integer index = mConstantIndexes.get(key);
+        if (index == null) {
+            int ownerIndex = classReference(owner);
+            int nameAndTypeIndex = nameAndType(name, descriptor);
+            mConstants.writeByte(tag);
+            mConstants.writeShort(ownerIndex);
+            mConstants.writeShort(nameAndTypeIndex);
+            index = addConstant(key, 1);
+        }
+        return index;
+    }
+
+    private int addConstant(Object key, int slots) {
+        int index = mConstantsCount;
+        mConstantIndexes.put(key, index);
+        mConstantsCount += slots;
+        return index;
+    }
+
+    /**
+     * Загрузчик скомпилированных классов; у каждого плана свой загрузчик,
+     * поэтому класс выгружается вместе с вычислителем
+     */
+    private static final class StepClassLoader extends ClassLoader {
+        private StepClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        private Class<?> define(byte[] bytes) {
+            return defineClass(null, bytes, 0, bytes.length);
+        }
+    }
+}
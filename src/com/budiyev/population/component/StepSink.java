@@ -0,0 +1,91 @@
+/*
+ * Population
+ * Copyright (C) 2016 Yuriy Budiyev [yuriy.budiyev@yandex.ru]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see http://www.gnu.org/licenses/.
+ */
+package com.budiyev.population.component;
+
+import com.budiyev.population.model.CalculatorStats;
+import com.budiyev.population.model.ErrorEstimate;
+import com.budiyev.population.model.Task;
+
+/**
+ * Получатель завершённых шагов вычислений.
+ * {@link Calculator} передаёт каждый шаг сразу после его вычисления,
+ * поэтому вывод формируется по ходу вычислений.
+ */
+public interface StepSink {
+    /**
+     * Вызывается перед первым шагом
+     *
+     * @param task задача
+     */
+    void onStart(Task task);
+
+    /**
+     * Вызывается для каждого завершённого шага по порядку.
+     * Массив состояний используется повторно, его содержимое нужно скопировать,
+     * если оно требуется после возврата из метода.
+     *
+     * @param step   номер шага (от нуля)
+     * @param states состояния
+     */
+    void onStep(int step, double[] states);
+
+    /**
+     * Вызывается, если вычисления остановлены по достижении установившегося состояния,
+     * после передачи шага остановки и перед {@link #onFinish()}.
+     * Если получатель не заполняет оставшиеся шаги сам, вычислитель передаёт их через {@link #onStep}.
+     *
+     * @param step   номер шага остановки
+     * @param states установившиеся состояния
+     * @param fill   оставшиеся шаги заполняются установившимся состоянием,
+     *               иначе результат заканчивается на шаге остановки
+     * @return {@code true}, если получатель сам заполняет оставшиеся шаги
+     */
+    default boolean onSteadyState(int step, double[] states, boolean fill) {
+        return false;
+    }
+
+    /**
+     * Вызывается после последнего шага
+     */
+    void onFinish();
+
+    /**
+     * Вызывается после {@link #onFinish()}, если в задаче включено профилирование
+     *
+     * @param stats статистика профилирования
+     */
+    default void onStats(CalculatorStats stats) {
+    }
+
+    /**
+     * Вызывается после {@link #onFinish()}, если в задаче включена оценка погрешности
+     *
+     * @param errorEstimate оценка погрешности
+     */
+    default void onErrorEstimate(ErrorEstimate errorEstimate) {
+    }
+
+    /**
+     * Вызывается после {@link #onFinish()} при вычислениях с фиксированной точкой
+     * ({@link com.budiyev.population.model.Accuracy#FIXED_POINT}), если не все шаги вычислены точно
+     *
+     * @param step первый шаг, вычисленный с округлением
+     */
+    default void onInexactStep(int step) {
+    }
+}
@@ -0,0 +1,1349 @@
+/*
+ * Population
+ * Copyright (C) 2016 Yuriy Budiyev [yuriy.budiyev@yandex.ru]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see http://www.gnu.org/licenses/.
+ */
+package com.budiyev.population.component;
+
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.budiyev.population.model.Accuracy;
+import com.budiyev.population.model.State;
+import com.budiyev.population.model.Task;
+import com.budiyev.population.model.Transition;
+import com.budiyev.population.model.TransitionMode;
+import com.budiyev.population.model.TransitionType;
+
+/**
+ * План вычисления переходов.
+ * Неизменяемое представление задачи в виде примитивных массивов: позиции состояний
+ * найдены заранее, коэффициенты и вероятностные факториалы вычислены один раз,
+ * для каждого перехода выбрано специализированное ядро.
+ */
+public final class TransitionPlan {
+    /**
+     * Ядра переходов (тип перехода и расположение внешних состояний)
+     */
+    public static final int KERNEL_LINEAR_SOURCE_EXTERNAL = 0;
+    public static final int KERNEL_LINEAR_OPERAND_EXTERNAL = 1;
+    public static final int KERNEL_LINEAR_SAME_STATE = 2;
+    public static final int KERNEL_LINEAR = 3;
+    public static final int KERNEL_SOLUTE_SOURCE_EXTERNAL = 4;
+    public static final int KERNEL_SOLUTE_OPERAND_EXTERNAL = 5;
+    public static final int KERNEL_SOLUTE_SAME_STATE = 6;
+    public static final int KERNEL_SOLUTE = 7;
+    public static final int KERNEL_BLEND_SOURCE_EXTERNAL = 8;
+    public static final int KERNEL_BLEND_OPERAND_EXTERNAL = 9;
+    public static final int KERNEL_BLEND_SAME_STATE = 10;
+    public static final int KERNEL_BLEND = 11;
+    /**
+     * Переход неизвестного типа, не изменяющий состояния
+     */
+    public static final int KERNEL_NONE = 12;
+    /**
+     * Состояние не изменяется переходом
+     */
+    public static final int NO_TARGET = -1;
+    /**
+     * Значение вычисляется в переходе, общего слагаемого нет
+     */
+    public static final int NO_TERM = -1;
+    /**
+     * Виды общих слагаемых: плотность u^c / c!, степень количества u^(c-1)
+     * и степень общего количества автоматов N^(c-1)
+     */
+    static final int TERM_DENSITY = 0;
+    static final int TERM_POWER = 1;
+    static final int TERM_TOTAL_POWER = 2;
+    /**
+     * Коэффициент, от которого зависит общее слагаемое: исходного состояния, операнда или их сумма
+     */
+    static final int SIDE_SOURCE = 0;
+    static final int SIDE_OPERAND = 1;
+    static final int SIDE_COMBINED = 2;
+    private final int mStatesCount; // Количество состояний
+    private final int mSize; // Количество переходов в плане
+    private final int mMaxDelay; // Максимальная задержка
+    final int[] mTransitionIndexes; // Позиции переходов в задаче
+    final int[] mKernels; // Ядра
+    final int[] mModes; // Режимы
+    final int[] mSourceStates; // Позиции исходных состояний
+    final int[] mOperandStates; // Позиции операндов
+    final int[] mSourceDelays; // Задержки исходных состояний
+    final int[] mOperandDelays; // Задержки операндов
+    final double[] mSourceCoefficients; // Коэффициенты исходных состояний
+    final double[] mOperandCoefficients; // Коэффициенты операндов
+    final double[] mCombinedCoefficients; // Суммы коэффициентов исходных состояний и операндов
+    final double[] mResultCoefficients; // Коэффициенты результирующих состояний
+    final double[] mProbabilities; // Вероятности
+    final double[] mSourceDivisors; // Линейные делители исходных состояний
+    final double[] mOperandDivisors; // Линейные делители операндов
+    final double[] mCombinedDivisors; // Линейные делители для совпадающих состояний
+    final double[] mSourceFactorials; // Вероятностные факториалы коэффициентов исходных состояний
+    final double[] mOperandFactorials; // Вероятностные факториалы коэффициентов операндов
+    final double[] mCombinedFactorials; // Вероятностные факториалы сумм коэффициентов
+    final double[] mSourceLogarithmFactorials; // Логарифмы факториалов коэффициентов исходных состояний
+    final double[] mOperandLogarithmFactorials; // Логарифмы факториалов коэффициентов операндов
+    final double[] mCombinedLogarithmFactorials; // Логарифмы факториалов сумм коэффициентов
+    final DoubleDouble[] mSourceFactorialsExtended; // Факториалы исходных состояний (расширенная точность)
+    final DoubleDouble[] mOperandFactorialsExtended; // Факториалы операндов (расширенная точность)
+    final DoubleDouble[] mCombinedFactorialsExtended; // Факториалы сумм коэффициентов (расширенная точность)
+    final int[] mSourceTargets; // Уменьшаемые исходные состояния
+    final double[] mSourceFactors; // Множители изменения исходных состояний
+    final int[] mOperandTargets; // Уменьшаемые операнды
+    final double[] mOperandFactors; // Множители изменения операндов
+    final int[] mResultTargets; // Увеличиваемые результирующие состояния
+    final double[] mResultFactors; // Множители изменения результирующих состояний
+    final int[] mSourceTerms; // Общие слагаемые плотностей исходных состояний (или совпадающих состояний)
+    final int[] mOperandTerms; // Общие слагаемые плотностей операндов
+    final int[] mDivisorTerms; // Общие слагаемые степеней в делителях
+    final int[] mTermKinds; // Виды общих слагаемых
+    final int[] mTermSides; // Коэффициенты, от которых зависят общие слагаемые
+    final int[] mTermTransitions; // Переходы, по параметрам которых вычисляются общие слагаемые
+
+    /**
+     * Компиляция задачи
+     *
+     * @param task задача
+     */
+    private TransitionPlan(Task task) {
+        List<State> states = task.getStates();
+        int statesCount = states.size();
+        HashMap<Integer, Integer> positions = new HashMap<>(statesCount * 2);
+        for (int i = 0; i < statesCount; i++) {
+            positions.putIfAbsent(states.get(i).getId(), i);
+        }
+        List<Transition> transitions = task.getTransitions();
+        int size = 0;
+        for (Transition transition : transitions) {
+            if (!isStateExternal(findState(positions, transition.getSourceState())) ||
+                    !isStateExternal(findState(positions, transition.getOperandState()))) {
+                size++;
+            }
+        }
+        mStatesCount = statesCount;
+        mSize = size;
+        mTransitionIndexes = new int[size];
+        mKernels = new int[size];
+        mModes = new int[size];
+        mSourceStates = new int[size];
+        mOperandStates = new int[size];
+        mSourceDelays = new int[size];
+        mOperandDelays = new int[size];
+        mSourceCoefficients = new double[size];
+        mOperandCoefficients = new double[size];
+        mCombinedCoefficients = new double[size];
+        mResultCoefficients = new double[size];
+        mProbabilities = new double[size];
+        mSourceDivisors = new double[size];
+        mOperandDivisors = new double[size];
+        mCombinedDivisors = new double[size];
+        mSourceFactorials = new double[size];
+        mOperandFactorials = new double[size];
+        mCombinedFactorials = new double[size];
+        mSourceLogarithmFactorials = new double[size];
+        mOperandLogarithmFactorials = new double[size];
+        mCombinedLogarithmFactorials = new double[size];
+        boolean extended = task.getAccuracy() == Accuracy.EXTENDED ||
+                task.getAccuracy() == Accuracy.NORMAL && task.getErrorEstimationInterval() > 0;
+        mSourceFactorialsExtended = extended ? new DoubleDouble[size] : null;
+        mOperandFactorialsExtended = extended ? new DoubleDouble[size] : null;
+        mCombinedFactorialsExtended = extended ? new DoubleDouble[size] : null;
+        mSourceTargets = new int[size];
+        mSourceFactors = new double[size];
+        mOperandTargets = new int[size];
+        mOperandFactors = new double[size];
+        mResultTargets = new int[size];
+        mResultFactors = new double[size];
+        int maxDelay = 0;
+        int index = 0;
+        for (int transitionIndex = 0; transitionIndex < transitions.size(); transitionIndex++) {
+            Transition transition = transitions.get(transitionIndex);
+            int sourceState = findState(positions, transition.getSourceState());
+            int operandState = findState(positions, transition.getOperandState());
+            int resultState = findState(positions, transition.getResultState());
+            boolean sourceExternal = isStateExternal(sourceState);
+            boolean operandExternal = isStateExternal(operandState);
+            if (sourceExternal && operandExternal) {
+                continue;
+            }
+            int mode = transition.getMode();
+            int sourceDelay = transition.getSourceDelay();
+            int operandDelay = transition.getOperandDelay();
+            double sourceCoefficient = transition.getSourceCoefficient();
+            double operandCoefficient = transition.getOperandCoefficient();
+            double resultCoefficient = transition.getResultCoefficient();
+            maxDelay = Math.max(maxDelay, Math.max(sourceDelay, operandDelay));
+            mTransitionIndexes[index] = transitionIndex;
+            mKernels[index] = selectKernel(transition.getType(), sourceState, operandState);
+            mModes[index] = mode;
+            mSourceStates[index] = sourceState;
+            mOperandStates[index] = operandState;
+            mSourceDelays[index] = sourceDelay;
+            mOperandDelays[index] = operandDelay;
+            mSourceCoefficients[index] = sourceCoefficient;
+            mOperandCoefficients[index] = operandCoefficient;
+            mCombinedCoefficients[index] = sourceCoefficient + operandCoefficient;
+            mResultCoefficients[index] = resultCoefficient;
+            mProbabilities[index] = transition.getProbability();
+            mSourceDivisors[index] = linearDivisor(sourceCoefficient);
+            mOperandDivisors[index] = linearDivisor(operandCoefficient);
+            mCombinedDivisors[index] = linearDivisor(sourceCoefficient + operandCoefficient - 1);
+            mSourceFactorials[index] = Calculator.probabilisticFactorial(sourceCoefficient);
+            mOperandFactorials[index] = Calculator.probabilisticFactorial(operandCoefficient);
+            mCombinedFactorials[index] = Calculator.probabilisticFactorial(sourceCoefficient + operandCoefficient);
+            mSourceLogarithmFactorials[index] = Calculator.logarithmProbabilisticFactorial(sourceCoefficient);
+            mOperandLogarithmFactorials[index] = Calculator.logarithmProbabilisticFactorial(operandCoefficient);
+            mCombinedLogarithmFactorials[index] =
+                    Calculator.logarithmProbabilisticFactorial(sourceCoefficient + operandCoefficient);
+            if (extended) {
+                mSourceFactorialsExtended[index] = factorialExtended(sourceCoefficient);
+                mOperandFactorialsExtended[index] = factorialExtended(operandCoefficient);
+                mCombinedFactorialsExtended[index] = factorialExtended(sourceCoefficient + operandCoefficient);
+            }
+            if (!sourceExternal && mode == TransitionMode.REMOVING) {
+                mSourceTargets[index] = sourceState;
+                mSourceFactors[index] = -sourceCoefficient;
+            } else {
+                mSourceTargets[index] = NO_TARGET;
+            }
+            if (operandExternal || mode == TransitionMode.RETAINING) {
+                mOperandTargets[index] = NO_TARGET;
+            } else if (mode == TransitionMode.INHIBITOR || mode == TransitionMode.RESIDUAL) {
+                mOperandTargets[index] = operandState;
+                mOperandFactors[index] = -1;
+            } else {
+                mOperandTargets[index] = operandState;
+                mOperandFactors[index] = -operandCoefficient;
+            }
+            if (isStateExternal(resultState)) {
+                mResultTargets[index] = NO_TARGET;
+            } else {
+                mResultTargets[index] = resultState;
+                mResultFactors[index] = resultCoefficient;
+            }
+            index++;
+        }
+        mMaxDelay = maxDelay;
+        mSourceTerms = new int[size];
+        mOperandTerms = new int[size];
+        mDivisorTerms = new int[size];
+        Arrays.fill(mSourceTerms, NO_TERM);
+        Arrays.fill(mOperandTerms, NO_TERM);
+        Arrays.fill(mDivisorTerms, NO_TERM);
+        HashMap<TermKey, Integer> usages = new HashMap<>();
+        for (int transition = 0; transition < size; transition++) {
+            registerTerms(transition, usages, null);
+        }
+        HashMap<TermKey, Integer> terms = new HashMap<>();
+        for (int transition = 0; transition < size; transition++) {
+            registerTerms(transition, usages, terms);
+        }
+        int termsCount = terms.size();
+        mTermKinds = new int[termsCount];
+        mTermSides = new int[termsCount];
+        mTermTransitions = new int[termsCount];
+        for (Map.Entry<TermKey, Integer> entry : terms.entrySet()) {
+            TermKey key = entry.getKey();
+            int term = entry.getValue();
+            mTermKinds[term] = key.mKind;
+            mTermSides[term] = key.mSide;
+            mTermTransitions[term] = key.mTransition;
+        }
+    }
+
+    /**
+     * Поиск слагаемых перехода, которые совпадают у нескольких переходов.
+     * Первый проход (terms == null) подсчитывает использования каждого слагаемого,
+     * второй назначает позиции в таблице слагаемым, используемым хотя бы дважды.
+     */
+    private void registerTerms(int transition, HashMap<TermKey, Integer> usages, HashMap<TermKey, Integer> terms) {
+        double sourceCoefficient = mSourceCoefficients[transition];
+        double operandCoefficient = mOperandCoefficients[transition];
+        double combinedCoefficient = mCombinedCoefficients[transition];
+        int kernel = mKernels[transition];
+        int divisorKind = kernel <= KERNEL_SOLUTE ? TERM_TOTAL_POWER : TERM_POWER;
+        switch (kernel) {
+            case KERNEL_SOLUTE_SOURCE_EXTERNAL:
+            case KERNEL_BLEND_SOURCE_EXTERNAL: {
+                if (operandCoefficient > 1) {
+                    mOperandTerms[transition] =
+                            registerTerm(transition, TERM_DENSITY, SIDE_OPERAND, operandCoefficient, usages, terms);
+                    mDivisorTerms[transition] =
+                            registerTerm(transition, divisorKind, SIDE_OPERAND, operandCoefficient, usages, terms);
+                }
+                break;
+            }
+            case KERNEL_SOLUTE_OPERAND_EXTERNAL:
+            case KERNEL_BLEND_OPERAND_EXTERNAL: {
+                if (sourceCoefficient > 1) {
+                    mSourceTerms[transition] =
+                            registerTerm(transition, TERM_DENSITY, SIDE_SOURCE, sourceCoefficient, usages, terms);
+                    mDivisorTerms[transition] =
+                            registerTerm(transition, divisorKind, SIDE_SOURCE, sourceCoefficient, usages, terms);
+                }
+                break;
+            }
+            case KERNEL_SOLUTE_SAME_STATE:
+            case KERNEL_BLEND_SAME_STATE: {
+                if (combinedCoefficient > 1) {
+                    mSourceTerms[transition] = registerTerm(transition, TERM_DENSITY, SIDE_COMBINED,
+                            combinedCoefficient, usages, terms);
+                }
+                mDivisorTerms[transition] =
+                        registerTerm(transition, divisorKind, SIDE_COMBINED, combinedCoefficient, usages, terms);
+                break;
+            }
+            case KERNEL_SOLUTE:
+            case KERNEL_BLEND: {
+                if (sourceCoefficient > 1) {
+                    mSourceTerms[transition] =
+                            registerTerm(transition, TERM_DENSITY, SIDE_SOURCE, sourceCoefficient, usages, terms);
+                }
+                if (operandCoefficient > 1) {
+                    mOperandTerms[transition] =
+                            registerTerm(transition, TERM_DENSITY, SIDE_OPERAND, operandCoefficient, usages, terms);
+                }
+                if (kernel == KERNEL_SOLUTE) {
+                    mDivisorTerms[transition] = registerTerm(transition, TERM_TOTAL_POWER, SIDE_COMBINED,
+                            combinedCoefficient, usages, terms);
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * Учёт слагаемого перехода
+     *
+     * @return позиция слагаемого в таблице или {@link #NO_TERM}
+     */
+    private int registerTerm(int transition, int kind, int side, double coefficient,
+            HashMap<TermKey, Integer> usages, HashMap<TermKey, Integer> terms) {
+        TermKey key;
+        if (kind == TERM_TOTAL_POWER) {
+            key = new TermKey(kind, NO_TARGET, 0, coefficient, side, transition);
+        } else if (side == SIDE_OPERAND) {
+            key = new TermKey(kind, mOperandStates[transition], mOperandDelays[transition], coefficient, side,
+                    transition);
+        } else {
+            key = new TermKey(kind, mSourceStates[transition], mSourceDelays[transition], coefficient, side,
+                    transition);
+        }
+        if (terms == null) {
+            usages.merge(key, 1, Integer::sum);
+            return NO_TERM;
+        }
+        if (usages.get(key) < 2) {
+            return NO_TERM;
+        }
+        Integer term = terms.get(key);
+        if (term == null) {
+            term = terms.size();
+            terms.put(key, term);
+        }
+        return term;
+    }
+
+    /**
+     * @return количество состояний
+     */
+    public int getStatesCount() {
+        return mStatesCount;
+    }
+
+    /**
+     * @return количество переходов в плане
+     */
+    public int getSize() {
+        return mSize;
+    }
+
+    /**
+     * @return количество общих слагаемых, вычисляемых один раз за шаг
+     */
+    public int getTermsCount() {
+        return mTermKinds.length;
+    }
+
+    /**
+     * Вычисление общих слагаемых шага с обычной точностью
+     *
+     * @param delayedStates состояния на прошлом шаге с учётом каждой из задержек
+     * @param totalCount    общее количество автоматов на прошлом шаге
+     * @param terms         таблица общих слагаемых
+     */
+    public void prepareTerms(double[][] delayedStates, double totalCount, double[] terms) {
+        for (int term = 0; term < terms.length; term++) {
+            int transition = mTermTransitions[term];
+            if (mTermKinds[term] == TERM_TOTAL_POWER) {
+                terms[term] = evaluateTerm(term, totalCount);
+            } else if (mTermSides[term] == SIDE_OPERAND) {
+                terms[term] = evaluateTerm(term,
+                        delayedStates[mOperandDelays[transition]][mOperandStates[transition]]);
+            } else {
+                terms[term] =
+                        evaluateTerm(term, delayedStates[mSourceDelays[transition]][mSourceStates[transition]]);
+            }
+        }
+    }
+
+    /**
+     * Вычисление общих слагаемых шага для ансамбля вариантов
+     *
+     * @param delayedStates состояния вариантов на прошлом шаге с учётом каждой из задержек,
+     *                      [задержка][состояние][вариант]
+     * @param totalCounts   общие количества автоматов вариантов на прошлом шаге
+     * @param terms         таблицы общих слагаемых вариантов, [вариант][слагаемое]
+     */
+    void prepareTerms(double[][][] delayedStates, double[] totalCounts, double[][] terms) {
+        int termsCount = getTermsCount();
+        for (int term = 0; term < termsCount; term++) {
+            int transition = mTermTransitions[term];
+            double[] counts;
+            if (mTermKinds[term] == TERM_TOTAL_POWER) {
+                counts = totalCounts;
+            } else if (mTermSides[term] == SIDE_OPERAND) {
+                counts = delayedStates[mOperandDelays[transition]][mOperandStates[transition]];
+            } else {
+                counts = delayedStates[mSourceDelays[transition]][mSourceStates[transition]];
+            }
+            for (int variant = 0; variant < counts.length; variant++) {
+                terms[variant][term] = evaluateTerm(term, counts[variant]);
+            }
+        }
+    }
+
+    /**
+     * Значение общего слагаемого
+     *
+     * @param term позиция слагаемого в таблице
+     * @param u    количество автоматов состояния или общее количество автоматов
+     * @return значение слагаемого
+     */
+    private double evaluateTerm(int term, double u) {
+        int transition = mTermTransitions[term];
+        int side = mTermSides[term];
+        double coefficient;
+        double factorial;
+        if (side == SIDE_SOURCE) {
+            coefficient = mSourceCoefficients[transition];
+            factorial = mSourceFactorials[transition];
+        } else if (side == SIDE_OPERAND) {
+            coefficient = mOperandCoefficients[transition];
+            factorial = mOperandFactorials[transition];
+        } else {
+            coefficient = mCombinedCoefficients[transition];
+            factorial = mCombinedFactorials[transition];
+        }
+        if (mTermKinds[term] == TERM_DENSITY) {
+            return applyCoefficientPower(u, coefficient, factorial);
+        } else {
+            return Math.pow(u, coefficient - 1);
+        }
+    }
+
+    /**
+     * @return план содержит только линейные переходы
+     */
+    public boolean isLinear() {
+        for (int kernel : mKernels) {
+            if (kernel > KERNEL_LINEAR) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return максимальная задержка среди всех переходов
+     */
+    public int getMaxDelay() {
+        return mMaxDelay;
+    }
+
+    /**
+     * Вычисление значения перехода с обычной точностью
+     *
+     * @param transition   позиция перехода в плане
+     * @param sourceStates состояния на шаге с задержкой исходного состояния
+     * @param operandStates состояния на шаге с задержкой операнда
+     * @param totalCount   общее количество автоматов на прошлом шаге
+     * @param terms        общие слагаемые шага, {@link #prepareTerms(double[][], double, double[])}
+     * @return значение перехода
+     */
+    public double evaluate(int transition, double[] sourceStates, double[] operandStates, double totalCount,
+            double[] terms) {
+        int source = mSourceStates[transition];
+        int operand = mOperandStates[transition];
+        return evaluate(transition, isStateExternal(source) ? 0 : sourceStates[source],
+                isStateExternal(operand) ? 0 : operandStates[operand], totalCount, mProbabilities[transition],
+                terms);
+    }
+
+    /**
+     * Вычисление значения перехода с обычной точностью по количествам автоматов
+     *
+     * @param transition   позиция перехода в плане
+     * @param sourceCount  количество автоматов исходного состояния (с задержкой)
+     * @param operandCount количество автоматов операнда (с задержкой)
+     * @param totalCount   общее количество автоматов на прошлом шаге
+     * @param probability  вероятность перехода
+     * @param terms        общие слагаемые шага
+     * @return значение перехода
+     */
+    double evaluate(int transition, double sourceCount, double operandCount, double totalCount, double probability,
+            double[] terms) {
+        int mode = mModes[transition];
+        double sourceCoefficient = mSourceCoefficients[transition];
+        double operandCoefficient = mOperandCoefficients[transition];
+        switch (mKernels[transition]) {
+            case KERNEL_LINEAR_SOURCE_EXTERNAL: {
+                double operandDensity = operandCount / mOperandDivisors[transition];
+                double value = operandDensity * probability;
+                if (mode == TransitionMode.RESIDUAL) {
+                    value = operandDensity - value * operandCoefficient;
+                }
+                return value;
+            }
+            case KERNEL_LINEAR_OPERAND_EXTERNAL: {
+                return sourceCount / mSourceDivisors[transition] * probability;
+            }
+            case KERNEL_LINEAR_SAME_STATE: {
+                double density = sourceCount / mCombinedDivisors[transition];
+                return applyTransitionCommon(density, density, mode, probability, operandCoefficient);
+            }
+            case KERNEL_LINEAR: {
+                double sourceDensity = sourceCount / mSourceDivisors[transition];
+                double operandDensity = operandCount / mOperandDivisors[transition];
+                return applyTransitionCommon(Math.min(sourceDensity, operandDensity), operandDensity, mode,
+                        probability, operandCoefficient);
+            }
+            case KERNEL_SOLUTE_SOURCE_EXTERNAL: {
+                if (!(totalCount > 0)) {
+                    return 0;
+                }
+                double operandDensity = density(mOperandTerms[transition], operandCount, operandCoefficient,
+                        mOperandFactorials[transition], terms);
+                double value = operandDensity;
+                if (operandCoefficient > 1) {
+                    value /= power(mDivisorTerms[transition], totalCount, operandCoefficient - 1, terms);
+                    if (!isRepresentable(value) && operandCount > 0) {
+                        double logarithmFactorial = mOperandLogarithmFactorials[transition];
+                        operandDensity = Math.exp(
+                                logarithmDensity(operandCount, operandCoefficient, logarithmFactorial, 1));
+                        value = Math.exp(
+                                logarithmDensity(operandCount, operandCoefficient, logarithmFactorial, totalCount) +
+                                        Math.log(totalCount));
+                    }
+                }
+                return applyTransitionCommon(value, operandDensity, mode, probability, operandCoefficient);
+            }
+            case KERNEL_SOLUTE_OPERAND_EXTERNAL: {
+                if (!(totalCount > 0)) {
+                    return 0;
+                }
+                double value = density(mSourceTerms[transition], sourceCount, sourceCoefficient,
+                        mSourceFactorials[transition], terms);
+                if (sourceCoefficient > 1) {
+                    value /= power(mDivisorTerms[transition], totalCount, sourceCoefficient - 1, terms);
+                    if (!isRepresentable(value) && sourceCount > 0) {
+                        value = Math.exp(logarithmDensity(sourceCount, sourceCoefficient,
+                                mSourceLogarithmFactorials[transition], totalCount) + Math.log(totalCount));
+                    }
+                }
+                return value * probability;
+            }
+            case KERNEL_SOLUTE_SAME_STATE: {
+                if (!(totalCount > 0)) {
+                    return 0;
+                }
+                double count = sourceCount;
+                double combinedCoefficient = mCombinedCoefficients[transition];
+                double density = density(mSourceTerms[transition], count, combinedCoefficient,
+                        mCombinedFactorials[transition], terms);
+                double value = density / power(mDivisorTerms[transition], totalCount, combinedCoefficient - 1, terms);
+                if (!isRepresentable(value) && count > 0) {
+                    double logarithmFactorial = mCombinedLogarithmFactorials[transition];
+                    density = Math.exp(logarithmDensity(count, combinedCoefficient, logarithmFactorial, 1));
+                    value = Math.exp(logarithmDensity(count, combinedCoefficient, logarithmFactorial, totalCount) +
+                            (densityExponent(combinedCoefficient) - combinedCoefficient + 1) * Math.log(totalCount));
+                }
+                return applyTransitionCommon(value, density, mode, probability, operandCoefficient);
+            }
+            case KERNEL_SOLUTE: {
+                if (!(totalCount > 0)) {
+                    return 0;
+                }
+                double sourceDensity = density(mSourceTerms[transition], sourceCount, sourceCoefficient,
+                        mSourceFactorials[transition], terms);
+                double operandDensity = density(mOperandTerms[transition], operandCount, operandCoefficient,
+                        mOperandFactorials[transition], terms);
+                double value = sourceDensity * operandDensity /
+                        power(mDivisorTerms[transition], totalCount, mCombinedCoefficients[transition] - 1, terms);
+                if (!isRepresentable(value) && sourceCount > 0 && operandCount > 0) {
+                    operandDensity = Math.exp(logarithmDensity(operandCount, operandCoefficient,
+                            mOperandLogarithmFactorials[transition], 1));
+                    value = logarithmProduct(sourceCount, sourceCoefficient, mSourceLogarithmFactorials[transition],
+                            operandCount, operandCoefficient, mOperandLogarithmFactorials[transition], totalCount,
+                            mCombinedCoefficients[transition] - 1);
+                }
+                return applyTransitionCommon(value, operandDensity, mode, probability, operandCoefficient);
+            }
+            case KERNEL_BLEND_SOURCE_EXTERNAL: {
+                if (!(operandCount > 0)) {
+                    return 0;
+                }
+                double operandDensity = density(mOperandTerms[transition], operandCount, operandCoefficient,
+                        mOperandFactorials[transition], terms);
+                double value = operandDensity;
+                if (operandCoefficient > 1) {
+                    value /= power(mDivisorTerms[transition], operandCount, operandCoefficient - 1, terms);
+                    if (!isRepresentable(value)) {
+                        double logarithmFactorial = mOperandLogarithmFactorials[transition];
+                        operandDensity = Math.exp(
+                                logarithmDensity(operandCount, operandCoefficient, logarithmFactorial, 1));
+                        value = Math.exp(Math.log(operandCount) - logarithmFactorial);
+                    }
+                }
+                return applyTransitionCommon(value, operandDensity, mode, probability, operandCoefficient);
+            }
+            case KERNEL_BLEND_OPERAND_EXTERNAL: {
+                if (!(sourceCount > 0)) {
+                    return 0;
+                }
+                double value = density(mSourceTerms[transition], sourceCount, sourceCoefficient,
+                        mSourceFactorials[transition], terms);
+                if (sourceCoefficient > 1) {
+                    value /= power(mDivisorTerms[transition], sourceCount, sourceCoefficient - 1, terms);
+                    if (!isRepresentable(value)) {
+                        value = Math.exp(Math.log(sourceCount) - mSourceLogarithmFactorials[transition]);
+                    }
+                }
+                return value * probability;
+            }
+            case KERNEL_BLEND_SAME_STATE: {
+                double count = sourceCount;
+                if (!(count > 0)) {
+                    return 0;
+                }
+                double combinedCoefficient = mCombinedCoefficients[transition];
+                double density = density(mSourceTerms[transition], count, combinedCoefficient,
+                        mCombinedFactorials[transition], terms);
+                double value = density / power(mDivisorTerms[transition], count, combinedCoefficient - 1, terms);
+                if (!isRepresentable(value)) {
+                    double logarithmFactorial = mCombinedLogarithmFactorials[transition];
+                    density = Math.exp(logarithmDensity(count, combinedCoefficient, logarithmFactorial, 1));
+                    value = Math.exp(logarithmDensity(count, combinedCoefficient, logarithmFactorial, count) +
+                            (densityExponent(combinedCoefficient) - combinedCoefficient + 1) * Math.log(count));
+                }
+                return applyTransitionCommon(value, density, mode, probability, operandCoefficient);
+            }
+            case KERNEL_BLEND: {
+                double sum = sourceCount + operandCount;
+                if (!(sum > 0)) {
+                    return 0;
+                }
+                double sourceDensity = density(mSourceTerms[transition], sourceCount, sourceCoefficient,
+                        mSourceFactorials[transition], terms);
+                double operandDensity = density(mOperandTerms[transition], operandCount, operandCoefficient,
+                        mOperandFactorials[transition], terms);
+                double value =
+                        sourceDensity * operandDensity / Math.pow(sum, mCombinedCoefficients[transition] - 1);
+                if (!isRepresentable(value) && sourceCount > 0 && operandCount > 0) {
+                    operandDensity = Math.exp(logarithmDensity(operandCount, operandCoefficient,
+                            mOperandLogarithmFactorials[transition], 1));
+                    value = logarithmProduct(sourceCount, sourceCoefficient, mSourceLogarithmFactorials[transition],
+                            operandCount, operandCoefficient, mOperandLogarithmFactorials[transition], sum,
+                            mCombinedCoefficients[transition] - 1);
+                }
+                return applyTransitionCommon(value, operandDensity, mode, probability, operandCoefficient);
+            }
+            default: {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Производные значения линейного перехода по количествам автоматов исходного состояния и операнда.
+     * Значение линейного перехода линейно по количествам на каждом из участков, где выбор минимальной
+     * плотности не меняется; производные берутся на участке, которому принадлежат заданные количества
+     *
+     * @param transition   позиция линейного перехода в плане
+     * @param sourceCount  количество автоматов исходного состояния (с задержкой)
+     * @param operandCount количество автоматов операнда (с задержкой)
+     * @param gradient     производные по количеству исходного состояния и операнда (результат)
+     */
+    void linearGradient(int transition, double sourceCount, double operandCount, double[] gradient) {
+        int mode = mModes[transition];
+        double probability = mProbabilities[transition];
+        double operandCoefficient = mOperandCoefficients[transition];
+        double sourceDerivative = 0;
+        double operandDerivative = 0;
+        switch (mKernels[transition]) {
+            case KERNEL_LINEAR_SOURCE_EXTERNAL: {
+                double factor = mode == TransitionMode.RESIDUAL ? 1 - probability * operandCoefficient : probability;
+                operandDerivative = factor / mOperandDivisors[transition];
+                break;
+            }
+            case KERNEL_LINEAR_OPERAND_EXTERNAL: {
+                sourceDerivative = probability / mSourceDivisors[transition];
+                break;
+            }
+            case KERNEL_LINEAR_SAME_STATE: {
+                sourceDerivative = (applyTransitionCommon(1, 0, mode, probability, operandCoefficient) +
+                        applyTransitionCommon(0, 1, mode, probability, operandCoefficient)) /
+                        mCombinedDivisors[transition];
+                break;
+            }
+            case KERNEL_LINEAR: {
+                double sourceDivisor = mSourceDivisors[transition];
+                double operandDivisor = mOperandDivisors[transition];
+                double densityFactor = applyTransitionCommon(1, 0, mode, probability, operandCoefficient);
+                double operandFactor = applyTransitionCommon(0, 1, mode, probability, operandCoefficient);
+                if (sourceCount / sourceDivisor <= operandCount / operandDivisor) {
+                    sourceDerivative = densityFactor / sourceDivisor;
+                    operandDerivative = operandFactor / operandDivisor;
+                } else {
+                    operandDerivative = (densityFactor + operandFactor) / operandDivisor;
+                }
+                break;
+            }
+        }
+        gradient[0] = sourceDerivative;
+        gradient[1] = operandDerivative;
+    }
+
+    /**
+     * Вычисление значений перехода для ансамбля вариантов, отличающихся вероятностями переходов.
+     * Линейные переходы вычисляются плотными циклами по вариантам, остальные - отдельно для каждого варианта
+     *
+     * @param transition    позиция перехода в плане
+     * @param sourceCounts  количества автоматов исходного состояния в вариантах (с задержкой)
+     * @param operandCounts количества автоматов операнда в вариантах (с задержкой)
+     * @param totalCounts   общие количества автоматов вариантов на прошлом шаге
+     * @param probabilities вероятности перехода в вариантах
+     * @param terms         таблицы общих слагаемых вариантов, [вариант][слагаемое]
+     * @param values        значения перехода в вариантах
+     */
+    void evaluateEnsemble(int transition, double[] sourceCounts, double[] operandCounts, double[] totalCounts,
+            double[] probabilities, double[][] terms, double[] values) {
+        int variantsCount = values.length;
+        int mode = mModes[transition];
+        double operandCoefficient = mOperandCoefficients[transition];
+        switch (mKernels[transition]) {
+            case KERNEL_LINEAR_SOURCE_EXTERNAL: {
+                double divisor = mOperandDivisors[transition];
+                if (mode == TransitionMode.RESIDUAL) {
+                    for (int variant = 0; variant < variantsCount; variant++) {
+                        double operandDensity = operandCounts[variant] / divisor;
+                        values[variant] = operandDensity - operandDensity * probabilities[variant] * operandCoefficient;
+                    }
+                } else {
+                    for (int variant = 0; variant < variantsCount; variant++) {
+                        values[variant] = operandCounts[variant] / divisor * probabilities[variant];
+                    }
+                }
+                return;
+            }
+            case KERNEL_LINEAR_OPERAND_EXTERNAL: {
+                double divisor = mSourceDivisors[transition];
+                for (int variant = 0; variant < variantsCount; variant++) {
+                    values[variant] = sourceCounts[variant] / divisor * probabilities[variant];
+                }
+                return;
+            }
+            case KERNEL_LINEAR_SAME_STATE: {
+                double divisor = mCombinedDivisors[transition];
+                for (int variant = 0; variant < variantsCount; variant++) {
+                    double density = sourceCounts[variant] / divisor;
+                    values[variant] =
+                            applyTransitionCommon(density, density, mode, probabilities[variant], operandCoefficient);
+                }
+                return;
+            }
+            case KERNEL_LINEAR: {
+                double sourceDivisor = mSourceDivisors[transition];
+                double operandDivisor = mOperandDivisors[transition];
+                for (int variant = 0; variant < variantsCount; variant++) {
+                    double sourceDensity = sourceCounts[variant] / sourceDivisor;
+                    double operandDensity = operandCounts[variant] / operandDivisor;
+                    values[variant] = applyTransitionCommon(Math.min(sourceDensity, operandDensity), operandDensity,
+                            mode, probabilities[variant], operandCoefficient);
+                }
+                return;
+            }
+            default: {
+                for (int variant = 0; variant < variantsCount; variant++) {
+                    values[variant] = evaluate(transition, sourceCounts[variant], operandCounts[variant],
+                            totalCounts[variant], probabilities[variant], terms[variant]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Применение значений перехода к состояниям ансамбля вариантов
+     *
+     * @param transition позиция перехода в плане
+     * @param values     значения перехода в вариантах
+     * @param states     изменяемые состояния вариантов, [состояние][вариант]
+     */
+    void applyEnsemble(int transition, double[] values, double[][] states) {
+        int sourceTarget = mSourceTargets[transition];
+        if (sourceTarget != NO_TARGET) {
+            applyEnsemble(values, mSourceFactors[transition], states[sourceTarget]);
+        }
+        int operandTarget = mOperandTargets[transition];
+        if (operandTarget != NO_TARGET) {
+            applyEnsemble(values, mOperandFactors[transition], states[operandTarget]);
+        }
+        int resultTarget = mResultTargets[transition];
+        if (resultTarget != NO_TARGET) {
+            applyEnsemble(values, mResultFactors[transition], states[resultTarget]);
+        }
+    }
+
+    private static void applyEnsemble(double[] values, double factor, double[] target) {
+        for (int variant = 0; variant < values.length; variant++) {
+            target[variant] += values[variant] * factor;
+        }
+    }
+
+    /**
+     * Применение значения перехода к состояниям
+     *
+     * @param transition позиция перехода в плане
+     * @param value      значение перехода
+     * @param states     изменяемые состояния
+     */
+    public void apply(int transition, double value, double[] states) {
+        int sourceTarget = mSourceTargets[transition];
+        if (sourceTarget != NO_TARGET) {
+            states[sourceTarget] += value * mSourceFactors[transition];
+        }
+        int operandTarget = mOperandTargets[transition];
+        if (operandTarget != NO_TARGET) {
+            states[operandTarget] += value * mOperandFactors[transition];
+        }
+        int resultTarget = mResultTargets[transition];
+        if (resultTarget != NO_TARGET) {
+            states[resultTarget] += value * mResultFactors[transition];
+        }
+    }
+
+    /**
+     * Применение значения перехода к состояниям с компенсированным суммированием
+     *
+     * @param transition    позиция перехода в плане
+     * @param value         значение перехода
+     * @param states        изменяемые состояния
+     * @param compensations компенсации погрешностей округления изменяемых состояний
+     */
+    public void applyCompensated(int transition, double value, double[] states, double[] compensations) {
+        int sourceTarget = mSourceTargets[transition];
+        if (sourceTarget != NO_TARGET) {
+            addCompensated(sourceTarget, value * mSourceFactors[transition], states, compensations);
+        }
+        int operandTarget = mOperandTargets[transition];
+        if (operandTarget != NO_TARGET) {
+            addCompensated(operandTarget, value * mOperandFactors[transition], states, compensations);
+        }
+        int resultTarget = mResultTargets[transition];
+        if (resultTarget != NO_TARGET) {
+            addCompensated(resultTarget, value * mResultFactors[transition], states, compensations);
+        }
+    }
+
+    /**
+     * Прибавление значения к состоянию по алгоритму Ноймайера: погрешность округления суммы
+     * накапливается в компенсации
+     *
+     * @param state         позиция состояния
+     * @param value         прибавляемое значение
+     * @param states        изменяемые состояния
+     * @param compensations компенсации погрешностей округления изменяемых состояний
+     */
+    public static void addCompensated(int state, double value, double[] states, double[] compensations) {
+        double sum = states[state];
+        double result = sum + value;
+        if (Math.abs(sum) >= Math.abs(value)) {
+            compensations[state] += (sum - result) + value;
+        } else {
+            compensations[state] += (value - result) + sum;
+        }
+        states[state] = result;
+    }
+
+    /**
+     * Вычисление значения перехода с расширенной точностью.
+     * Состояния заданы старшими и младшими частями, результат записывается в {@code value}.
+     *
+     * @param transition    позиция перехода в плане
+     * @param sourceHigh    старшие части состояний на шаге с задержкой исходного состояния
+     * @param sourceLow     младшие части состояний на шаге с задержкой исходного состояния
+     * @param operandHigh   старшие части состояний на шаге с задержкой операнда
+     * @param operandLow    младшие части состояний на шаге с задержкой операнда
+     * @param totalCount    общее количество автоматов на прошлом шаге
+     * @param value         значение перехода
+     * @param density       рабочий регистр
+     */
+    public void evaluateExtended(int transition, double[] sourceHigh, double[] sourceLow, double[] operandHigh,
+            double[] operandLow, DoubleDouble totalCount, DoubleDouble value, DoubleDouble density) {
+        int mode = mModes[transition];
+        double sourceCoefficient = mSourceCoefficients[transition];
+        double operandCoefficient = mOperandCoefficients[transition];
+        double probability = mProbabilities[transition];
+        int source = mSourceStates[transition];
+        int operand = mOperandStates[transition];
+        switch (mKernels[transition]) {
+            case KERNEL_LINEAR_SOURCE_EXTERNAL: {
+                density.set(operandHigh[operand], operandLow[operand]).divide(mOperandDivisors[transition]);
+                value.set(density).multiply(probability);
+                if (mode == TransitionMode.RESIDUAL) {
+                    value.multiply(operandCoefficient).negate().add(density);
+                }
+                return;
+            }
+            case KERNEL_LINEAR_OPERAND_EXTERNAL: {
+                value.set(sourceHigh[source], sourceLow[source]).divide(mSourceDivisors[transition])
+                        .multiply(probability);
+                return;
+            }
+            case KERNEL_LINEAR_SAME_STATE: {
+                density.set(sourceHigh[source], sourceLow[source]).divide(mCombinedDivisors[transition]);
+                value.set(density);
+                applyTransitionCommon(value, density, mode, probability, operandCoefficient);
+                return;
+            }
+            case KERNEL_LINEAR: {
+                value.set(sourceHigh[source], sourceLow[source]).divide(mSourceDivisors[transition]);
+                density.set(operandHigh[operand], operandLow[operand]).divide(mOperandDivisors[transition]);
+                if (density.isLess(value.getHigh(), value.getLow())) {
+                    value.set(density);
+                }
+                applyTransitionCommon(value, density, mode, probability, operandCoefficient);
+                return;
+            }
+            case KERNEL_SOLUTE_SOURCE_EXTERNAL: {
+                if (!(totalCount.getHigh() > 0)) {
+                    value.set(0, 0);
+                    return;
+                }
+                density.set(operandHigh[operand], operandLow[operand]);
+                applyCoefficientPower(density, operandCoefficient, mOperandFactorialsExtended[transition]);
+                if (operandCoefficient > 1) {
+                    divideByPower(value, density, totalCount.getHigh(), totalCount.getLow(), operandCoefficient - 1);
+                } else {
+                    value.set(density);
+                }
+                applyTransitionCommon(value, density, mode, probability, operandCoefficient);
+                return;
+            }
+            case KERNEL_SOLUTE_OPERAND_EXTERNAL: {
+                if (!(totalCount.getHigh() > 0)) {
+                    value.set(0, 0);
+                    return;
+                }
+                density.set(sourceHigh[source], sourceLow[source]);
+                applyCoefficientPower(density, sourceCoefficient, mSourceFactorialsExtended[transition]);
+                if (sourceCoefficient > 1) {
+                    divideByPower(value, density, totalCount.getHigh(), totalCount.getLow(), sourceCoefficient - 1);
+                } else {
+                    value.set(density);
+                }
+                value.multiply(probability);
+                return;
+            }
+            case KERNEL_SOLUTE_SAME_STATE: {
+                if (!(totalCount.getHigh() > 0)) {
+                    value.set(0, 0);
+                    return;
+                }
+                double combinedCoefficient = mCombinedCoefficients[transition];
+                density.set(sourceHigh[source], sourceLow[source]);
+                applyCoefficientPower(density, combinedCoefficient, mCombinedFactorialsExtended[transition]);
+                divideByPower(value, density, totalCount.getHigh(), totalCount.getLow(), combinedCoefficient - 1);
+                applyTransitionCommon(value, density, mode, probability, operandCoefficient);
+                return;
+            }
+            case KERNEL_SOLUTE: {
+                if (!(totalCount.getHigh() > 0)) {
+                    value.set(0, 0);
+                    return;
+                }
+                value.set(sourceHigh[source], sourceLow[source]);
+                applyCoefficientPower(value, sourceCoefficient, mSourceFactorialsExtended[transition]);
+                double sourceDensityHigh = value.getHigh();
+                double sourceDensityLow = value.getLow();
+                density.set(operandHigh[operand], operandLow[operand]);
+                applyCoefficientPower(density, operandCoefficient, mOperandFactorialsExtended[transition]);
+                divideByPower(value, density, totalCount.getHigh(), totalCount.getLow(),
+                        mCombinedCoefficients[transition] - 1);
+                value.multiply(sourceDensityHigh, sourceDensityLow);
+                applyTransitionCommon(value, density, mode, probability, operandCoefficient);
+                return;
+            }
+            case KERNEL_BLEND_SOURCE_EXTERNAL: {
+                double operandCountHigh = operandHigh[operand];
+                double operandCountLow = operandLow[operand];
+                if (!(operandCountHigh > 0)) {
+                    value.set(0, 0);
+                    return;
+                }
+                density.set(operandCountHigh, operandCountLow);
+                applyCoefficientPower(density, operandCoefficient, mOperandFactorialsExtended[transition]);
+                if (operandCoefficient > 1) {
+                    divideByPower(value, density, operandCountHigh, operandCountLow, operandCoefficient - 1);
+                } else {
+                    value.set(density);
+                }
+                applyTransitionCommon(value, density, mode, probability, operandCoefficient);
+                return;
+            }
+            case KERNEL_BLEND_OPERAND_EXTERNAL: {
+                double sourceCountHigh = sourceHigh[source];
+                double sourceCountLow = sourceLow[source];
+                if (!(sourceCountHigh > 0)) {
+                    value.set(0, 0);
+                    return;
+                }
+                density.set(sourceCountHigh, sourceCountLow);
+                applyCoefficientPower(density, sourceCoefficient, mSourceFactorialsExtended[transition]);
+                if (sourceCoefficient > 1) {
+                    divideByPower(value, density, sourceCountHigh, sourceCountLow, sourceCoefficient - 1);
+                } else {
+                    value.set(density);
+                }
+                value.multiply(probability);
+                return;
+            }
+            case KERNEL_BLEND_SAME_STATE: {
+                double countHigh = sourceHigh[source];
+                double countLow = sourceLow[source];
+                if (!(countHigh > 0)) {
+                    value.set(0, 0);
+                    return;
+                }
+                double combinedCoefficient = mCombinedCoefficients[transition];
+                density.set(countHigh, countLow);
+                applyCoefficientPower(density, combinedCoefficient, mCombinedFactorialsExtended[transition]);
+                divideByPower(value, density, countHigh, countLow, combinedCoefficient - 1);
+                applyTransitionCommon(value, density, mode, probability, operandCoefficient);
+                return;
+            }
+            case KERNEL_BLEND: {
+                double sourceCountHigh = sourceHigh[source];
+                double sourceCountLow = sourceLow[source];
+                value.set(sourceCountHigh, sourceCountLow).add(operandHigh[operand], operandLow[operand]);
+                if (!(value.getHigh() > 0)) {
+                    value.set(0, 0);
+                    return;
+                }
+                double sumHigh = value.getHigh();
+                double sumLow = value.getLow();
+                value.set(sourceCountHigh, sourceCountLow);
+                applyCoefficientPower(value, sourceCoefficient, mSourceFactorialsExtended[transition]);
+                double sourceDensityHigh = value.getHigh();
+                double sourceDensityLow = value.getLow();
+                density.set(operandHigh[operand], operandLow[operand]);
+                applyCoefficientPower(density, operandCoefficient, mOperandFactorialsExtended[transition]);
+                divideByPower(value, density, sumHigh, sumLow, mCombinedCoefficients[transition] - 1);
+                value.multiply(sourceDensityHigh, sourceDensityLow);
+                applyTransitionCommon(value, density, mode, probability, operandCoefficient);
+                return;
+            }
+            default: {
+                value.set(0, 0);
+            }
+        }
+    }
+
+    /**
+     * Применение значения перехода к состояниям с расширенной точностью
+     *
+     * @param transition позиция перехода в плане
+     * @param value      значение перехода
+     * @param high       старшие части изменяемых состояний
+     * @param low        младшие части изменяемых состояний
+     * @param register   рабочий регистр
+     */
+    public void applyExtended(int transition, DoubleDouble value, double[] high, double[] low,
+            DoubleDouble register) {
+        int sourceTarget = mSourceTargets[transition];
+        if (sourceTarget != NO_TARGET) {
+            addExtended(sourceTarget, value, mSourceFactors[transition], high, low, register);
+        }
+        int operandTarget = mOperandTargets[transition];
+        if (operandTarget != NO_TARGET) {
+            addExtended(operandTarget, value, mOperandFactors[transition], high, low, register);
+        }
+        int resultTarget = mResultTargets[transition];
+        if (resultTarget != NO_TARGET) {
+            addExtended(resultTarget, value, mResultFactors[transition], high, low, register);
+        }
+    }
+
+    /**
+     * Компиляция задачи в план вычисления переходов
+     *
+     * @param task задача
+     * @return план
+     */
+    public static TransitionPlan compile(Task task) {
+        return new TransitionPlan(task);
+    }
+
+    /**
+     * Применение степенного коэффициента
+     */
+    private static double applyCoefficientPower(double u, double coefficient, double factorial) {
+        if (coefficient <= 1) {
+            return u;
+        }
+        return Math.pow(u, coefficient) / factorial;
+    }
+
+    /**
+     * Плотность из таблицы общих слагаемых или вычисленная в переходе
+     */
+    private static double density(int term, double u, double coefficient, double factorial, double[] terms) {
+        if (term == NO_TERM) {
+            return applyCoefficientPower(u, coefficient, factorial);
+        }
+        return terms[term];
+    }
+
+    /**
+     * Степень из таблицы общих слагаемых или вычисленная в переходе
+     */
+    private static double power(int term, double u, double exponent, double[] terms) {
+        if (term == NO_TERM) {
+            return Math.pow(u, exponent);
+        }
+        return terms[term];
+    }
+
+    /**
+     * Проверка, что отношение степеней вычислено в double без переполнения и потери значимости
+     */
+    private static boolean isRepresentable(double value) {
+        return value > 0 && value <= Double.MAX_VALUE;
+    }
+
+    /**
+     * Показатель степени, в которую возводится количество при применении степенного коэффициента
+     */
+    private static double densityExponent(double coefficient) {
+        return coefficient <= 1 ? 1 : coefficient;
+    }
+
+    /**
+     * Логарифм плотности, отнесённой к степени основания: ln(density(u) / base^e), где
+     * density(u) = u^c / c! при c > 1 и u в противном случае, а e - показатель {@link #densityExponent(double)}.
+     * Вычисляется через логарифм отношения u / base, чтобы большие слагаемые не сокращались
+     */
+    private static double logarithmDensity(double u, double coefficient, double logarithmFactorial, double base) {
+        if (coefficient <= 1) {
+            return Math.log(u / base);
+        }
+        return coefficient * Math.log(u / base) - logarithmFactorial;
+    }
+
+    /**
+     * Произведение плотностей, делённое на степень основания, вычисленное в логарифмической области:
+     * density(u) * density(v) / base^exponent
+     */
+    private static double logarithmProduct(double u, double uCoefficient, double uLogarithmFactorial, double v,
+            double vCoefficient, double vLogarithmFactorial, double base, double exponent) {
+        double excess = densityExponent(uCoefficient) + densityExponent(vCoefficient) - exponent;
+        return Math.exp(logarithmDensity(u, uCoefficient, uLogarithmFactorial, base) +
+                logarithmDensity(v, vCoefficient, vLogarithmFactorial, base) + excess * Math.log(base));
+    }
+
+    /**
+     * Применение степенного коэффициента с расширенной точностью
+     */
+    private static void applyCoefficientPower(DoubleDouble u, double coefficient, DoubleDouble factorial) {
+        if (coefficient <= 1) {
+            return;
+        }
+        u.power(coefficient).divide(factorial);
+    }
+
+    /**
+     * Деление с расширенной точностью на степень: result = u / base^exponent
+     */
+    private static void divideByPower(DoubleDouble result, DoubleDouble u, double baseHigh, double baseLow,
+            double exponent) {
+        result.set(baseHigh, baseLow).power(exponent);
+        double high = result.getHigh();
+        double low = result.getLow();
+        result.set(u).divide(high, low);
+    }
+
+    /**
+     * Применение основных операций перехода с расширенной точностью
+     */
+    private static void applyTransitionCommon(DoubleDouble u, DoubleDouble operandDensity, int mode,
+            double probability, double operandCoefficient) {
+        if (mode == TransitionMode.INHIBITOR) {
+            u.multiply(operandCoefficient).negate().add(operandDensity);
+        }
+        u.multiply(probability);
+        if (mode == TransitionMode.RESIDUAL) {
+            u.multiply(operandCoefficient).negate().add(operandDensity);
+        }
+    }
+
+    /**
+     * Прибавление значения, умноженного на множитель, к состоянию с расширенной точностью
+     */
+    private static void addExtended(int state, DoubleDouble value, double factor, double[] high, double[] low,
+            DoubleDouble register) {
+        register.set(value).multiply(factor).add(high[state], low[state]);
+        high[state] = register.getHigh();
+        low[state] = register.getLow();
+    }
+
+    /**
+     * Вероятностный факториал с расширенной точностью
+     */
+    private static DoubleDouble factorialExtended(double coefficient) {
+        return DoubleDouble.valueOf(Calculator.probabilisticFactorialBig(coefficient, MathContext.DECIMAL128));
+    }
+
+    /**
+     * Применение основных операций перехода
+     */
+    private static double applyTransitionCommon(double u, double operandDensity, int mode, double probability,
+            double operandCoefficient) {
+        if (mode == TransitionMode.INHIBITOR) {
+            u = operandDensity - u * operandCoefficient;
+        }
+        u *= probability;
+        if (mode == TransitionMode.RESIDUAL) {
+            u = operandDensity - u * operandCoefficient;
+        }
+        return u;
+    }
+
+    /**
+     * Делитель линейного коэффициента
+     */
+    private static double linearDivisor(double coefficient) {
+        if (coefficient <= 1) {
+            return 1;
+        }
+        return coefficient;
+    }
+
+    /**
+     * Выбор ядра перехода
+     */
+    private static int selectKernel(int type, int sourceState, int operandState) {
+        int shape;
+        if (isStateExternal(sourceState)) {
+            shape = 0;
+        } else if (isStateExternal(operandState)) {
+            shape = 1;
+        } else if (sourceState == operandState) {
+            shape = 2;
+        } else {
+            shape = 3;
+        }
+        if (type == TransitionType.SOLUTE) {
+            return KERNEL_SOLUTE_SOURCE_EXTERNAL + shape;
+        } else if (type == TransitionType.BLEND) {
+            return KERNEL_BLEND_SOURCE_EXTERNAL + shape;
+        } else if (type == TransitionType.LINEAR) {
+            return KERNEL_LINEAR_SOURCE_EXTERNAL + shape;
+        } else {
+            return KERNEL_NONE;
+        }
+    }
+
+    /**
+     * Поиск позиции состояния по идентификатору
+     *
+     * @throws IllegalArgumentException если состояния нет в задаче и оно не внешнее
+     */
+    private static int findState(HashMap<Integer, Integer> positions, int id) {
+        if (id == State.EXTERNAL) {
+            return State.EXTERNAL;
+        }
+        Integer position = positions.get(id);
+        if (position == null) {
+            throw new IllegalArgumentException("Unknown state: " + id);
+        }
+        return position;
+    }
+
+    /**
+     * Определение, является состояние внешним или нет
+     */
+    static boolean isStateExternal(int state) {
+        return state == State.EXTERNAL;
+    }
+
+    /**
+     * Ключ общего слагаемого: вид, состояние, задержка и коэффициент.
+     * Переход, по параметрам которого слагаемое вычисляется, в сравнении не участвует.
+     */
+    private static final class TermKey {
+        private final int mKind;
+        private final int mState;
+        private final int mDelay;
+        private final double mCoefficient;
+        private final int mSide;
+        private final int mTransition;
+
+        private TermKey(int kind, int state, int delay, double coefficient, int side, int transition) {
+            mKind = kind;
+            mState = state;
+            mDelay = delay;
+            mCoefficient = coefficient;
+            mSide = side;
+            mTransition = transition;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TermKey)) {
+                return false;
+            }
+            TermKey other = (TermKey) o;
+            return mKind == other.mKind && mState == other.mState && mDelay == other.mDelay &&
+                    Double.compare(mCoefficient, other.mCoefficient) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = mKind;
+            result = 31 * result + mState;
+            result = 31 * result + mDelay;
+            result = 31 * result + Double.hashCode(mCoefficient);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Population
+ * Copyright (C) 2016 Yuriy Budiyev [yuriy.budiyev@yandex.ru]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see http://www.gnu.org/licenses/.
+ */
+package com.budiyev.population.component;
+
+import java.util.concurrent.Phaser;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Постоянная команда исполнителей для параллельного режима.
+ * Потоки создаются один раз на всё вычисление и синхронизируются на каждом шаге
+ * через {@link Phaser}; вызывающий поток выступает исполнителем с номером 0.
+ */
+final class WorkerTeam {
+    private final Phaser mPhaser; // Барьер шага
+    private final int mWorkersCount; // Количество исполнителей
+    private volatile Action mAction; // Текущее действие
+    private volatile Throwable mError; // Ошибка, возникшая при выполнении действия
+    private volatile boolean mTerminated; // Команда остановлена
+
+    /**
+     * @param workersCount  количество исполнителей, включая вызывающий поток
+     * @param threadFactory фабрика потоков
+     */
+    WorkerTeam(int workersCount, ThreadFactory threadFactory) {
+        mWorkersCount = workersCount;
+        mPhaser = new Phaser(workersCount);
+        for (int worker = 1; worker < workersCount; worker++) {
+            threadFactory.newThread(new Worker(worker)).start();
+        }
+    }
+
+    /**
+     * @return количество исполнителей
+     */
+    int getWorkersCount() {
+        return mWorkersCount;
+    }
+
+    /**
+     * Выполнение действия всеми исполнителями; возвращает управление,
+     * когда все исполнители завершили свою часть
+     *
+     * @param action действие
+     */
+    void execute(Action action) {
+        mAction = action;
+        mPhaser.arriveAndAwaitAdvance();
+        run(action, 0);
+        mPhaser.arriveAndAwaitAdvance();
+        mAction = null;
+        Throwable error = mError;
+        if (error != null) {
+            mError = null;
+            throw new RuntimeException(error);
+        }
+    }
+
+    /**
+     * Остановка команды
+     */
+    void shutdown() {
+        mTerminated = true;
+        mPhaser.arriveAndDeregister();
+    }
+
+    private void run(Action action, int worker) {
+        try {
+            action.run(worker);
+        } catch (Throwable t) {
+            mError = t;
+        }
+    }
+
+    /**
+     * Действие, выполняемое каждым исполнителем над своей частью данных
+     */
+    interface Action {
+        /**
+         * @param worker номер исполнителя
+         */
+        void run(int worker);
+    }
+
+    /**
+     * Цикл исполнителя
+     */
+    private class Worker implements Runnable {
+        private final int mWorker;
+
+        private Worker(int worker) {
+            mWorker = worker;
+        }
+
+        @Override
+        public void run() {
+            for (; ; ) {
+                mPhaser.arriveAndAwaitAdvance();
+                if (mTerminated) {
+                    mPhaser.arriveAndDeregister();
+                    return;
+                }
+                WorkerTeam.this.run(mAction, mWorker);
+                mPhaser.arriveAndAwaitAdvance();
+            }
+        }
+    }
+}
@@ -37,6 +37,9 @@ import java.util.stream.Collectors;
 import com.budiyev.population.PopulationApplication;
 import com.budiyev.population.component.Calculator;
 import com.budiyev.population.component.ChartSeries;
+import com.budiyev.population.component.MappedStepSink;
+import com.budiyev.population.component.MemoryStepSink;
+import com.budiyev.population.component.StepSink;
 import com.budiyev.population.component.TickLabelFormatter;
 import com.budiyev.population.controller.base.AbstractController;
 import com.budiyev.population.model.Result;
@@ -81,6 +84,10 @@ import javafx.util.Callback;
 import javafx.util.StringConverter;
 
 public class PrimaryController extends AbstractController {
+    /**
+     * Объём результата в байтах, начиная с которого он хранится в файле, отображённом в память
+     */
+    private static final long MAPPED_RESULT_THRESHOLD = 256L * 1024 * 1024;
     private final ObservableList<State> mStates = FXCollections.observableArrayList();
     private final ObservableList<Number> mStatesIdList = FXCollections.observableArrayList();
     private final ObservableList<Transition> mTransitions = FXCollections.observableArrayList();
@@ -88,6 +95,7 @@ public class PrimaryController extends AbstractController {
     private final HashMap<Number, State> mStatesIdMap = new HashMap<>();
     private final HashMap<String, String> mTaskSettings = new HashMap<>();
     private final ArrayList<Result> mResultsTableData = new ArrayList<>();
+    private final ArrayList<Result> mResultsChartResults = new ArrayList<>();
     private final int[] mCurrentChartBounds = {0, 100};
     private volatile boolean mZoomingChart;
     private volatile boolean mCalculating;
@@ -995,7 +1003,7 @@ public class PrimaryController extends AbstractController {
             boolean empty = true;
             ArrayList<TableResult> row = new ArrayList<>(columnCount);
             for (Result result : mResultsTableData) {
-                ArrayList<TableResult> data = result.getTableData();
+                List<TableResult> data = result.getTableData();
                 int localIndex = i - result.getStartPoint();
                 if (localIndex >= 0 && localIndex < data.size()) {
                     row.add(data.get(localIndex));
@@ -1027,6 +1035,7 @@ public class PrimaryController extends AbstractController {
                 chartSeries.visibilityProperty().addListener((observable, oldValue, newValue) -> refreshResultsChart());
                 mResultsChartData.add(chartSeries);
             }
+            mResultsChartResults.add(result);
             refreshResultsChart();
             resetResultsChartScale();
         }
@@ -1034,6 +1043,16 @@ public class PrimaryController extends AbstractController {
             mResultsTableData.add(result);
             refreshResultsTable();
         }
+        releaseResult(result);
+    }
+
+    /**
+     * Освобождение хранилища результата, если он больше не отображается ни на графике, ни в таблице
+     */
+    private void releaseResult(Result result) {
+        if (!mResultsChartResults.contains(result) && !mResultsTableData.contains(result)) {
+            result.close();
+        }
     }
 
     private void setControlsDisable(boolean value) {
@@ -1140,16 +1159,29 @@ public class PrimaryController extends AbstractController {
         task.setTransitions(mTransitions);
         task.setStartPoint(startPoint);
         task.setStepsCount(stepsCount);
+        task.setAccuracy(Integer.parseInt(mTaskSettings.get(Task.Keys.ACCURACY)));
         task.setHigherAccuracy(mHigherAccuracy.isSelected());
+        task.setPrecision(Integer.parseInt(mTaskSettings.get(Task.Keys.PRECISION)));
+        task.setCompensatedSummation(Boolean.parseBoolean(mTaskSettings.get(Task.Keys.COMPENSATED_SUMMATION)));
+        task.setSteadyStateEpsilon(Double.parseDouble(mTaskSettings.get(Task.Keys.STEADY_STATE_EPSILON)));
+        task.setSteadyStateWindow(Integer.parseInt(mTaskSettings.get(Task.Keys.STEADY_STATE_WINDOW)));
+        task.setSteadyStateFill(Boolean.parseBoolean(mTaskSettings.get(Task.Keys.STEADY_STATE_FILL)));
         task.setAllowNegative(mAllowNegativeNumbers.isSelected());
         task.setParallel(mParallel.isSelected());
-        Calculator.calculateAsync(task, mResultsInTable.isSelected(), mResultsOnChart.isSelected(),
-                result -> Platform.runLater(() -> {
-                    publishResult(result);
-                    mCalculationProgressBar.setVisible(false);
-                    setControlsDisable(false);
-                    mCalculating = false;
-                }), progress -> Platform.runLater(() -> mCalculationProgressBar.setProgress(progress)),
+        boolean resultsInTable = mResultsInTable.isSelected();
+        boolean resultsOnChart = mResultsOnChart.isSelected();
+        StepSink sink;
+        if ((long) stepsCount * mStates.size() * Double.BYTES > MAPPED_RESULT_THRESHOLD) {
+            sink = new MappedStepSink(resultsInTable, resultsOnChart);
+        } else {
+            sink = new MemoryStepSink(resultsInTable, resultsOnChart);
+        }
+        Calculator.calculateAsync(task, sink, result -> Platform.runLater(() -> {
+            publishResult(result);
+            mCalculationProgressBar.setVisible(false);
+            setControlsDisable(false);
+            mCalculating = false;
+        }), progress -> Platform.runLater(() -> mCalculationProgressBar.setProgress(progress)),
                 getApplication().getThreadFactory());
     }
 
@@ -1295,13 +1327,18 @@ public class PrimaryController extends AbstractController {
 
     public void clearResultsChart() {
         mResultsChartData.clear();
+        ArrayList<Result> results = new ArrayList<>(mResultsChartResults);
+        mResultsChartResults.clear();
+        results.forEach(this::releaseResult);
         mResultsChart.getData().clear();
         mResultsChart.getYAxis().setAutoRanging(true);
         resetResultsChartBounds();
     }
 
     public void clearResultsTable() {
+        ArrayList<Result> results = new ArrayList<>(mResultsTableData);
         mResultsTableData.clear();
+        results.forEach(this::releaseResult);
         mResultsTable.getItems().clear();
         mResultsTable.getColumns().clear();
     }
@@ -0,0 +1,47 @@
+/*
+ * Population
+ * Copyright (C) 2016 Yuriy Budiyev [yuriy.budiyev@yandex.ru]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see http://www.gnu.org/licenses/.
+ */
+package com.budiyev.population.model;
+
+/**
+ * Точность вычислений
+ */
+public final class Accuracy {
+    /**
+     * Обычная точность, double
+     */
+    public static final int NORMAL = 0;
+    /**
+     * Расширенная точность (около 32 значащих цифр), пары double без выделения памяти на операции
+     */
+    public static final int EXTENDED = 1;
+    /**
+     * Повышенная точность, BigDecimal с заданным количеством значащих цифр
+     */
+    public static final int HIGHER = 2;
+    /**
+     * Вычисления в long с фиксированной десятичной точкой для задач только с линейными переходами;
+     * результаты точные, пока значения помещаются в long при достаточном масштабе, после чего вычисления
+     * продолжаются в BigDecimal с округлением до заданного количества значащих цифр
+     * (первый такой шаг - {@link Result#getInexactStep()}).
+     * Для остальных задач - повышенная точность
+     */
+    public static final int FIXED_POINT = 3;
+
+    private Accuracy() {
+    }
+}
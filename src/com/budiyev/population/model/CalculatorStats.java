@@ -0,0 +1,199 @@
+/*
+ * Population
+ * Copyright (C) 2016 Yuriy Budiyev [yuriy.budiyev@yandex.ru]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see http://www.gnu.org/licenses/.
+ */
+package com.budiyev.population.model;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Статистика профилирования вычислений: время и количество вызовов каждого перехода,
+ * время каждой фазы шага и гистограмма длительности шагов
+ */
+public class CalculatorStats {
+    /**
+     * Фазы шага
+     */
+    public static final int PHASE_COPY = 0; // Копирование прошлого шага и подготовка задержек
+    public static final int PHASE_TOTAL_COUNT = 1; // Вычисление общего количества
+    public static final int PHASE_TRANSITIONS = 2; // Вычисление переходов
+    public static final int PHASE_REDUCE = 3; // Сложение изменений исполнителей (параллельный режим)
+    public static final int PHASE_PUBLISH = 4; // Передача шага получателю
+    public static final int PHASE_PROGRESS = 5; // Обратный вызов прогресса
+    public static final int PHASE_RESULT = 6; // Формирование результата
+    public static final int PHASES_COUNT = 7;
+    /**
+     * Количество интервалов гистограммы длительности шагов, интервал i - от 2^i до 2^(i+1) наносекунд
+     */
+    public static final int HISTOGRAM_SIZE = 64;
+    private static final String[] PHASE_NAMES =
+            {"copy", "total count", "transitions", "reduce", "publish", "progress", "result"};
+    private static final int REPORT_TRANSITIONS_LIMIT = 20;
+    private static final double NANOS_IN_MILLI = 1e6;
+    private final long[] mTransitionTimes; // Время вычисления каждого перехода
+    private final long[] mTransitionCalls; // Количество вызовов каждого перехода
+    private final long[] mPhaseTimes = new long[PHASES_COUNT]; // Время каждой фазы
+    private final long[] mStepTimeHistogram = new long[HISTOGRAM_SIZE]; // Гистограмма длительности шагов
+    private long mStepsCount; // Количество шагов
+    private long mMinStepTime = Long.MAX_VALUE; // Минимальная длительность шага
+    private long mMaxStepTime; // Максимальная длительность шага
+    private long mTotalTime; // Общее время вычислений
+
+    /**
+     * @param transitionsCount количество переходов в задаче
+     */
+    public CalculatorStats(int transitionsCount) {
+        mTransitionTimes = new long[transitionsCount];
+        mTransitionCalls = new long[transitionsCount];
+    }
+
+    /**
+     * Учёт времени фазы
+     *
+     * @param phase фаза
+     * @param start время начала фазы, {@link System#nanoTime()}
+     * @return время окончания фазы (начало следующей)
+     */
+    public long addPhaseTime(int phase, long start) {
+        long end = System.nanoTime();
+        mPhaseTimes[phase] += end - start;
+        return end;
+    }
+
+    /**
+     * Учёт вызова перехода; разные переходы можно учитывать из разных потоков
+     *
+     * @param transition позиция перехода в задаче
+     * @param time       время вычисления в наносекундах
+     */
+    public void addTransitionTime(int transition, long time) {
+        mTransitionTimes[transition] += time;
+        mTransitionCalls[transition]++;
+    }
+
+    /**
+     * Учёт длительности шага
+     *
+     * @param time длительность в наносекундах
+     */
+    public void addStepTime(long time) {
+        mStepsCount++;
+        if (time < mMinStepTime) {
+            mMinStepTime = time;
+        }
+        if (time > mMaxStepTime) {
+            mMaxStepTime = time;
+        }
+        mStepTimeHistogram[time > 0 ? 63 - Long.numberOfLeadingZeros(time) : 0]++;
+    }
+
+    /**
+     * @param totalTime общее время вычислений в наносекундах
+     */
+    public void setTotalTime(long totalTime) {
+        mTotalTime = totalTime;
+    }
+
+    public long getTotalTime() {
+        return mTotalTime;
+    }
+
+    public long getPhaseTime(int phase) {
+        return mPhaseTimes[phase];
+    }
+
+    public int getTransitionsCount() {
+        return mTransitionTimes.length;
+    }
+
+    public long getTransitionTime(int transition) {
+        return mTransitionTimes[transition];
+    }
+
+    public long getTransitionCalls(int transition) {
+        return mTransitionCalls[transition];
+    }
+
+    public long getStepsCount() {
+        return mStepsCount;
+    }
+
+    public long getMinStepTime() {
+        return mStepsCount == 0 ? 0 : mMinStepTime;
+    }
+
+    public long getMaxStepTime() {
+        return mMaxStepTime;
+    }
+
+    /**
+     * @return гистограмма длительности шагов, интервал i - от 2^i до 2^(i+1) наносекунд
+     */
+    public long[] getStepTimeHistogram() {
+        return mStepTimeHistogram.clone();
+    }
+
+    /**
+     * @return отчёт в текстовом виде
+     */
+    public String buildReport() {
+        String lineSeparator = System.lineSeparator();
+        StringBuilder report = new StringBuilder();
+        report.append("Total: ").append(formatMillis(mTotalTime)).append(", steps: ").append(mStepsCount)
+                .append(lineSeparator);
+        report.append("Phases:").append(lineSeparator);
+        for (int phase = 0; phase < PHASES_COUNT; phase++) {
+            report.append("  ").append(PHASE_NAMES[phase]).append(": ").append(formatMillis(mPhaseTimes[phase]))
+                    .append(" (").append(formatPercent(mPhaseTimes[phase])).append(')').append(lineSeparator);
+        }
+        Integer[] transitions = new Integer[mTransitionTimes.length];
+        for (int i = 0; i < transitions.length; i++) {
+            transitions[i] = i;
+        }
+        Arrays.sort(transitions, (a, b) -> Long.compare(mTransitionTimes[b], mTransitionTimes[a]));
+        int limit = Math.min(transitions.length, REPORT_TRANSITIONS_LIMIT);
+        report.append("Slowest transitions (").append(limit).append(" of ").append(transitions.length).append("):")
+                .append(lineSeparator);
+        for (int i = 0; i < limit; i++) {
+            int transition = transitions[i];
+            long calls = mTransitionCalls[transition];
+            report.append("  #").append(transition + 1).append(": ").append(formatMillis(mTransitionTimes[transition]))
+                    .append(" (").append(formatPercent(mTransitionTimes[transition])).append("), calls: ")
+                    .append(calls).append(", average: ")
+                    .append(calls == 0 ? 0 : mTransitionTimes[transition] / calls).append(" ns")
+                    .append(lineSeparator);
+        }
+        report.append("Step time: min ").append(getMinStepTime()).append(" ns, max ").append(mMaxStepTime)
+                .append(" ns").append(lineSeparator);
+        for (int i = 0; i < HISTOGRAM_SIZE; i++) {
+            long count = mStepTimeHistogram[i];
+            if (count != 0) {
+                report.append("  [").append(1L << i).append(" ns, ").append(i >= 62 ? "..." : (1L << (i + 1)) + " ns")
+                        .append("): ").append(count).append(lineSeparator);
+            }
+        }
+        return report.toString();
+    }
+
+    private String formatPercent(long time) {
+        return String.format(Locale.ROOT, "%.1f%%", mTotalTime > 0 ? time * 100.0 / mTotalTime : 0.0);
+    }
+
+    private static String formatMillis(long time) {
+        return String.format(Locale.ROOT, "%.3f ms", time / NANOS_IN_MILLI);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Population
+ * Copyright (C) 2016 Yuriy Budiyev [yuriy.budiyev@yandex.ru]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see http://www.gnu.org/licenses/.
+ */
+package com.budiyev.population.model;
+
+import java.util.Locale;
+
+/**
+ * Установившееся состояние (неподвижная точка одного шага) задачи и оценка его устойчивости
+ */
+public class Equilibrium {
+    /**
+     * Решение разреженной системы линейных уравнений (задачи только с линейными переходами)
+     */
+    public static final int METHOD_LINEAR = 0;
+    /**
+     * Итерации одного шага с ускорением Андерсона
+     */
+    public static final int METHOD_ANDERSON = 1;
+    private final double[] mStates; // Состояния
+    private final int mMethod; // Метод, которым найдено состояние
+    private final boolean mConverged; // Достигнута заданная невязка
+    private final double mResidual; // Относительная невязка: наибольшее изменение состояния за шаг
+    private final int mIterations; // Количество итераций
+    private final int mEvaluations; // Количество вычислений шага
+    private final int mConservationLaws; // Количество сохраняющихся величин
+    private final boolean mTrajectoryDependent; // Предел вычислений по шагам зависит от пути
+    private final double mSpectralRadius; // Оценка спектрального радиуса линеаризованного шага
+
+    /**
+     * @param states              состояния
+     * @param method              метод, которым найдено состояние
+     * @param converged           достигнута заданная невязка
+     * @param residual            относительная невязка
+     * @param iterations          количество итераций
+     * @param evaluations         количество вычислений шага
+     * @param conservationLaws    количество сохраняющихся величин
+     * @param trajectoryDependent предел вычислений по шагам зависит от пути и может не совпадать
+     *                            с найденным состоянием
+     * @param spectralRadius      оценка спектрального радиуса линеаризованного шага
+     *                            без направлений сохраняющихся величин
+     */
+    public Equilibrium(double[] states, int method, boolean converged, double residual, int iterations,
+            int evaluations, int conservationLaws, boolean trajectoryDependent, double spectralRadius) {
+        mStates = states;
+        mMethod = method;
+        mConverged = converged;
+        mResidual = residual;
+        mIterations = iterations;
+        mEvaluations = evaluations;
+        mConservationLaws = conservationLaws;
+        mTrajectoryDependent = trajectoryDependent;
+        mSpectralRadius = spectralRadius;
+    }
+
+    /**
+     * @param state позиция состояния
+     * @return количество автоматов состояния
+     */
+    public double getState(int state) {
+        return mStates[state];
+    }
+
+    public int getStatesCount() {
+        return mStates.length;
+    }
+
+    public int getMethod() {
+        return mMethod;
+    }
+
+    public boolean isConverged() {
+        return mConverged;
+    }
+
+    public double getResidual() {
+        return mResidual;
+    }
+
+    public int getIterations() {
+        return mIterations;
+    }
+
+    public int getEvaluations() {
+        return mEvaluations;
+    }
+
+    public int getConservationLaws() {
+        return mConservationLaws;
+    }
+
+    /**
+     * @return предел вычислений по шагам зависит от пути (задача только с линейными переходами, множество
+     * неподвижных точек не закреплено величинами, следующими из изменений состояний переходами, или найденная
+     * точка лежит на границе, где сходятся несколько его частей) и может не совпадать с найденным состоянием
+     */
+    public boolean isTrajectoryDependent() {
+        return mTrajectoryDependent;
+    }
+
+    /**
+     * @return оценка спектрального радиуса линеаризованного шага: во сколько раз за шаг
+     * уменьшается малое отклонение от установившегося состояния, не меняющее сохраняющихся величин
+     */
+    public double getSpectralRadius() {
+        return mSpectralRadius;
+    }
+
+    /**
+     * @return состояние найдено и малые отклонения от него затухают
+     */
+    public boolean isStable() {
+        return mConverged && mSpectralRadius < 1;
+    }
+
+    /**
+     * @return текстовый отчёт
+     */
+    public String buildReport() {
+        String lineSeparator = System.lineSeparator();
+        StringBuilder report = new StringBuilder();
+        report.append("Method: ").append(mMethod == METHOD_LINEAR ? "sparse linear solve" : "Anderson iteration")
+                .append(", iterations: ").append(mIterations).append(", step evaluations: ").append(mEvaluations)
+                .append(lineSeparator);
+        report.append("Converged: ").append(mConverged).append(", relative residual: ").append(format(mResidual))
+                .append(lineSeparator);
+        report.append("Conservation laws: ").append(mConservationLaws).append(", spectral radius: ")
+                .append(format(mSpectralRadius)).append(mSpectralRadius < 1 ? " (stable)" : " (not stable)")
+                .append(lineSeparator);
+        if (mTrajectoryDependent) {
+            report.append("The limit of step by step calculation depends on the trajectory and may differ")
+                    .append(lineSeparator);
+        }
+        for (int state = 0; state < mStates.length; state++) {
+            report.append("  #").append(state + 1).append(": ").append(mStates[state]).append(lineSeparator);
+        }
+        return report.toString();
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3e", value);
+    }
+}
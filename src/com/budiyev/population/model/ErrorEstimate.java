@@ -0,0 +1,149 @@
+/*
+ * Population
+ * Copyright (C) 2016 Yuriy Budiyev [yuriy.budiyev@yandex.ru]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see http://www.gnu.org/licenses/.
+ */
+package com.budiyev.population.model;
+
+import java.util.Locale;
+
+/**
+ * Оценка погрешности вычислений с обычной точностью: параллельно с вычислениями с обычной
+ * точностью от тех же начальных состояний вычисляется проверочная траектория, и на выбранных шагах
+ * для каждого состояния запоминается наибольшее относительное накопленное расхождение траекторий.
+ * Если одна из траекторий переполняется, запоминается шаг переполнения, и проверка прекращается
+ */
+public class ErrorEstimate {
+    private final double[] mDivergences; // Наибольшие относительные расхождения состояний
+    private final int mInterval; // Интервал между проверяемыми шагами
+    private int mSamplesCount; // Количество проверенных шагов
+    private int mOverflowStep = -1; // Шаг переполнения, -1 - без переполнения
+    private int mOverflowState = -1; // Позиция переполненного состояния
+
+    /**
+     * @param statesCount количество состояний
+     * @param interval    интервал между проверяемыми шагами
+     */
+    public ErrorEstimate(int statesCount, int interval) {
+        mDivergences = new double[statesCount];
+        mInterval = interval;
+    }
+
+    /**
+     * Учёт проверенного шага
+     *
+     * @param states        состояния, вычисленные с обычной точностью
+     * @param referenceHigh старшие части состояний, вычисленных с расширенной точностью
+     * @param referenceLow  младшие части состояний, вычисленных с расширенной точностью
+     */
+    public void addSample(double[] states, double[] referenceHigh, double[] referenceLow) {
+        mSamplesCount++;
+        for (int state = 0; state < mDivergences.length; state++) {
+            double reference = referenceHigh[state] + referenceLow[state];
+            double difference = Math.abs((states[state] - referenceHigh[state]) - referenceLow[state]);
+            double divergence = reference == 0 ? difference : difference / Math.abs(reference);
+            if (!(divergence <= mDivergences[state])) {
+                mDivergences[state] = divergence;
+            }
+        }
+    }
+
+    /**
+     * Учёт переполнения: значение состояния на шаге не является конечным числом
+     * хотя бы в одной из траекторий, расхождения после этого шага не учитываются
+     *
+     * @param step  номер шага
+     * @param state позиция состояния
+     */
+    public void setOverflow(int step, int state) {
+        mOverflowStep = step;
+        mOverflowState = state;
+    }
+
+    public boolean isOverflow() {
+        return mOverflowStep >= 0;
+    }
+
+    /**
+     * @return номер шага переполнения, -1 - без переполнения
+     */
+    public int getOverflowStep() {
+        return mOverflowStep;
+    }
+
+    /**
+     * @return позиция первого переполненного состояния, -1 - без переполнения
+     */
+    public int getOverflowState() {
+        return mOverflowState;
+    }
+
+    /**
+     * @param state позиция состояния
+     * @return наибольшее относительное расхождение состояния
+     */
+    public double getDivergence(int state) {
+        return mDivergences[state];
+    }
+
+    /**
+     * @return наибольшее относительное расхождение среди всех состояний
+     */
+    public double getMaxDivergence() {
+        double result = 0;
+        for (double divergence : mDivergences) {
+            if (!(divergence <= result)) {
+                result = divergence;
+            }
+        }
+        return result;
+    }
+
+    public int getStatesCount() {
+        return mDivergences.length;
+    }
+
+    public int getInterval() {
+        return mInterval;
+    }
+
+    public int getSamplesCount() {
+        return mSamplesCount;
+    }
+
+    /**
+     * @return текстовый отчёт
+     */
+    public String buildReport() {
+        String lineSeparator = System.lineSeparator();
+        StringBuilder report = new StringBuilder();
+        report.append("Sampled steps: ").append(mSamplesCount).append(" (every ").append(mInterval)
+                .append("), max relative divergence: ").append(formatDivergence(getMaxDivergence()))
+                .append(lineSeparator);
+        if (isOverflow()) {
+            report.append("Overflow at step ").append(mOverflowStep).append(" (#").append(mOverflowState + 1)
+                    .append("), later steps not checked").append(lineSeparator);
+        }
+        for (int state = 0; state < mDivergences.length; state++) {
+            report.append("  #").append(state + 1).append(": ").append(formatDivergence(mDivergences[state]))
+                    .append(lineSeparator);
+        }
+        return report.toString();
+    }
+
+    private static String formatDivergence(double divergence) {
+        return String.format(Locale.ROOT, "%.3e", divergence);
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Population
+ * Copyright (C) 2016 Yuriy Budiyev [yuriy.budiyev@yandex.ru]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see http://www.gnu.org/licenses/.
+ */
+package com.budiyev.population.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Хранилище значений состояний в файле, отображённом в память.
+ * Шаги записываются построчно; файл разбит на сегменты не более 2 ГиБ каждый,
+ * страницы подгружаются операционной системой по мере обращения к ним.
+ */
+public class MappedResultStorage implements ResultStorage {
+    private static final int VALUE_SIZE = Double.BYTES;
+    private static final String TEMP_FILE_PREFIX = "population";
+    private static final String TEMP_FILE_SUFFIX = ".bin";
+    private final File mFile; // Файл
+    private final boolean mTemporary; // Удалить файл при освобождении хранилища
+    private final int mStepsCount; // Количество шагов
+    private final int mStatesCount; // Количество состояний
+    private final int mSegmentSteps; // Количество шагов в одном сегменте
+    private final DoubleBuffer[] mSegments; // Отображённые в память сегменты файла
+
+    private MappedResultStorage(File file, int stepsCount, int statesCount, boolean temporary)
+            throws IOException {
+        mFile = file;
+        mTemporary = temporary;
+        mStepsCount = stepsCount;
+        mStatesCount = statesCount;
+        long rowSize = (long) Math.max(statesCount, 1) * VALUE_SIZE;
+        int segmentSteps = (int) Math.max(1, Math.min(stepsCount, Integer.MAX_VALUE / rowSize));
+        mSegmentSteps = segmentSteps;
+        int segmentsCount = stepsCount == 0 ? 0 : (stepsCount - 1) / segmentSteps + 1;
+        mSegments = new DoubleBuffer[segmentsCount];
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(rowSize * stepsCount);
+            FileChannel channel = randomAccessFile.getChannel();
+            for (int segment = 0; segment < segmentsCount; segment++) {
+                long position = rowSize * segmentSteps * segment;
+                long size = rowSize * Math.min(segmentSteps, stepsCount - segmentSteps * segment);
+                mSegments[segment] =
+                        channel.map(FileChannel.MapMode.READ_WRITE, position, size).order(ByteOrder.nativeOrder())
+                                .asDoubleBuffer();
+            }
+        }
+    }
+
+    /**
+     * Запись значений состояний на шаге
+     *
+     * @param step   номер шага (от нуля)
+     * @param states состояния
+     */
+    public void setStep(int step, double[] states) {
+        DoubleBuffer segment = mSegments[step / mSegmentSteps];
+        int offset = (step % mSegmentSteps) * mStatesCount;
+        for (int state = 0; state < mStatesCount; state++) {
+            segment.put(offset + state, states[state]);
+        }
+    }
+
+    @Override
+    public int getStepsCount() {
+        return mStepsCount;
+    }
+
+    @Override
+    public double getValue(int step, int state) {
+        return mSegments[step / mSegmentSteps].get((step % mSegmentSteps) * mStatesCount + state);
+    }
+
+    /**
+     * Освобождение отображённых сегментов; временный файл удаляется.
+     * Память освобождается сборщиком мусора, поэтому если файл ещё отображён и не может быть удалён сразу,
+     * он будет удалён при завершении работы.
+     */
+    @Override
+    public void close() {
+        Arrays.fill(mSegments, null);
+        if (mTemporary && !mFile.delete()) {
+            mFile.deleteOnExit();
+        }
+    }
+
+    /**
+     * @return файл
+     */
+    public File getFile() {
+        return mFile;
+    }
+
+    /**
+     * Создание хранилища; существующий файл перезаписывается
+     *
+     * @param file        файл
+     * @param stepsCount  количество шагов
+     * @param statesCount количество состояний
+     * @return хранилище
+     * @throws IOException если не удалось создать файл или отобразить его в память
+     */
+    public static MappedResultStorage create(File file, int stepsCount, int statesCount) throws IOException {
+        return new MappedResultStorage(file, stepsCount, statesCount, false);
+    }
+
+    /**
+     * Создание хранилища во временном файле, удаляемом при освобождении хранилища
+     * или при завершении работы
+     *
+     * @param stepsCount  количество шагов
+     * @param statesCount количество состояний
+     * @return хранилище
+     * @throws IOException если не удалось создать файл или отобразить его в память
+     */
+    public static MappedResultStorage createTemporary(int stepsCount, int statesCount) throws IOException {
+        File file = File.createTempFile(TEMP_FILE_PREFIX, TEMP_FILE_SUFFIX);
+        file.deleteOnExit();
+        try {
+            return new MappedResultStorage(file, stepsCount, statesCount, true);
+        } catch (IOException e) {
+            file.delete();
+            throw e;
+        }
+    }
+}
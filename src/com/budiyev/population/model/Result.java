@@ -17,8 +17,10 @@
  */
 package com.budiyev.population.model;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.RandomAccess;
 import java.util.stream.Collectors;
 
 import javafx.collections.FXCollections;
@@ -26,55 +28,65 @@ import javafx.collections.ObservableList;
 import javafx.scene.chart.XYChart;
 
 /**
- * Результаты вычислений
+ * Результаты вычислений.
+ * Значения читаются из {@link ResultStorage} (в памяти по столбцам или в файле, отображённом в память),
+ * строки таблицы и точки графика создаются по требованию при обращении к ним.
  */
 public class Result {
+    /**
+     * Вычислены все шаги, установившееся состояние не достигнуто
+     */
+    public static final int NO_CONVERGENCE = -1;
+    /**
+     * Все шаги вычислены с фиксированной точкой без потери точности
+     */
+    public static final int EXACT = -1;
     private final int mStartPoint;
+    private final int mStepsCount;
+    private final ResultStorage mStorage; // Значения состояний по шагам
     private final ArrayList<String> mDataNames;
-    private final ArrayList<TableResult> mTableData;
+    private final List<TableResult> mTableData;
     private final ArrayList<XYChart.Series<Number, Number>> mChartData;
+    private CalculatorStats mStats;
+    private ErrorEstimate mErrorEstimate;
+    private int mConvergenceStep = NO_CONVERGENCE;
+    private int mInexactStep = EXACT;
 
     /**
      * @param startPoint              начало отсчёта
-     * @param states                  состояния
+     * @param columns                 значения состояний по шагам, один столбец на каждое состояние
      * @param initialStates           начальные состояния
      * @param prepareResultsTableData подготовить результат в табличном виде
      * @param prepareResultsChartData подготовить результат в графическом виде
-     * @param filterNegativeValues    отфильтровать отрицательные значения
-     */
-    public Result(int startPoint, double[][] states, List<State> initialStates, boolean prepareResultsTableData,
-            boolean prepareResultsChartData, boolean filterNegativeValues) {
-        if (filterNegativeValues) {
-            for (int i = 0; i < states.length; i++) {
-                double[] step = states[i];
-                for (int j = 0; j < step.length; j++) {
-                    if (step[i] < 0) {
-                        step[i] = 0;
-                    }
-                }
-            }
-        }
+     */
+    public Result(int startPoint, double[][] columns, List<State> initialStates, boolean prepareResultsTableData,
+            boolean prepareResultsChartData) {
+        this(startPoint, new ColumnStorage(columns), initialStates, prepareResultsTableData, prepareResultsChartData);
+    }
+
+    /**
+     * @param startPoint              начало отсчёта
+     * @param storage                 хранилище значений состояний по шагам
+     * @param initialStates           начальные состояния
+     * @param prepareResultsTableData подготовить результат в табличном виде
+     * @param prepareResultsChartData подготовить результат в графическом виде
+     */
+    public Result(int startPoint, ResultStorage storage, List<State> initialStates, boolean prepareResultsTableData,
+            boolean prepareResultsChartData) {
         mStartPoint = startPoint;
+        mStorage = storage;
+        mStepsCount = storage.getStepsCount();
         mDataNames = new ArrayList<>(initialStates.size());
         mDataNames.addAll(initialStates.stream().map(State::getName).collect(Collectors.toList()));
         if (prepareResultsTableData) {
-            mTableData = new ArrayList<>(states.length);
-            for (int i = 0; i < states.length; i++) {
-                mTableData.add(new TableResult(states[i], i + mStartPoint));
-            }
+            mTableData = new TableData();
         } else {
             mTableData = null;
         }
         if (prepareResultsChartData) {
             mChartData = new ArrayList<>(mDataNames.size());
             for (int i = 0; i < mDataNames.size(); i++) {
-                ObservableList<XYChart.Data<Number, Number>> data =
-                        FXCollections.observableList(new ArrayList<>(states.length));
-                for (int j = 0; j < states.length; j++) {
-                    data.add(new XYChart.Data<>(j + mStartPoint, states[j][i]));
-                }
-                XYChart.Series<Number, Number> series = new XYChart.Series<>(mDataNames.get(i), data);
-                mChartData.add(series);
+                mChartData.add(new XYChart.Series<>(mDataNames.get(i), FXCollections.observableList(new ChartData(i))));
             }
         } else {
             mChartData = null;
@@ -88,6 +100,37 @@ public class Result {
         return mStartPoint;
     }
 
+    /**
+     * @return количество шагов
+     */
+    public int getStepsCount() {
+        return mStepsCount;
+    }
+
+    /**
+     * @param step  номер шага (от нуля)
+     * @param state позиция состояния
+     * @return значение состояния на шаге
+     */
+    public double getValue(int step, int state) {
+        return mStorage.getValue(step, state);
+    }
+
+    /**
+     * @return хранилище значений состояний по шагам
+     */
+    public ResultStorage getStorage() {
+        return mStorage;
+    }
+
+    /**
+     * Освобождение хранилища значений (например, удаление временного файла);
+     * после вызова результат не должен использоваться
+     */
+    public void close() {
+        mStorage.close();
+    }
+
     /**
      * @return имена состояний
      */
@@ -95,11 +138,117 @@ public class Result {
         return mDataNames;
     }
 
-    public ArrayList<TableResult> getTableData() {
+    public List<TableResult> getTableData() {
         return mTableData;
     }
 
     public ArrayList<XYChart.Series<Number, Number>> getChartData() {
         return mChartData;
     }
+
+    /**
+     * @return статистика профилирования или null, если профилирование не было включено
+     */
+    public CalculatorStats getStats() {
+        return mStats;
+    }
+
+    public void setStats(CalculatorStats stats) {
+        mStats = stats;
+    }
+
+    /**
+     * @return оценка погрешности или null, если оценка не была включена
+     */
+    public ErrorEstimate getErrorEstimate() {
+        return mErrorEstimate;
+    }
+
+    public void setErrorEstimate(ErrorEstimate errorEstimate) {
+        mErrorEstimate = errorEstimate;
+    }
+
+    /**
+     * @return шаг, на котором вычисления остановлены по достижении установившегося состояния,
+     * или {@link #NO_CONVERGENCE}
+     */
+    public int getConvergenceStep() {
+        return mConvergenceStep;
+    }
+
+    public void setConvergenceStep(int convergenceStep) {
+        mConvergenceStep = convergenceStep;
+    }
+
+    /**
+     * @return для вычислений с фиксированной точкой ({@link Accuracy#FIXED_POINT}) - первый шаг, вычисленный
+     * с округлением, или {@link #EXACT}; для остальных точностей не определяется и равен {@link #EXACT}
+     */
+    public int getInexactStep() {
+        return mInexactStep;
+    }
+
+    public void setInexactStep(int inexactStep) {
+        mInexactStep = inexactStep;
+    }
+
+    /**
+     * Строки таблицы, создаваемые по требованию
+     */
+    private class TableData extends AbstractList<TableResult> implements RandomAccess {
+        @Override
+        public TableResult get(int index) {
+            if (index < 0 || index >= mStepsCount) {
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+            return new TableResult(Result.this, index);
+        }
+
+        @Override
+        public int size() {
+            return mStepsCount;
+        }
+    }
+
+    /**
+     * Точки графика одного состояния, создаваемые по требованию
+     */
+    private class ChartData extends AbstractList<XYChart.Data<Number, Number>> implements RandomAccess {
+        private final int mState;
+
+        private ChartData(int state) {
+            mState = state;
+        }
+
+        @Override
+        public XYChart.Data<Number, Number> get(int index) {
+            return new XYChart.Data<>(index + mStartPoint, mStorage.getValue(index, mState));
+        }
+
+        @Override
+        public int size() {
+            return mStepsCount;
+        }
+    }
+
+    /**
+     * Хранилище значений состояний по столбцам, один столбец на каждое состояние
+     */
+    public static class ColumnStorage implements ResultStorage {
+        private final double[][] mColumns;
+
+        public ColumnStorage(double[][] columns) {
+            mColumns = columns;
+        }
+
+        @Override
+        public int getStepsCount() {
+            return mColumns.length == 0 ? 0 : mColumns[0].length;
+        }
+
+        @Override
+        public double getValue(int step, int state) {
+            return mColumns[state][step];
+        }
+    }
 }
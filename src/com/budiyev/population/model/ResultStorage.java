@@ -0,0 +1,41 @@
+/*
+ * Population
+ * Copyright (C) 2016 Yuriy Budiyev [yuriy.budiyev@yandex.ru]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see http://www.gnu.org/licenses/.
+ */
+package com.budiyev.population.model;
+
+/**
+ * Хранилище значений состояний по шагам, на основе которого строится {@link Result}
+ */
+public interface ResultStorage {
+    /**
+     * @return количество шагов
+     */
+    int getStepsCount();
+
+    /**
+     * @param step  номер шага (от нуля)
+     * @param state позиция состояния
+     * @return значение состояния на шаге
+     */
+    double getValue(int step, int state);
+
+    /**
+     * Освобождение ресурсов хранилища; после вызова значения недоступны
+     */
+    default void close() {
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Population
+ * Copyright (C) 2016 Yuriy Budiyev [yuriy.budiyev@yandex.ru]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see http://www.gnu.org/licenses/.
+ */
+package com.budiyev.population.model;
+
+/**
+ * Хранилище результата вычислений, остановленных по достижении установившегося состояния.
+ * Шаги после шага остановки не хранятся: их значения берутся из шага остановки по требованию,
+ * либо результат заканчивается на шаге остановки.
+ */
+public class SteadyStateStorage implements ResultStorage {
+    private final ResultStorage mStorage; // Хранилище вычисленных шагов
+    private final int mConvergenceStep; // Шаг остановки
+    private final int mStepsCount; // Количество шагов результата
+
+    /**
+     * @param storage         хранилище вычисленных шагов
+     * @param convergenceStep шаг остановки
+     * @param fill            заполнить оставшиеся шаги установившимся состоянием,
+     *                        иначе результат заканчивается на шаге остановки
+     */
+    public SteadyStateStorage(ResultStorage storage, int convergenceStep, boolean fill) {
+        mStorage = storage;
+        mConvergenceStep = convergenceStep;
+        mStepsCount = fill ? storage.getStepsCount() : convergenceStep + 1;
+    }
+
+    @Override
+    public int getStepsCount() {
+        return mStepsCount;
+    }
+
+    @Override
+    public double getValue(int step, int state) {
+        return mStorage.getValue(Math.min(step, mConvergenceStep), state);
+    }
+
+    @Override
+    public void close() {
+        mStorage.close();
+    }
+}
@@ -17,45 +17,45 @@
  */
 package com.budiyev.population.model;
 
-import java.util.ArrayList;
-
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 
 /**
- * Результат вычислений для вывода в табличном виде
+ * Результат вычислений для вывода в табличном виде.
+ * Строка не хранит значения, а обращается к столбцам {@link Result}.
  */
 public class TableResult {
-    private final ArrayList<DoubleProperty> mValues;
-    private final IntegerProperty mNumber;
-
-    public TableResult(double[] states, int number) {
-        mNumber = new SimpleIntegerProperty(number);
-        mValues = new ArrayList<>(states.length);
-        for (double state : states) {
-            mValues.add(new SimpleDoubleProperty(state));
-        }
+    private final Result mResult;
+    private final int mStep;
+
+    /**
+     * @param result результат
+     * @param step   номер шага (от нуля)
+     */
+    public TableResult(Result result, int step) {
+        mResult = result;
+        mStep = step;
     }
 
     public IntegerProperty numberProperty() {
-        return mNumber;
+        return new SimpleIntegerProperty(getNumber());
     }
 
     public int getNumber() {
-        return mNumber.get();
+        return mStep + mResult.getStartPoint();
     }
 
     public DoubleProperty valueDoubleProperty(int position) {
-        return mValues.get(position);
+        return new SimpleDoubleProperty(getValue(position));
     }
 
     public double getValue(int position) {
-        return mValues.get(position).get();
+        return mResult.getValue(mStep, position);
     }
 
     public int valueCount() {
-        return mValues.size();
+        return mResult.getDataNames().size();
     }
 }
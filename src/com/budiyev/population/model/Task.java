@@ -21,6 +21,19 @@ import java.util.List;
 import java.util.Map;
 
 public class Task {
+    /**
+     * Количество значащих десятичных цифр в режиме повышенной точности по умолчанию
+     */
+    public static final int DEFAULT_PRECISION = 64;
+    /**
+     * Интервал между шагами, проверяемыми при оценке погрешности, по умолчанию
+     */
+    public static final int DEFAULT_ERROR_ESTIMATION_INTERVAL = 16;
+    /**
+     * Количество подряд идущих шагов без существенных изменений, после которого
+     * состояние считается установившимся, по умолчанию
+     */
+    public static final int DEFAULT_STEADY_STATE_WINDOW = 10;
     private int mId;
     private String mName;
     private List<State> mStates;
@@ -28,8 +41,17 @@ public class Task {
     private int mStartPoint;
     private int mStepsCount;
     private boolean mParallel;
-    private boolean mHigherAccuracy;
+    private int mAccuracy = Accuracy.NORMAL;
+    private int mPrecision = DEFAULT_PRECISION;
+    private boolean mCompensatedSummation;
     private boolean mAllowNegative;
+    private double mSteadyStateEpsilon;
+    private int mSteadyStateWindow = DEFAULT_STEADY_STATE_WINDOW;
+    private boolean mSteadyStateFill = true;
+    private boolean mProfiling;
+    private int mErrorEstimationInterval;
+    private boolean mLinearBatching = true;
+    private boolean mStepCompilation;
     private char mColumnSeparator;
     private char mDecimalSeparator;
     private String mLineSeparator;
@@ -95,11 +117,51 @@ public class Task {
     }
 
     public boolean isHigherAccuracy() {
-        return mHigherAccuracy;
+        return mAccuracy == Accuracy.HIGHER;
     }
 
+    /**
+     * Включение повышенной точности; при выключении расширенная точность сохраняется
+     */
     public void setHigherAccuracy(boolean higherAccuracy) {
-        mHigherAccuracy = higherAccuracy;
+        if (higherAccuracy) {
+            mAccuracy = Accuracy.HIGHER;
+        } else if (mAccuracy == Accuracy.HIGHER) {
+            mAccuracy = Accuracy.NORMAL;
+        }
+    }
+
+    /**
+     * @return точность вычислений, {@link Accuracy}
+     */
+    public int getAccuracy() {
+        return mAccuracy;
+    }
+
+    public void setAccuracy(int accuracy) {
+        mAccuracy = accuracy;
+    }
+
+    /**
+     * @return количество значащих десятичных цифр в режиме повышенной точности
+     */
+    public int getPrecision() {
+        return mPrecision;
+    }
+
+    public void setPrecision(int precision) {
+        mPrecision = precision;
+    }
+
+    /**
+     * @return компенсированное суммирование (Ноймайер) изменений состояний в режиме обычной точности
+     */
+    public boolean isCompensatedSummation() {
+        return mCompensatedSummation;
+    }
+
+    public void setCompensatedSummation(boolean compensatedSummation) {
+        mCompensatedSummation = compensatedSummation;
     }
 
     public boolean isAllowNegative() {
@@ -110,6 +172,94 @@ public class Task {
         mAllowNegative = allowNegative;
     }
 
+    /**
+     * @return наибольшее относительное изменение состояний за шаг, при котором шаг считается
+     * не изменившим состояния; 0 - вычислять все шаги. Изменение состояния относится к наибольшему
+     * из его значений на двух шагах и из наибольшего состояния шага, поэтому состояния, пренебрежимо
+     * малые по сравнению с остальными (например, затухающие до нуля), не препятствуют остановке
+     */
+    public double getSteadyStateEpsilon() {
+        return mSteadyStateEpsilon;
+    }
+
+    public void setSteadyStateEpsilon(double steadyStateEpsilon) {
+        mSteadyStateEpsilon = steadyStateEpsilon;
+    }
+
+    /**
+     * @return количество подряд идущих шагов без существенных изменений,
+     * после которого вычисления останавливаются
+     */
+    public int getSteadyStateWindow() {
+        return mSteadyStateWindow;
+    }
+
+    public void setSteadyStateWindow(int steadyStateWindow) {
+        mSteadyStateWindow = steadyStateWindow;
+    }
+
+    /**
+     * @return после остановки заполнить оставшиеся шаги установившимся состоянием,
+     * иначе результат заканчивается на шаге остановки
+     */
+    public boolean isSteadyStateFill() {
+        return mSteadyStateFill;
+    }
+
+    public void setSteadyStateFill(boolean steadyStateFill) {
+        mSteadyStateFill = steadyStateFill;
+    }
+
+    /**
+     * @return собирать статистику профилирования вычислений (не сохраняется в файле задачи)
+     */
+    public boolean isProfiling() {
+        return mProfiling;
+    }
+
+    public void setProfiling(boolean profiling) {
+        mProfiling = profiling;
+    }
+
+    /**
+     * @return интервал между шагами, на которых вычисления с обычной точностью сравниваются с проверочной
+     * траекторией, вычисляемой с расширенной точностью на каждом шаге, 0 - без оценки погрешности
+     * (не сохраняется в файле задачи)
+     */
+    public int getErrorEstimationInterval() {
+        return mErrorEstimationInterval;
+    }
+
+    public void setErrorEstimationInterval(int errorEstimationInterval) {
+        mErrorEstimationInterval = errorEstimationInterval;
+    }
+
+    /**
+     * @return вычислять значения линейных переходов пакетами, сгруппированными по виду и режиму;
+     * {@code false} - поштучно, для сравнения производительности (не сохраняется в файле задачи)
+     */
+    public boolean isLinearBatching() {
+        return mLinearBatching;
+    }
+
+    public void setLinearBatching(boolean linearBatching) {
+        mLinearBatching = linearBatching;
+    }
+
+    /**
+     * @return компилировать шаг вычислений с обычной точностью в байт-код для плана переходов задачи;
+     * используется в последовательном режиме без компенсированного суммирования и профилирования
+     * и только для небольших планов (не больше 128 переходов), на которых он быстрее обычного вычисления
+     * (не сохраняется в файле задачи)
+     */
+    public boolean isStepCompilation() {
+        return mStepCompilation;
+    }
+
+    public void setStepCompilation(boolean stepCompilation) {
+        mStepCompilation = stepCompilation;
+    }
+
     public char getColumnSeparator() {
         return mColumnSeparator;
     }
@@ -153,7 +303,13 @@ public class Task {
         settings.put(Keys.STEPS_COUNT, String.valueOf(task.getStepsCount()));
         settings.put(Keys.PARALLEL, String.valueOf(task.isParallel()));
         settings.put(Keys.HIGHER_ACCURACY, String.valueOf(task.isHigherAccuracy()));
+        settings.put(Keys.ACCURACY, String.valueOf(task.getAccuracy()));
+        settings.put(Keys.PRECISION, String.valueOf(task.getPrecision()));
+        settings.put(Keys.COMPENSATED_SUMMATION, String.valueOf(task.isCompensatedSummation()));
         settings.put(Keys.ALLOW_NEGATIVE, String.valueOf(task.isAllowNegative()));
+        settings.put(Keys.STEADY_STATE_EPSILON, String.valueOf(task.getSteadyStateEpsilon()));
+        settings.put(Keys.STEADY_STATE_WINDOW, String.valueOf(task.getSteadyStateWindow()));
+        settings.put(Keys.STEADY_STATE_FILL, String.valueOf(task.isSteadyStateFill()));
         settings.put(Keys.COLUMN_SEPARATOR, String.valueOf(task.getColumnSeparator()));
         settings.put(Keys.DECIMAL_SEPARATOR, String.valueOf(task.getDecimalSeparator()));
         settings.put(Keys.LINE_SEPARATOR, task.getLineSeparator());
@@ -170,8 +326,14 @@ public class Task {
         task.setStartPoint(Integer.parseInt(settings.get(Keys.START_POINT)));
         task.setStepsCount(Integer.parseInt(settings.get(Keys.STEPS_COUNT)));
         task.setParallel(Boolean.parseBoolean(settings.get(Keys.PARALLEL)));
+        task.setAccuracy(Integer.parseInt(settings.get(Keys.ACCURACY)));
         task.setHigherAccuracy(Boolean.parseBoolean(settings.get(Keys.HIGHER_ACCURACY)));
+        task.setPrecision(Integer.parseInt(settings.get(Keys.PRECISION)));
+        task.setCompensatedSummation(Boolean.parseBoolean(settings.get(Keys.COMPENSATED_SUMMATION)));
         task.setAllowNegative(Boolean.parseBoolean(settings.get(Keys.ALLOW_NEGATIVE)));
+        task.setSteadyStateEpsilon(Double.parseDouble(settings.get(Keys.STEADY_STATE_EPSILON)));
+        task.setSteadyStateWindow(Integer.parseInt(settings.get(Keys.STEADY_STATE_WINDOW)));
+        task.setSteadyStateFill(Boolean.parseBoolean(settings.get(Keys.STEADY_STATE_FILL)));
         task.setColumnSeparator(settings.get(Keys.COLUMN_SEPARATOR).charAt(0));
         task.setDecimalSeparator(settings.get(Keys.DECIMAL_SEPARATOR).charAt(0));
         task.setLineSeparator(settings.get(Keys.LINE_SEPARATOR));
@@ -183,7 +345,13 @@ public class Task {
         public static final String STEPS_COUNT = "StepsCount";
         public static final String PARALLEL = "Parallel";
         public static final String HIGHER_ACCURACY = "HigherAccuracy";
+        public static final String ACCURACY = "Accuracy";
+        public static final String PRECISION = "Precision";
+        public static final String COMPENSATED_SUMMATION = "CompensatedSummation";
         public static final String ALLOW_NEGATIVE = "AllowNegative";
+        public static final String STEADY_STATE_EPSILON = "SteadyStateEpsilon";
+        public static final String STEADY_STATE_WINDOW = "SteadyStateWindow";
+        public static final String STEADY_STATE_FILL = "SteadyStateFill";
         public static final String COLUMN_SEPARATOR = "ColumnSeparator";
         public static final String DECIMAL_SEPARATOR = "DecimalSeparator";
         public static final String LINE_SEPARATOR = "LineSeparator";
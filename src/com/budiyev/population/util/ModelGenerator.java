@@ -0,0 +1,276 @@
+/*
+ * Population
+ * Copyright (C) 2016 Yuriy Budiyev [yuriy.budiyev@yandex.ru]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see http://www.gnu.org/licenses/.
+ */
+package com.budiyev.population.util;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.budiyev.population.model.State;
+import com.budiyev.population.model.Task;
+import com.budiyev.population.model.Transition;
+import com.budiyev.population.model.TransitionMode;
+import com.budiyev.population.model.TransitionType;
+
+/**
+ * Генератор синтетических моделей для нагрузочного тестирования и измерения масштабируемости.
+ * При одинаковых параметрах и начальном значении генератора случайных чисел модель всегда одна и та же.
+ */
+public class ModelGenerator {
+    private long mSeed; // Начальное значение генератора случайных чисел
+    private int mStatesCount = 10; // Количество состояний
+    private int mTransitionsCount = 20; // Количество переходов
+    private int mStepsCount = 1000; // Количество шагов
+    private int mMaxDelay; // Максимальная задержка
+    private double mExternalFraction; // Доля внешних состояний среди участников переходов
+    private double mMinCount = 100; // Минимальное начальное количество
+    private double mMaxCount = 10000; // Максимальное начальное количество
+    private double mMaxProbability = 0.01; // Максимальная вероятность перехода
+    private int mMaxCoefficient = 1; // Максимальный коэффициент
+    private final double[] mTypeWeights = new double[TransitionType.TYPES.size()]; // Веса типов
+    private final double[] mModeWeights = new double[TransitionMode.MODES.size()]; // Веса режимов
+
+    public ModelGenerator() {
+        Arrays.fill(mTypeWeights, 1);
+        mModeWeights[TransitionMode.SIMPLE] = 1;
+    }
+
+    public long getSeed() {
+        return mSeed;
+    }
+
+    public void setSeed(long seed) {
+        mSeed = seed;
+    }
+
+    public int getStatesCount() {
+        return mStatesCount;
+    }
+
+    public void setStatesCount(int statesCount) {
+        if (statesCount < 1) {
+            throw new IllegalArgumentException("States count must be positive");
+        }
+        mStatesCount = statesCount;
+    }
+
+    public int getTransitionsCount() {
+        return mTransitionsCount;
+    }
+
+    public void setTransitionsCount(int transitionsCount) {
+        if (transitionsCount < 0) {
+            throw new IllegalArgumentException("Transitions count must not be negative");
+        }
+        mTransitionsCount = transitionsCount;
+    }
+
+    public int getStepsCount() {
+        return mStepsCount;
+    }
+
+    public void setStepsCount(int stepsCount) {
+        if (stepsCount < 1) {
+            throw new IllegalArgumentException("Steps count must be positive");
+        }
+        mStepsCount = stepsCount;
+    }
+
+    public int getMaxDelay() {
+        return mMaxDelay;
+    }
+
+    public void setMaxDelay(int maxDelay) {
+        if (maxDelay < 0) {
+            throw new IllegalArgumentException("Delay must not be negative");
+        }
+        mMaxDelay = maxDelay;
+    }
+
+    public double getExternalFraction() {
+        return mExternalFraction;
+    }
+
+    /**
+     * @param externalFraction вероятность того, что исходное, операндное или результирующее состояние
+     *                         перехода будет внешним (0 - 1)
+     */
+    public void setExternalFraction(double externalFraction) {
+        if (!(externalFraction >= 0 && externalFraction <= 1)) {
+            throw new IllegalArgumentException("External fraction must be in range [0, 1]");
+        }
+        mExternalFraction = externalFraction;
+    }
+
+    /**
+     * @param minCount минимальное начальное количество
+     * @param maxCount максимальное начальное количество
+     */
+    public void setCountRange(double minCount, double maxCount) {
+        if (!(minCount >= 0 && maxCount >= minCount)) {
+            throw new IllegalArgumentException("Invalid count range");
+        }
+        mMinCount = minCount;
+        mMaxCount = maxCount;
+    }
+
+    public double getMaxProbability() {
+        return mMaxProbability;
+    }
+
+    /**
+     * @param maxProbability максимальная вероятность перехода, вероятности распределены равномерно от нуля
+     */
+    public void setMaxProbability(double maxProbability) {
+        if (!(maxProbability >= 0)) {
+            throw new IllegalArgumentException("Probability must not be negative");
+        }
+        mMaxProbability = maxProbability;
+    }
+
+    public int getMaxCoefficient() {
+        return mMaxCoefficient;
+    }
+
+    /**
+     * @param maxCoefficient максимальный коэффициент, коэффициенты - целые числа от единицы
+     */
+    public void setMaxCoefficient(int maxCoefficient) {
+        if (maxCoefficient < 1) {
+            throw new IllegalArgumentException("Coefficient must be positive");
+        }
+        mMaxCoefficient = maxCoefficient;
+    }
+
+    /**
+     * Вес типа перехода в распределении типов; по умолчанию все типы равновероятны
+     *
+     * @param type   тип, {@link TransitionType}
+     * @param weight вес
+     */
+    public void setTypeWeight(int type, double weight) {
+        if (!(weight >= 0)) {
+            throw new IllegalArgumentException("Weight must not be negative");
+        }
+        mTypeWeights[type] = weight;
+    }
+
+    /**
+     * Вес режима перехода в распределении режимов; по умолчанию используется только {@link TransitionMode#SIMPLE}
+     *
+     * @param mode   режим, {@link TransitionMode}
+     * @param weight вес
+     */
+    public void setModeWeight(int mode, double weight) {
+        if (!(weight >= 0)) {
+            throw new IllegalArgumentException("Weight must not be negative");
+        }
+        mModeWeights[mode] = weight;
+    }
+
+    /**
+     * Генерация задачи
+     *
+     * @return задача
+     */
+    public Task generate() {
+        Random random = new Random(mSeed);
+        List<State> states = new ArrayList<>(mStatesCount);
+        for (int i = 0; i < mStatesCount; i++) {
+            double count = Math.floor(mMinCount + random.nextDouble() * (mMaxCount - mMinCount));
+            states.add(new State(i + 1, "State " + (i + 1), count, ""));
+        }
+        List<Transition> transitions = new ArrayList<>(mTransitionsCount);
+        for (int i = 0; i < mTransitionsCount; i++) {
+            int sourceState = nextState(random);
+            int operandState = nextState(random);
+            int resultState = nextState(random);
+            if (sourceState == State.EXTERNAL && operandState == State.EXTERNAL) {
+                sourceState = random.nextInt(mStatesCount) + 1;
+            }
+            transitions.add(new Transition(sourceState, nextCoefficient(random), nextDelay(random), operandState,
+                    nextCoefficient(random), nextDelay(random), resultState, 1,
+                    random.nextDouble() * mMaxProbability, choose(random, mTypeWeights),
+                    choose(random, mModeWeights), ""));
+        }
+        Task task = new Task();
+        task.setName("Generated " + mStatesCount + "x" + mTransitionsCount + " (" + mSeed + ")");
+        task.setStates(states);
+        task.setTransitions(transitions);
+        task.setStartPoint(0);
+        task.setStepsCount(mStepsCount);
+        task.setColumnSeparator(',');
+        task.setDecimalSeparator(DecimalFormatSymbols.getInstance().getDecimalSeparator());
+        task.setLineSeparator(System.lineSeparator());
+        task.setEncoding(Charset.defaultCharset().name());
+        return task;
+    }
+
+    /**
+     * Генерация задачи и запись её в файл
+     *
+     * @param file файл
+     * @return задача
+     */
+    public Task generate(File file) {
+        Task task = generate();
+        TaskParser.encode(file, task);
+        return task;
+    }
+
+    private int nextState(Random random) {
+        if (mExternalFraction > 0 && random.nextDouble() < mExternalFraction) {
+            return State.EXTERNAL;
+        }
+        return random.nextInt(mStatesCount) + 1;
+    }
+
+    private double nextCoefficient(Random random) {
+        return mMaxCoefficient > 1 ? random.nextInt(mMaxCoefficient) + 1 : 1;
+    }
+
+    private int nextDelay(Random random) {
+        return mMaxDelay > 0 ? random.nextInt(mMaxDelay + 1) : 0;
+    }
+
+    private static int choose(Random random, double[] weights) {
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        if (!(total > 0)) {
+            throw new IllegalStateException("At least one weight must be positive");
+        }
+        double point = random.nextDouble() * total;
+        int last = 0;
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] > 0) {
+                last = i;
+                if (point < weights[i]) {
+                    return i;
+                }
+                point -= weights[i];
+            }
+        }
+        return last;
+    }
+}
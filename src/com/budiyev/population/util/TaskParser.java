@@ -54,7 +54,13 @@ public final class TaskParser {
         table.add(new StringRow(Task.Keys.STEPS_COUNT, task.getStepsCount()));
         table.add(new StringRow(Task.Keys.PARALLEL, task.isParallel()));
         table.add(new StringRow(Task.Keys.HIGHER_ACCURACY, task.isHigherAccuracy()));
+        table.add(new StringRow(Task.Keys.ACCURACY, task.getAccuracy()));
+        table.add(new StringRow(Task.Keys.PRECISION, task.getPrecision()));
+        table.add(new StringRow(Task.Keys.COMPENSATED_SUMMATION, task.isCompensatedSummation()));
         table.add(new StringRow(Task.Keys.ALLOW_NEGATIVE, task.isAllowNegative()));
+        table.add(new StringRow(Task.Keys.STEADY_STATE_EPSILON, task.getSteadyStateEpsilon()));
+        table.add(new StringRow(Task.Keys.STEADY_STATE_WINDOW, task.getSteadyStateWindow()));
+        table.add(new StringRow(Task.Keys.STEADY_STATE_FILL, task.isSteadyStateFill()));
         table.add(new StringRow(Task.Keys.COLUMN_SEPARATOR, task.getColumnSeparator()));
         table.add(new StringRow(Task.Keys.DECIMAL_SEPARATOR, task.getDecimalSeparator()));
         table.add(new StringRow(Task.Keys.LINE_SEPARATOR, task.getLineSeparator()));
@@ -124,9 +130,27 @@ public final class TaskParser {
             } else if (Objects.equals(row.cell(0), Task.Keys.HIGHER_ACCURACY)) {
                 task.setHigherAccuracy(Boolean.parseBoolean(row.cell(1)));
                 continue;
+            } else if (Objects.equals(row.cell(0), Task.Keys.ACCURACY)) {
+                task.setAccuracy(Integer.parseInt(row.cell(1)));
+                continue;
+            } else if (Objects.equals(row.cell(0), Task.Keys.PRECISION)) {
+                task.setPrecision(Integer.parseInt(row.cell(1)));
+                continue;
+            } else if (Objects.equals(row.cell(0), Task.Keys.COMPENSATED_SUMMATION)) {
+                task.setCompensatedSummation(Boolean.parseBoolean(row.cell(1)));
+                continue;
             } else if (Objects.equals(row.cell(0), Task.Keys.ALLOW_NEGATIVE)) {
                 task.setAllowNegative(Boolean.parseBoolean(row.cell(1)));
                 continue;
+            } else if (Objects.equals(row.cell(0), Task.Keys.STEADY_STATE_EPSILON)) {
+                task.setSteadyStateEpsilon(Double.parseDouble(row.cell(1)));
+                continue;
+            } else if (Objects.equals(row.cell(0), Task.Keys.STEADY_STATE_WINDOW)) {
+                task.setSteadyStateWindow(Integer.parseInt(row.cell(1)));
+                continue;
+            } else if (Objects.equals(row.cell(0), Task.Keys.STEADY_STATE_FILL)) {
+                task.setSteadyStateFill(Boolean.parseBoolean(row.cell(1)));
+                continue;
             } else if (Objects.equals(row.cell(0), Task.Keys.COLUMN_SEPARATOR)) {
                 task.setColumnSeparator(row.cell(1).charAt(0));
                 continue;
@@ -28,6 +28,7 @@ import java.text.DecimalFormatSymbols;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.ResourceBundle;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -35,6 +36,7 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
+import com.budiyev.population.model.Accuracy;
 import com.budiyev.population.model.Result;
 import com.budiyev.population.model.TableResult;
 import com.budiyev.population.model.Task;
@@ -151,7 +153,7 @@ public final class Utils {
                 TableResult firstExistent = null;
                 for (int j = 0; j < results.size(); j++) {
                     Result result = results.get(j);
-                    ArrayList<TableResult> data = result.getTableData();
+                    List<TableResult> data = result.getTableData();
                     int localIndex = i - result.getStartPoint();
                     if (localIndex >= 0 && localIndex < data.size()) {
                         TableResult localResult = data.get(localIndex);
@@ -193,7 +195,13 @@ public final class Utils {
     public static void setDefaultTaskSettings(HashMap<String, String> taskSettings) {
         taskSettings.put(Task.Keys.STEPS_COUNT, String.valueOf(0));
         taskSettings.put(Task.Keys.HIGHER_ACCURACY, String.valueOf(false));
+        taskSettings.put(Task.Keys.ACCURACY, String.valueOf(Accuracy.NORMAL));
+        taskSettings.put(Task.Keys.PRECISION, String.valueOf(Task.DEFAULT_PRECISION));
+        taskSettings.put(Task.Keys.COMPENSATED_SUMMATION, String.valueOf(false));
         taskSettings.put(Task.Keys.ALLOW_NEGATIVE, String.valueOf(false));
+        taskSettings.put(Task.Keys.STEADY_STATE_EPSILON, String.valueOf(0d));
+        taskSettings.put(Task.Keys.STEADY_STATE_WINDOW, String.valueOf(Task.DEFAULT_STEADY_STATE_WINDOW));
+        taskSettings.put(Task.Keys.STEADY_STATE_FILL, String.valueOf(true));
         taskSettings.put(Task.Keys.COLUMN_SEPARATOR, String.valueOf(','));
         taskSettings.put(Task.Keys.DECIMAL_SEPARATOR,
                 String.valueOf(DecimalFormatSymbols.getInstance().getDecimalSeparator()));